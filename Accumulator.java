@@ -0,0 +1,267 @@
+/* Accumulator.java */
+
+package player;
+
+import java.util.Arrays;
+
+/**
+ *  The first layer of a Network on one Board: the accumulator of each
+ *  color and the connections of every chip, kept up to date by
+ *  Board.setColor() as chips are placed and moved.
+ *
+ *  The accumulators are a stack, one frame per move: updateBoard() pushes
+ *  a copy of the current frame and changes it, and retrieveBoard() pops it
+ *  instead of undoing the changes, so taking a move back costs nothing.
+ *  The moves must be taken back in the reverse order they were made, as
+ *  the searches do; retrieveBoard() on a frame that was not pushed undoes
+ *  the move as it was made.
+ *
+ *  Changing a cell changes the connections of the chip on it and of the
+ *  nearest chip in each of the 8 directions from it, whose ray through the
+ *  cell it opens or blocks, and of no other chip. Before the change, the
+ *  nearest chip in a direction saw the chip on the cell, or if there was
+ *  none the nearest chip in the opposite direction; after it, the same
+ *  with the new chip. So remove() takes the chip on the cell out of the
+ *  accumulators and finds the nearest chips, and add() works out from
+ *  them which connections changed, moves those chips to their new rows
+ *  and puts the new chip in, without scanning the board again.
+ **/
+
+class Accumulator {
+
+  /**
+   *  network references the Network, and values the accumulator of each
+   *  color in the current frame. connections holds the connections of the
+   *  chip on each cell in the current frame. frames and links hold the
+   *  accumulators and connections of every frame, and depth references
+   *  the current one. near holds the nearest chip remove() found in each
+   *  direction from the cell being changed, or -1, nearColor its color,
+   *  and cellColor references the color of the cell before the change.
+   **/
+  final Network network;
+  short[][] values;
+  private byte[] connections;
+  private short[][][] frames = new short[16][][];
+  private byte[][] links = new byte[16][];
+  private int depth;
+  private final int[] near = new int[8];
+  private final int[] nearColor = new int[8];
+  private int cellColor;
+
+  /**
+   *  Creates the accumulators of network on board.
+   **/
+  Accumulator(Network network, Board board) {
+    if (network.dimension != board.dimension) {
+      throw new IllegalArgumentException("the network is for " + network.dimension + "x"
+                                         + network.dimension + " boards");
+    }
+    this.network = network;
+    values = new short[][] {network.bias.clone(), network.bias.clone()};
+    connections = new byte[network.cells];
+    frames[0] = values;
+    links[0] = connections;
+    for (int color = 0; color < 2; color++) {
+      long[] mask = board.chipMask[color];
+      for (int w = 0; w < mask.length; w++) {
+        for (long bits = mask[w]; bits != 0; bits &= bits - 1) {
+          int cell = w << 6 | Long.numberOfTrailingZeros(bits);
+          connections[cell] = (byte) connectionsOf(board, cell, color);
+          addRows(color, cell, connections[cell], 1);
+        }
+      }
+    }
+  }
+
+  /**
+   *  Creates a copy of other.
+   **/
+  private Accumulator(Accumulator other) {
+    network = other.network;
+    values = new short[][] {other.values[Board.BLACK].clone(),
+                            other.values[Board.WHITE].clone()};
+    connections = other.connections.clone();
+    frames[0] = values;
+    links[0] = connections;
+  }
+
+  /**
+   *  Returns a copy of the current frame of this accumulator, for a copy of
+   *  its board.
+   **/
+  Accumulator copy() {
+    return new Accumulator(this);
+  }
+
+  /**
+   *  Pushes a copy of the current frame, for updateBoard().
+   **/
+  void push() {
+    if (++depth == frames.length) {
+      frames = Arrays.copyOf(frames, 2 * depth);
+      links = Arrays.copyOf(links, 2 * depth);
+    }
+    if (frames[depth] == null) {
+      frames[depth] = new short[2][network.hidden];
+      links[depth] = new byte[network.cells];
+    }
+    short[][] next = frames[depth];
+    System.arraycopy(values[Board.BLACK], 0, next[Board.BLACK], 0, network.hidden);
+    System.arraycopy(values[Board.WHITE], 0, next[Board.WHITE], 0, network.hidden);
+    System.arraycopy(connections, 0, links[depth], 0, network.cells);
+    values = next;
+    connections = links[depth];
+  }
+
+  /**
+   *  Pops the current frame, for retrieveBoard(), and returns true, or
+   *  returns false if it is the first.
+   **/
+  boolean pop() {
+    if (depth == 0) {
+      return false;
+    }
+    depth--;
+    values = frames[depth];
+    connections = links[depth];
+    return true;
+  }
+
+  /**
+   *  Returns the score of board for the color to move; see Network.score().
+   **/
+  int score(int toMove) {
+    return network.score(values[toMove], values[1 - toMove]);
+  }
+
+  /**
+   *  Takes the chip on cell, if any, out of the accumulators and finds the
+   *  nearest chip in each direction from cell. Called before the change.
+   **/
+  void remove(Board board, int cell) {
+    cellColor = board.board[cell / board.dimension][cell % board.dimension];
+    if (cellColor != Board.EMPTY) {
+      addRows(cellColor, cell, connections[cell], -1);
+    }
+    int[] ray = board.geometry.ray;
+    int rayLength = board.geometry.rayLength;
+    long[] black = board.chipMask[Board.BLACK];
+    long[] white = board.chipMask[Board.WHITE];
+    for (int dir = 0; dir < 8; dir++) {
+      near[dir] = -1;
+      for (int i = (cell * 8 + dir) * rayLength, stop = i + rayLength; i < stop && ray[i] >= 0;
+           i++) {
+        if (Geometry.has(black, ray[i])) {
+          near[dir] = ray[i];
+          nearColor[dir] = Board.BLACK;
+          break;
+        } else if (Geometry.has(white, ray[i])) {
+          near[dir] = ray[i];
+          nearColor[dir] = Board.WHITE;
+          break;
+        }
+      }
+    }
+  }
+
+  /**
+   *  Puts the chip now on cell, if any, into the accumulators and moves
+   *  each chip remove() found whose connections changed to its new row.
+   *  Called after the change.
+   **/
+  void add(Board board, int cell) {
+    int color = board.board[cell / board.dimension][cell % board.dimension];
+    int own = 0;
+    for (int dir = 0; dir < 8; dir++) {
+      int chip = near[dir];
+      if (chip < 0) {
+        continue;
+      }
+      int c = nearColor[dir];
+      if (c == color) {
+        own++;
+      }
+      int beyond = near[7 - dir] < 0 ? Board.EMPTY : nearColor[7 - dir];
+      int before = c == (cellColor != Board.EMPTY ? cellColor : beyond) ? 1 : 0;
+      int after = c == (color != Board.EMPTY ? color : beyond) ? 1 : 0;
+      if (before != after) {
+        int old = connections[chip];
+        int now = old + after - before;
+        if (bucket(now) != bucket(old)) {
+          moveRows(c, chip, old, now);
+        }
+        connections[chip] = (byte) now;
+      }
+    }
+    if (color != Board.EMPTY) {
+      connections[cell] = (byte) own;
+      addRows(color, cell, own, 1);
+    }
+  }
+
+  private static int bucket(int connections) {
+    return connections < Network.BUCKETS ? connections : Network.BUCKETS - 1;
+  }
+
+  /**
+   *  Adds (sign 1) or subtracts (sign -1) the rows of a chip of color on
+   *  cell with the given connections to the accumulators of both colors.
+   **/
+  private void addRows(int color, int cell, int chipConnections, int sign) {
+    short[] input = network.input;
+    int hidden = network.hidden;
+    for (int perspective = 0; perspective < 2; perspective++) {
+      short[] acc = values[perspective];
+      int row = network.row(perspective, color, cell, chipConnections);
+      if (sign > 0) {
+        for (int h = 0; h < hidden; h++) {
+          acc[h] += input[row + h];
+        }
+      } else {
+        for (int h = 0; h < hidden; h++) {
+          acc[h] -= input[row + h];
+        }
+      }
+    }
+  }
+
+  /**
+   *  Moves a chip of color on cell from its rows with connections from to
+   *  those with connections to, in the accumulators of both colors.
+   **/
+  private void moveRows(int color, int cell, int from, int to) {
+    short[] input = network.input;
+    int hidden = network.hidden;
+    for (int perspective = 0; perspective < 2; perspective++) {
+      short[] acc = values[perspective];
+      int out = network.row(perspective, color, cell, from);
+      int in = network.row(perspective, color, cell, to);
+      for (int h = 0; h < hidden; h++) {
+        acc[h] += input[in + h] - input[out + h];
+      }
+    }
+  }
+
+  /**
+   *  Returns the connections of the chip of color on cell: the directions
+   *  in which the nearest chip is one of its own.
+   **/
+  static int connectionsOf(Board board, int cell, int color) {
+    int[] ray = board.geometry.ray;
+    int rayLength = board.geometry.rayLength;
+    long[] mine = board.chipMask[color];
+    long[] other = board.chipMask[1 - color];
+    int n = 0;
+    for (int k = cell * 8 * rayLength, end = k + 8 * rayLength; k < end; k += rayLength) {
+      for (int i = k, stop = k + rayLength; i < stop && ray[i] >= 0; i++) {
+        if (Geometry.has(mine, ray[i])) {
+          n++;
+          break;
+        } else if (Geometry.has(other, ray[i])) {
+          break;
+        }
+      }
+    }
+    return n;
+  }
+}
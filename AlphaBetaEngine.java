@@ -0,0 +1,673 @@
+/* AlphaBetaEngine.java */
+
+package player;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ *  The default SearchEngine: a minimax search with alpha-beta pruning that
+ *  scores its leaves with Board.score(). Without a deadline it searches to
+ *  the depth of its EngineConfig, or to the step depth once the player has
+ *  placed all its chips; with one it deepens one ply at a time. The best
+ *  move found in every position searched is kept in a table between moves,
+ *  and the principal variation of the last search is re-rooted as the game
+ *  follows it, so each search tries the moves it expects first.
+ **/
+
+public class AlphaBetaEngine implements SearchEngine {
+
+  /**
+   *  MACHINE_WIN references the maximum score which is assigned when the
+   *  board has an immediate win for the player searched for.
+   *  OPPONENT_WIN references the minimum score which is assigned when the
+   *  board has an immediate win for the opponent.
+   *  MAX_DEPTH references the deepest iteration of a time-limited search.
+   *  LMR_MOVES references the number of moves searched to the full depth
+   *  before the rest are reduced, and LMR_DEPTH the smallest depth at which
+   *  they are.
+   **/
+  final static int MACHINE_WIN = 100;
+  final static int OPPONENT_WIN = -100;
+  final static int MAX_DEPTH = 20;
+  final static private int LMR_MOVES = 6;
+  final static private int LMR_DEPTH = 3;
+
+  /**
+   *  config references the configuration this engine reads its depths and
+   *  switches from as it searches.
+   *  bestMoves references the best move abTree found in each position it
+   *  searched; it is kept between moves so the next search tries them first.
+   *  It is shared with searches started by chooseMoveAsync() that may still
+   *  be unwinding; a torn entry only costs a bad hint, since hints are
+   *  matched against the valid moves.
+   *  pv references the principal variation of the last search, re-rooted
+   *  as the moves along it are played, and pvLength its number of moves.
+   *  dimension references the size of the boards searched.
+   **/
+  private final EngineConfig config;
+  private final int dimension;
+  private final MoveTable bestMoves;
+  private int[] pv = new int[0];
+  private int pvLength;
+
+  /**
+   *  A Ranking holds the best Candidates found so far by analyze(), from
+   *  best to worst. It is shared by all threads of the analysis.
+   **/
+  static class Ranking {
+    private final Candidate[] top;
+    private int size;
+
+    /**
+     *  Creates an empty Ranking of at most count Candidates.
+     **/
+    Ranking(int count) {
+      top = new Candidate[count];
+    }
+
+    /**
+     *  Returns the score a root move must beat to enter the Ranking.
+     **/
+    synchronized int threshold() {
+      return size < top.length ? OPPONENT_WIN - 1 : top[size - 1].getScore();
+    }
+
+    /**
+     *  Inserts c after the Candidates scoring at least as much, dropping the
+     *  worst Candidate if the Ranking is full. c is dropped instead if it
+     *  no longer beats the threshold, which another thread may have raised
+     *  while c was searched.
+     **/
+    synchronized void offer(Candidate c) {
+      if (c.getScore() <= threshold()) {
+        return;
+      }
+      int i = size < top.length ? size++ : size - 1;
+      while (i > 0 && top[i - 1].getScore() < c.getScore()) {
+        top[i] = top[i - 1];
+        i--;
+      }
+      top[i] = c;
+    }
+
+    /**
+     *  Returns the Candidates from best to worst.
+     **/
+    synchronized Candidate[] candidates() {
+      Candidate[] result = new Candidate[size];
+      System.arraycopy(top, 0, result, 0, size);
+      return result;
+    }
+  }
+
+  /**
+   *  Creates an engine that searches as config says.
+   *  @param config is the configuration to read; it is not copied.
+   **/
+  AlphaBetaEngine(EngineConfig config) {
+    this.config = config;
+    dimension = config.dimension();
+    bestMoves = new MoveTable(config.tableBits());
+  }
+
+  /**
+   *  Packs m as Board.encodeMove() does on the boards searched.
+   **/
+  private int encode(Move m) {
+    return Board.encodeMove(m, dimension);
+  }
+
+  /**
+   *  Unpacks a move packed by encode().
+   **/
+  private Move decode(int code) {
+    return Board.decodeMove(code, dimension);
+  }
+
+  /**
+   *  Searches search.board for a move of color; see SearchEngine.
+   **/
+  public Move search(Search search, int color) {
+    Board board = search.board;
+    if (board.components != null) {
+      board.setComponents(true);
+    }
+    try {
+      seedPrincipalVariation(board, color);
+      if (search.best == null) {
+        DList moves = board.allValidMoves(color);
+        search.best = moves.length() > 0 ? (Move) moves.front().item() : new Move();
+      }
+      int last = search.deadline != 0 ? MAX_DEPTH
+        : board.totalChips(color) == board.geometry.chips ? config.stepDepth() : config.depth();
+      int first = search.deadline != 0 ? 1 : last;
+      for (int depth = first; depth <= last && !search.isStopped(); depth++) {
+        search.rootDepth = depth;
+        Best myBest = abTree(search, true, color, depth, 0, OPPONENT_WIN, MACHINE_WIN);
+        if (search.isStopped()) {
+          break;
+        }
+        search.pv = savePrincipalVariation(board, color, myBest.getMove(), depth);
+        search.best = myBest.getMove();
+        search.completedDepth = depth;
+        if (Math.abs(myBest.getScore()) >= MACHINE_WIN - MAX_DEPTH) {
+          break;
+        }
+      }
+    } catch (InvalidNodeException e) {
+      System.err.println(e);
+    }
+    return search.best;
+  }
+
+  /**
+   *  Searches search.board, reached after ply moves of a search for the
+   *  color of the board, to depth more plies with color to move, and
+   *  returns its score within alpha and beta as abTree() does. SearchWorker
+   *  searches the subtrees of a distributed search with it.
+   **/
+  int searchNode(Search search, int color, int depth, int ply, int alpha, int beta) {
+    try {
+      return abTree(search, color == search.board.color, color, depth, ply, alpha, beta).getScore();
+    } catch (InvalidNodeException e) {
+      System.err.println(e);
+      return alpha;
+    }
+  }
+
+  /**
+   *  Keeps the principal variation of search, re-rooted past m.
+   **/
+  public synchronized void chosen(Search search, Move m) {
+    pv = search.pv;
+    pvLength = pv.length;
+    reroot(m);
+  }
+
+  /**
+   *  Re-roots the principal variation past m.
+   **/
+  public synchronized void opponentMoved(Move m) {
+    reroot(m);
+  }
+
+  /**
+   *  Drops the principal variation.
+   **/
+  public synchronized void reset() {
+    pvLength = 0;
+  }
+
+  /**
+   *  Returns the count best moves of color on board, from best to worst,
+   *  each with its score and principal variation. The root moves share one
+   *  alpha-beta search to the given depth: a root move is only searched to
+   *  find out whether it beats the count-th best score so far, and all root
+   *  moves share the best-move table, so ranking count moves costs far less
+   *  than count searches. With more than one thread, the threads take root
+   *  moves in turn, each on its own copy of the board. Fewer than count
+   *  Candidates are returned if there are fewer valid moves.
+   *  @param board is the Board to analyze; it is not changed.
+   *  @param color is the color to move.
+   *  @param count is the number of moves to rank, at least 1.
+   *  @param depth is the search depth, at least 1.
+   *  @param threads is the number of threads to search with, at least 1.
+   *  @param total gets the counters of all threads added to it.
+   *  @return the ranked Candidates.
+   **/
+  synchronized Candidate[] analyze(Board board, final int color, int count, final int depth,
+                                   int threads, Search total) {
+    seedPrincipalVariation(board, color);
+    final int[] rootMoves = rootMoves(board, color);
+    final Ranking ranking = new Ranking(count);
+    final AtomicInteger next = new AtomicInteger();
+    Search[] searches = new Search[threads];
+    Thread[] workers = new Thread[threads - 1];
+    for (int i = 0; i < threads; i++) {
+      final Search search = new Search(board.copyBoard(), 0);
+      search.rootDepth = depth;
+      searches[i] = search;
+      if (i < threads - 1) {
+        workers[i] = new Thread(() -> analyzeRootMoves(search, color, rootMoves, next, ranking));
+        workers[i].start();
+      } else {
+        analyzeRootMoves(search, color, rootMoves, next, ranking);
+      }
+    }
+    for (int i = 0; i < workers.length; i++) {
+      try {
+        workers[i].join();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+    for (int i = 0; i < threads; i++) {
+      total.nodes += searches[i].nodes;
+      total.reductions += searches[i].reductions;
+      total.researches += searches[i].researches;
+      total.futilityPrunes += searches[i].futilityPrunes;
+      total.tableProbes += searches[i].tableProbes;
+      total.tableHits += searches[i].tableHits;
+    }
+    total.completedDepth = depth;
+    return ranking.candidates();
+  }
+
+  /**
+   *  Searches root moves, taking the index of the next one from next, until
+   *  none is left, and offers each that beats the threshold of ranking.
+   *  @param search holds the Board to search, with rootDepth set.
+   *  @param color is the color to move at the root.
+   *  @param rootMoves holds the packed root moves.
+   *  @param next references the index of the next root move to search.
+   *  @param ranking references the best Candidates so far.
+   **/
+  private void analyzeRootMoves(Search search, int color, int[] rootMoves, AtomicInteger next,
+                                Ranking ranking) {
+    Board board = search.board;
+    int depth = search.rootDepth;
+    try {
+      for (int i = next.getAndIncrement(); i < rootMoves.length; i = next.getAndIncrement()) {
+        Move m = decode(rootMoves[i]);
+        int alpha = ranking.threshold();
+        board.updateBoard(m, color);
+        Best reply = abTree(search, false, 1 - color, depth - 1, 1, alpha, MACHINE_WIN);
+        board.retrieveBoard(m, color);
+        if (reply.getScore() > alpha) {
+          ranking.offer(new Candidate(m, reply.getScore(),
+                                      savePrincipalVariation(board, color, m, depth), dimension));
+        }
+      }
+    } catch (InvalidNodeException e) {
+      System.err.println(e);
+    }
+  }
+
+  /**
+   *  Returns the packed valid moves of color on board, the one bestMoves
+   *  records for board first.
+   *  @param board is the Board at the root.
+   *  @param color is the color to move.
+   **/
+  int[] rootMoves(Board board, int color) {
+    DList moves = board.allValidMoves(color);
+    int[] packed = new int[moves.length()];
+    int n = 0;
+    try {
+      Move first = hintedMove(board, moves, color);
+      if (first != null) {
+        packed[n++] = encode(first);
+      }
+      ListNode current = moves.front();
+      for (int i = 0; i < moves.length(); i++) {
+        Move m = (Move) current.item();
+        if (m != first) {
+          packed[n++] = encode(m);
+        }
+        current = current.next();
+      }
+    } catch (InvalidNodeException e) {
+      System.err.println(e);
+    }
+    return packed;
+  }
+
+  /**
+   *  abTree() uses minimax algorithm and alpha-beta pruning to search game tree
+   *  to the given search depth and returns a Best object which contains the
+   *  best Move and the score of the board.
+   *  If search is stopped, abTree() returns early; the result of a stopped
+   *  search must be discarded.
+   *  With late-move reductions, moves after the first LMR_MOVES at a depth
+   *  of at least LMR_DEPTH are searched one ply shallower, and searched again
+   *  to the full depth if they improve on alpha (beta for the opponent).
+   *  With futility pruning, a move one ply from the leaves is skipped if it
+   *  is an ADD move that cannot complete a network (see
+   *  Board.chipsToConnect()) and the static score is so far below alpha
+   *  (above beta) that one move cannot reach it.
+   *  @param search holds the Board to search and the stop flag.
+   *  @param side is true if it is the turn of the player searched for,
+   *  and false if it is the opponent's turn.
+   *  @param color is the color to make the next move.
+   *  @param depth is the search depth in game tree search.
+   *  @param ply is the number of moves made since the root.
+   *  @param alpha is the initial value of alpha in alpha-beta pruning.
+   *  @param beta is the initial value of beta in alpha-beta pruning.
+   *  @return Best object which contains the best Move and the score of the board.
+   **/
+  private Best abTree(Search search, boolean side, int color, int depth, int ply, int alpha, int beta) throws InvalidNodeException {
+    search.nodes++;
+    Best myBest = new Best();
+    if (search.isStopped()) {
+      return myBest;
+    }
+    Board board = search.board;
+    DList allValidMoves = board.allValidMoves(color);
+    DListNode current = (DListNode) allValidMoves.front();
+    Move first = hintedMove(board, allValidMoves, color);
+    search.tableProbes++;
+    if (first != null) {
+      search.tableHits++;
+    }
+    myBest.setMove(first != null ? first : (Move) current.item());
+    Best reply;
+    if (depth == 0 || board.hasNetwork(color) || board.hasNetwork(1-color)) {
+      myBest.setScore(board.score(ply, 1-color));
+      return myBest;
+    }
+    boolean futile = false;
+    if (config.futilityPruning() && depth == 1 && board.totalChips(color) < board.geometry.chips) {
+      int score = board.score(ply, 1-color);
+      futile = side ? score + futilityMargin(board, true) <= alpha
+                    : score - futilityMargin(board, false) >= beta;
+    }
+    boolean reduce = config.lateMoveReductions() && depth >= LMR_DEPTH;
+    int searched = 0;
+    if (side) {
+      myBest.setScore(alpha);
+    } else {
+      myBest.setScore(beta);
+    }
+    if (depth == 1 && config.frontierBatching()) {
+      return frontier(search, myBest, side, color, ply, alpha, beta, first, allValidMoves, futile);
+    }
+    try {
+      for (int i = first == null ? 0 : -1; i < allValidMoves.length(); i ++) {
+        Move currentMove;
+        if (i < 0) {
+          currentMove = first;
+        } else {
+          currentMove = (Move) current.item();
+          current = (DListNode) current.next();
+          if (currentMove == first) {
+            continue;
+          }
+        }
+        if (ply == search.splitPly) {
+          alpha = Math.max(alpha, search.sharedAlpha);
+          if (alpha >= beta) {
+            break;
+          }
+        }
+        board.updateBoard(currentMove, color);
+        if (futile && board.chipsToConnect(color) > 0) {
+          board.retrieveBoard(currentMove, color);
+          search.futilityPrunes++;
+          continue;
+        }
+        if (reduce && searched >= LMR_MOVES) {
+          search.reductions++;
+          reply = abTree(search, !side, opponentColor(color), depth-2, ply+1, alpha, beta);
+          if (side ? reply.getScore() > alpha : reply.getScore() < beta) {
+            search.researches++;
+            reply = abTree(search, !side, opponentColor(color), depth-1, ply+1, alpha, beta);
+          }
+        } else {
+          reply = abTree(search, !side, opponentColor(color), depth-1, ply+1, alpha, beta);
+        }
+        searched++;
+        board.retrieveBoard(currentMove, color);
+        if (search.isStopped()) {
+          return myBest;
+        }
+        if (side && reply.getScore() > myBest.getScore()) {
+	  myBest.setMove(currentMove);
+          myBest.setScore((int) reply.getScore());
+          alpha = (int) reply.getScore();
+        } else if(!side && reply.getScore() < myBest.getScore()) {
+	  myBest.setMove(currentMove);
+          myBest.setScore((int)reply.getScore());
+          beta = (int) reply.getScore();
+        }
+        if (alpha >= beta) {
+          break;
+        }
+      }
+    } catch (InvalidNodeException e) {
+      System.err.println(e);
+    }
+    if (!search.isStopped()) {
+      bestMoves.put(board.key(color), encode(myBest.getMove()));
+    }
+    return myBest;
+  }
+
+  /**
+   *  Searches the children of a frontier node, one ply above the leaves, as
+   *  abTree() does, but scores them in batches with the FrontierEvaluator
+   *  of search instead of searching each one. The children are taken in
+   *  the same order and cut off at the same point, so the result and the
+   *  node count are those of abTree(); only the leaves' table probes are
+   *  no longer made. At the split ply of a distributed search, alpha is
+   *  raised to the shared alpha before each child, as in abTree(). The
+   *  first batch holds just the first child, which most often cuts the
+   *  rest off, and each further batch is larger.
+   **/
+  private Best frontier(Search search, Best myBest, boolean side, int color, int ply,
+                        int alpha, int beta, Move first, DList allValidMoves, boolean futile)
+    throws InvalidNodeException {
+    Board board = search.board;
+    if (search.frontier == null) {
+      search.frontier = new FrontierEvaluator(board.geometry);
+    }
+    FrontierEvaluator frontier = search.frontier;
+    DListNode current = (DListNode) allValidMoves.front();
+    int length = allValidMoves.length();
+    int i = first == null ? 0 : -1;
+    int pruned = 0;
+    int limit = 1;
+    boolean loaded = false;
+    while (i < length) {
+      int count = 0;
+      while (count < limit && i < length) {
+        Move m;
+        if (i++ < 0) {
+          m = first;
+        } else {
+          m = (Move) current.item();
+          current = (DListNode) current.next();
+          if (m == first) {
+            continue;
+          }
+        }
+        if (futile && prunable(board, m, color)) {
+          pruned++;
+          continue;
+        }
+        frontier.moves[count] = m;
+        frontier.codes[count] = board.encode(m);
+        frontier.skipped[count++] = pruned;
+        pruned = 0;
+      }
+      limit = Math.min(4 * limit, FrontierEvaluator.BATCH);
+      if (count == 0) {
+        break;
+      }
+      if (search.isStopped()) {
+        return myBest;
+      }
+      if (!loaded) {
+        frontier.load(board);
+        loaded = true;
+      }
+      frontier.score(board, frontier.codes, count, color, ply + 1, frontier.scores);
+      for (int j = 0; j < count; j++) {
+        if (ply == search.splitPly) {
+          alpha = Math.max(alpha, search.sharedAlpha);
+          if (alpha >= beta) {
+            bestMoves.put(board.key(color), encode(myBest.getMove()));
+            return myBest;
+          }
+        }
+        search.futilityPrunes += frontier.skipped[j];
+        search.nodes++;
+        int score = frontier.scores[j];
+        if (side && score > myBest.getScore()) {
+          myBest.setMove(frontier.moves[j]);
+          myBest.setScore(score);
+          alpha = score;
+        } else if (!side && score < myBest.getScore()) {
+          myBest.setMove(frontier.moves[j]);
+          myBest.setScore(score);
+          beta = score;
+        }
+        if (alpha >= beta) {
+          bestMoves.put(board.key(color), encode(myBest.getMove()));
+          return myBest;
+        }
+      }
+    }
+    search.futilityPrunes += pruned;
+    bestMoves.put(board.key(color), encode(myBest.getMove()));
+    return myBest;
+  }
+
+  /**
+   *  Returns true if the futility pruning of abTree() skips the ADD move m
+   *  of color: if after it color has fewer than Geometry.MIN_NETWORK chips
+   *  or does not have chips in both its goal lines, or, if the board keeps
+   *  its Components, has no component with chips in both; see
+   *  Board.chipsToConnect().
+   **/
+  private static boolean prunable(Board board, Move m, int color) {
+    Geometry geometry = board.geometry;
+    int cell = geometry.cell(m.x1, m.y1);
+    int line = geometry.goalOf(cell, color);
+    int lines = board.goalLines(color);
+    if (line >= 0 && !Geometry.intersects(board.chipMask[color], geometry.goal[color][line])) {
+      lines++;
+    }
+    if (board.totalChips(color) + 1 < Geometry.MIN_NETWORK || lines < 2) {
+      return true;
+    }
+    Components components = board.components;
+    return components != null && !components.spans(board, color)
+      && !components.joins(board, cell, color);
+  }
+
+  /**
+   *  Returns the most one ADD move that completes no network can raise
+   *  (for the move of the player searched for) or lower (for the
+   *  opponent's) the score of board under its weights. A move adds at most
+   *  one middle goal chip and one chip to one goal line, which only counts
+   *  for the player searched for, gains at most 8 connections counted
+   *  twice, and blocks at most 4 connections of the other color counted
+   *  twice. With the default weights the margins are 32 and 24.
+   *  @param board is the Board being searched.
+   *  @param side is true for the move of the player searched for.
+   **/
+  static double futilityMargin(Board board, boolean side) {
+    double[] w = board.weights;
+    double connections = Math.abs(w[Weights.CONNECTION]);
+    double opposite = Math.abs(w[Weights.OPPOSITE_CONNECTION]);
+    if (!side) {
+      return 16 * opposite + 8 * connections;
+    }
+    double goal = Math.max(Math.abs(w[Weights.GOAL_SINGLE]), w[Weights.GOAL_CROWD]);
+    return Math.max(w[Weights.GOAL_ENTRY], 0) + Math.max(goal, 0) + 16 * connections
+      + 8 * opposite;
+  }
+
+  /**
+   *  Returns the Move in moves that bestMoves records as the best move of
+   *  board, or null if there is none.
+   *  @param board is the Board being searched.
+   *  @param moves is the DList of all valid moves of board.
+   *  @param color is the color to move.
+   **/
+  private Move hintedMove(Board board, DList moves, int color) throws InvalidNodeException {
+    int hint = bestMoves.get(board.key(color));
+    if (hint == MoveTable.NONE) {
+      return null;
+    }
+    DListNode current = (DListNode) moves.front();
+    for (int i = 0; i < moves.length(); i++) {
+      Move m = (Move) current.item();
+      if (encode(m) == hint) {
+        return m;
+      }
+      current = (DListNode) current.next();
+    }
+    return null;
+  }
+
+  /**
+   *  Records the moves of pv in bestMoves, so that the next search tries the
+   *  line it expects first even if later entries have replaced them.
+   *  @param board is the Board the next search starts from.
+   *  @param color is the color to move on board.
+   **/
+  private synchronized void seedPrincipalVariation(Board board, int color) {
+    int toMove = color;
+    int i = 0;
+    for (; i < pvLength; i++) {
+      Move m = decode(pv[i]);
+      if (!board.isValidMove(m, toMove)) {
+        break;
+      }
+      bestMoves.put(board.key(toMove), pv[i]);
+      board.updateBoard(m, toMove);
+      toMove = 1 - toMove;
+    }
+    while (i > 0) {
+      toMove = 1 - toMove;
+      board.retrieveBoard(decode(pv[--i]), toMove);
+    }
+  }
+
+  /**
+   *  Returns the principal variation of the search that chose best by
+   *  following bestMoves from board.
+   *  @param board is the Board the search started from.
+   *  @param color is the color to move on board.
+   *  @param best is the move chosen at the root.
+   *  @param depth is the depth of the search.
+   **/
+  private int[] savePrincipalVariation(Board board, int color, Move best, int depth) {
+    int[] line = new int[depth];
+    int length = 0;
+    int toMove = color;
+    Move m = best;
+    while (length < depth && m != null && board.isValidMove(m, toMove)) {
+      line[length++] = encode(m);
+      board.updateBoard(m, toMove);
+      toMove = 1 - toMove;
+      int next = length < depth ? bestMoves.get(board.key(toMove)) : MoveTable.NONE;
+      m = next == MoveTable.NONE ? null : decode(next);
+    }
+    for (int i = length - 1; i >= 0; i--) {
+      toMove = 1 - toMove;
+      board.retrieveBoard(decode(line[i]), toMove);
+    }
+    int[] result = new int[length];
+    System.arraycopy(line, 0, result, 0, length);
+    return result;
+  }
+
+  /**
+   *  Drops the first move of pv if it is m; otherwise the game has left the
+   *  principal variation and pv is cleared.
+   *  @param m is the move just played.
+   **/
+  private void reroot(Move m) {
+    if (pvLength > 0 && pv[0] == encode(m)) {
+      pvLength--;
+      int[] rest = new int[pvLength];
+      System.arraycopy(pv, 1, rest, 0, pvLength);
+      pv = rest;
+    } else {
+      pvLength = 0;
+    }
+  }
+
+  /**
+   *  Returns the color of the other side.
+   *  @param color is either 0 (black) or 1 (white).
+   **/
+  private int opponentColor(int color) {
+    if (color == Board.BLACK) {
+      return Board.WHITE;
+    }
+    return Board.BLACK;
+  }
+}
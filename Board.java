@@ -1,6 +1,11 @@
 /* Board.java */
 package player;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+
 
 /**
  *  Implements the representation of a game-board.
@@ -12,46 +17,80 @@ public class Board {
 	 *  BLACK references the integer representation of color black
 	 *  WHITE references the integer representation of color white
 	 *  EMPTY references the integer representation of an empty cell
-	 *  DIMENSION references the dimension of the game-board
+	 *  DIMENSION references the dimension of the standard game-board
+	 *  geometry references the tables of this board's size, and dimension
+	 *  its number of cells on a side
 	 *  board references a game-board, which is essentially a 2-D array
 	 *  color references the color of the chip which can be black or white
 	 *  numofBlacks references the number of black chips currently on board
 	 *  numofWhites references the number of white chips currently on board
+	 *  hash references the XOR of the Zobrist keys (see Geometry) of all
+	 *  chips currently on board
+	 *  chipMask holds a cell mask (see Geometry) of the chips of each color,
+	 *  and visited the mask of the chips on the path findNetwork() follows
+	 *  WEIGHTS references the weights read at startup (see Weights), and
+	 *  weights the weights score() uses on this board
+	 *  accumulator references the first layer of the Network score() uses
+	 *  on this board instead of the weights, kept up to date by setColor(),
+	 *  or null, and components the connected components of the chips, also
+	 *  kept up to date by setColor(), or null
+	 *  moveCalls, networkCalls and scoreCalls count the calls of
+	 *  allValidMoves(), hasNetwork() and score(), to sample them for
+	 *  Profiling events
 	 **/
 	 
 	final static int BLACK = 0;
 	final static int WHITE = 1;
 	final static int EMPTY = 2;
 	final static int DIMENSION = 8;
+	final Geometry geometry;
+	final int dimension;
 	int[][] board;
     int color;
     int numofBlacks;
     int numofWhites;
-	
+    long hash;
+	long[][] chipMask;
+	private long[] visited;
+	final static double[] WEIGHTS = Weights.startup();
+	double[] weights = WEIGHTS;
+	Accumulator accumulator;
+	Components components;
+	private int moveCalls;
+	private int networkCalls;
+	private int scoreCalls;
+
     /**
      *  Creates an empty board with a certain dimension (8 x 8)
      **/ 
 	Board () {
-        board = new int[DIMENSION][DIMENSION];
-        for (int i=0; i < DIMENSION; i++) {
-            for (int j=0; j <DIMENSION; j++) {
-            	board[i][j] = EMPTY;
-            }
-        }
+        this(BLACK);
 	}
 
 	/**
-     *  Creates an empty board with the given color
+     *  Creates an empty standard board with the given color
      *  @param color is the color the board is assigned to (black or white)
      **/
     Board (int color) {
+        this(color, DIMENSION);
+    }
+
+	/**
+     *  Creates an empty board of the given size with the given color
+     *  @param color is the color the board is assigned to (black or white)
+     *  @param dimension is the number of cells on a side; see Geometry
+     **/
+    Board (int color, int dimension) {
        this.color = color;
-        board = new int[DIMENSION][DIMENSION];
-        for(int i=0; i < DIMENSION; i++){
-            for(int j=0; j <DIMENSION; j++){
+        geometry = Geometry.of(dimension);
+        this.dimension = dimension;
+        board = new int[dimension][dimension];
+        for(int i=0; i < dimension; i++){
+            for(int j=0; j <dimension; j++){
             	board[i][j] = EMPTY;
             }
         }
+        chipMask = new long[2][geometry.words];
     }
     
     /**
@@ -61,7 +100,47 @@ public class Board {
      *  @param value is the status assigned to a certain cell
      **/
     void setColor (int x, int y, int value) {
+         int cell = x * dimension + y;
+         int old = board[x][y];
+         if (accumulator != null) {
+             accumulator.remove(this, cell);
+         }
+         if (board[x][y] != EMPTY) {
+             hash ^= geometry.zobrist[board[x][y]][cell];
+             Geometry.clear(chipMask[board[x][y]], cell);
+         }
+         if (value != EMPTY) {
+             hash ^= geometry.zobrist[value][cell];
+             Geometry.set(chipMask[value], cell);
+         }
          board[x][y] = value;
+         if (accumulator != null) {
+             accumulator.add(this, cell);
+         }
+         if (components != null) {
+             components.changed(this, cell, old);
+         }
+    }
+
+    /**
+     *  Makes score() use network instead of the weights on this board, or
+     *  the weights again if network is null
+     *  @param network is a Network for boards of this size, or null
+     **/
+    void setNetwork(Network network) {
+        accumulator = network == null ? null : new Accumulator(network, this);
+    }
+
+    /**
+     *  Makes this board keep the connected components of its chips, so
+     *  hasNetwork() and chipsToConnect() can rule networks out without
+     *  following any path, or stop keeping them. The components are exact
+     *  when they are made and grow coarser as moves are made (see
+     *  Components), so a search makes them again at its root
+     *  @param on is true to keep the components
+     **/
+    void setComponents(boolean on) {
+        components = on ? new Components(this) : null;
     }
 	
     /**
@@ -80,6 +159,12 @@ public class Board {
      *  @param color is the color status (black or white) of the chip being moved
      **/
     void updateBoard(Move m, int color) {
+    	if (accumulator != null) {
+    		accumulator.push();
+    	}
+    	if (components != null) {
+    		components.push();
+    	}
     	if(m.moveKind == Move.ADD) {
     		setColor(m.x1, m.y1, color);
 			addNumofColor(color);
@@ -95,13 +180,23 @@ public class Board {
      *  @param color is the color status (black or white) of the chip being moved
      **/
     void retrieveBoard(Move m, int color) {
+    	Accumulator a = accumulator;
+    	Components c = components;
+    	if (a != null && a.pop()) {
+    		accumulator = null;
+    	}
+    	if (c != null && c.pop()) {
+    		components = null;
+    	}
     	if (m.moveKind == Move.ADD) {
     		setColor(m.x1, m.y1, EMPTY);
 			subtractNumofColor(color);
 		} else if (m.moveKind == Move.STEP) {
 			setColor(m.x2, m.y2, color);
 			setColor(m.x1, m.y1, EMPTY);
-		}   	  
+		}
+		accumulator = a;
+		components = c;
 	}
 
     /**
@@ -155,90 +250,63 @@ public class Board {
 	 * Determines whether the move by the chip of a certain color is valid
 	 * If m is a legal move for the given color, return true
 	 * If m is not a legal move for the given color, return false
+	 * The board is only read, so many threads may validate moves on one
+	 * board at once as long as none of them changes it
 	 * @param m is an assigned move
 	 * @param color is the color of the chip being moved
 	 * @return whether the move is valid
 	 **/
-
-
 	boolean isValidMove(Move m, int color) {
+		if (m.moveKind == Move.QUIT) {
+			return true;
+		}
+		int from = -1;
 		if (m.moveKind == Move.STEP) {
-            if (getColor (m.x1, m.y1)!= EMPTY) {
-            	return false;
-            }
-            if(!isNotGoal(m,1-color)) {
-                return false;
-            }
-            if(!isValidBound(m)) {        
-                return false;
-            }
-            DList list = new DList();
-            Coordinate coord = new Coordinate(m.x1, m.y1);
-            setColor(m.x2,m.y2,EMPTY);
-            DList firstList = neighborList(coord,color,list);
-            if(firstList.length()>=2) {
-                setColor(m.x2,m.y2,color);
-                return false;
-            } else if(firstList.length() == 1 ) {
-            	try {
-            		Coordinate item = (Coordinate) firstList.front().item();
-                    DList secondList = neighborList(item,color,list);
-                    setColor(m.x2,m.y2,color);
-                    if(secondList.length()>=2) {
-                    	setColor(m.x2,m.y2,color);
-                    	return false;
-                    }
-                } 
-            	catch (InvalidNodeException e) {
-            	}   
-            }
-            setColor(m.x2,m.y2,color);
-            return true;
-        } else if(m.moveKind == Move.ADD) { 
-            if (totalChips(color)>=10) {   
-                return false;
-            }
-            if(!isValidBound(m)) {        
-                return false;
-            }
-            if (getColor(m.x1, m.y1)!= EMPTY) { 
-            	return false;
-            }
-            if (!isNotGoal(m,1-color)) {
-                return false;
-            }
-            DList list = new DList();
-            Coordinate coord = new Coordinate(m.x1, m.y1);
-            DList firstList = neighborList(coord,color,list);
-            if(firstList.length()>=2) {
-                return false;
-            } else if (firstList.length() == 1){
-                try {
-                	Coordinate item = (Coordinate) firstList.front().item();
-                    DList secondList = neighborList(item,color,list);
-                    if(secondList.length()>=2) {
-                    	return false;
-                    }        
-                } 
-                catch (InvalidNodeException e) {
-                    e.printStackTrace();
-                }
-            }
-       }
-       return true;
-    }	
-	
+			if (totalChips(color) < geometry.chips) {
+				return false;
+			}
+			if (m.x2<0 || m.x2>dimension-1 || m.y2<0 || m.y2>dimension-1
+			    || board[m.x2][m.y2] != color) {
+				return false;
+			}
+			from = m.x2 * dimension + m.y2;
+		} else if (m.moveKind != Move.ADD || totalChips(color) >= geometry.chips) {
+			return false;
+		}
+		if (!isValidBound(m) || board[m.x1][m.y1] != EMPTY || !isNotGoal(m, 1-color)) {
+			return false;
+		}
+		return !formsCluster(m.x1 * dimension + m.y1, from, color);
+	}
+
+	/**
+	 * Returns the Board that results from the move by the chip of a certain
+	 * color, or null if the move is not valid. This board is only read; see
+	 * isValidMove()
+	 * @param m is an assigned move
+	 * @param color is the color of the chip being moved
+	 * @return a new Board with the move made, or null
+	 **/
+	Board resultOf(Move m, int color) {
+		if (!isValidMove(m, color)) {
+			return null;
+		}
+		Board result = copyBoard();
+		result.updateBoard(m, color);
+		return result;
+	}
+
 	/**
 	 * Determines whether the move is within the boundary of the game-board
 	 * @param m is an assigned move
 	 * @return whether the move is within the boundary of the game-board
 	 **/
 	private boolean isValidBound(Move m) {
-		if(m.x1<0 || m.x1>DIMENSION-1 || m.y1<0 || m.y1>DIMENSION-1 ) {
+		if(m.x1<0 || m.x1>dimension-1 || m.y1<0 || m.y1>dimension-1 ) {
 			return false;
 		}
-		if(m.x1==0 || m.x1 == DIMENSION-1) {
-			if(m.y1==0 || m.y1==DIMENSION-1) {
+		if(m.x1==0 || m.x1 == dimension-1) {
+			if(m.y1==0 || m.y1==dimension-1) {
 				return false;
 			}
 		} 
@@ -253,11 +321,11 @@ public class Board {
 	 **/
 	private boolean isNotGoal(Move m, int color) {
 		if(color == BLACK) {		
-			if(m.y1 == 0 || m.y1 == DIMENSION-1) 	
+			if(m.y1 == 0 || m.y1 == dimension-1) 	
 				return false;
 			}
 		if(color == WHITE) {			
-			 if(m.x1 == 0 || m.x1 == DIMENSION-1) {
+			 if(m.x1 == 0 || m.x1 == dimension-1) {
 				 return false;
 			 }
 		}
@@ -265,25 +333,36 @@ public class Board {
 	}
 	
 	/**
-	 * Searches around the 8 cells around the given cell/chip to see if there is any chip of the same color
-	 * @param coord is the coordinate of the give chip
-	 * @param color is the color of the chip being searched
-	 * @return a DList containing all the chips of the same color around a given cell
+	 * Determines whether a chip of the given color on the empty cell to, with
+	 * the cell from (-1 for none) emptied, would be part of three or more
+	 * adjacent chips of that color
+	 * @param to is the cell the chip is placed on
+	 * @param from is the cell the chip leaves, or -1
+	 * @param color is the color of the chip
+	 * @return whether the chip would form a cluster
 	 **/
-	private DList neighborList(Coordinate coord, int color, DList list){
-		int x = coord.getX();
-		int y = coord.getY();
-		for(int i=x-1; i<x+2; i++) {
-			for(int j=y-1; j<y+2; j++) {
-				if(!(i==x && j==y) && i>=0 && i<=7 && j>=0 && j<=7) {	
-					if(getColor(i, j) == color) {
-						Coordinate coor = new Coordinate(i,j);
-						list.insertBack(coor);
-					}
+	private boolean formsCluster(int to, int from, int color) {
+		int[] neighbors = geometry.neighbors;
+		long[] mine = chipMask[color];
+		int found = -1;
+		for (int k = to * 9; neighbors[k] >= 0; k++) {
+			int cell = neighbors[k];
+			if (cell != from && Geometry.has(mine, cell)) {
+				if (found >= 0) {
+					return true;
 				}
+				found = cell;
 			}
-        }
-		return list;
+		}
+		if (found >= 0) {
+			for (int k = found * 9; neighbors[k] >= 0; k++) {
+				int cell = neighbors[k];
+				if (cell != from && Geometry.has(mine, cell)) {
+					return true;
+				}
+			}
+		}
+		return false;
 	}
         
 	/**
@@ -292,8 +371,11 @@ public class Board {
 	 * @return whether the current board is the same given board; true if yes, false if no
 	 **/
         boolean isEqual(Board b) {
-		for(int i=0;i<DIMENSION; i++) {
-			for(int j =0; j<DIMENSION; j++) {
+		if (b.dimension != dimension) {
+			return false;
+		}
+		for(int i=0;i<dimension; i++) {
+			for(int j =0; j<dimension; j++) {
 				if(this.board[i][j] != b.board[i][j]) {
 					return false;
 				}
@@ -307,101 +389,54 @@ public class Board {
 	 * @return a board which is a new copy of the current board
 	 **/
 	Board copyBoard() {
-		Board newBoard = new Board();
-		for (int i=0;i<DIMENSION; i++) {
-			for (int j =0; j<DIMENSION; j++) {
-				this.board[i][j] = newBoard.board[i][j];
+		Board newBoard = new Board(color, dimension);
+		for (int i=0;i<dimension; i++) {
+			for (int j =0; j<dimension; j++) {
+				newBoard.board[i][j] = this.board[i][j];
 			}
 		}
+		newBoard.numofBlacks = numofBlacks;
+		newBoard.numofWhites = numofWhites;
+		newBoard.hash = hash;
+		newBoard.chipMask[BLACK] = chipMask[BLACK].clone();
+		newBoard.chipMask[WHITE] = chipMask[WHITE].clone();
+		newBoard.weights = weights;
+		newBoard.accumulator = accumulator == null ? null : accumulator.copy();
+		newBoard.components = components == null ? null : new Components(newBoard);
 		return newBoard;
 	}
 	 
 	
 	  /**
-	   *  Returns a DList that stores Chip objects that represent all the chips 
-	   *  connected to Chip c on this Board. If c has no connection, return an
-	   *  empty DList.
-	   *  @param c is the Chip to which connections are searched.
+	   *  Returns the number of connections of the chips of the given color:
+	   *  for each chip, the directions in which the nearest chip is one of
+	   *  its own, so each pair of connected chips counts twice. The rays of
+	   *  Geometry are scanned against the chip masks.
+	   *  @param color is the color whose connections are counted.
 	   **/
-	   DList connections(Chip c) {
-	     int color = c.getColor();
-	     int x = c.getX();
-	     int y = c.getY();
-	     DList connected = new DList();
-	     for (int i = x - 1; i >= 0; i--) {
-	       if (board[i][y] == color) {
-		 Chip left = new Chip(color, i, y);
-		 connected.insertBack(left);
-		 break;
-	       } else if (board[i][y] == 1 - color) {
-		 break;
-	       }
-	     }
-	     for (int i = x + 1; i < DIMENSION; i++) {
-	       if (board[i][y] == color) {
-		 Chip right = new Chip(color, i, y);
-		 connected.insertBack(right);
-		 break;
-	       } else if (board[i][y] == 1 - color) {
-		 break;
-	       }
-	     }
-	     for (int i = y - 1; i >= 0; i--) {
-	       if (board[x][i] == color) {
-	         Chip up = new Chip(color, x, i);
-		 connected.insertBack(up);
-		 break;
-	       } else if (board[x][i] == 1 - color) {
-		 break;
-	       }
-	     }
-	     for (int i = y + 1; i < DIMENSION; i++) {
-	       if (board[x][i] == color) {
-	         Chip down = new Chip(color, x, i);
-		 connected.insertBack(down);
-		 break;
-	       } else if (board[x][i] == 1 - color) {
-		 break;
-	       }
-	     }
-	     for (int i = 1; x - i >= 0 && y - i >= 0; i++) {
-	       if (board[x-i][y-i] == color) {
-		 Chip upperleft = new Chip(color, x-i, y-i);
-		 connected.insertBack(upperleft);
-		 break;
-	       } else if (board[x-i][y-i] == 1 - color) {
-		 break;
-	       }
-	     }
-	     for (int i = 1; x + i < DIMENSION && y - i >= 0; i++) {
-	       if (board[x+i][y-i] == color) {
-		 Chip upperright = new Chip(color, x+i, y-i);
-		 connected.insertBack(upperright);
-		 break;
-	       } else if (board[x+i][y-i] == 1 - color) {
-		 break;
-	       }
-	     }
-	     for (int i = 1; x - i >= 0 && y + i < DIMENSION; i++) {
-	       if (board[x-i][y+i] == color) {
-		 Chip lowerleft = new Chip(color, x-i, y+i);
-		 connected.insertBack(lowerleft);
-		 break;
-	       } else if (board[x-i][y+i] == 1 - color) {
-		 break;
-	       }
-	     }
-	     for (int i = 1; x + i < DIMENSION && y + i < DIMENSION; i++) {
-	       if (board[x+i][y+i] == color) {
-		 Chip lowerright = new Chip(color, x+i, y+i);
-		 connected.insertBack(lowerright);
-		 break;
-	       } else if (board[x+i][y+i] == 1 - color) {
-		 break;
-	       }
-	     }
-	     return connected;
-	   }
+	  int connectionCount(int color) {
+	    long[] mine = chipMask[color];
+	    long[] other = chipMask[1 - color];
+	    int[] ray = geometry.ray;
+	    int rayLength = geometry.rayLength;
+	    int count = 0;
+	    for (int w = 0; w < mine.length; w++) {
+	      for (long bits = mine[w]; bits != 0; bits &= bits - 1) {
+		int cell = w << 6 | Long.numberOfTrailingZeros(bits);
+		for (int k = cell * 8 * rayLength, end = k + 8 * rayLength; k < end; k += rayLength) {
+		  for (int i = k, stop = k + rayLength; i < stop && ray[i] >= 0; i++) {
+		    if (Geometry.has(mine, ray[i])) {
+		      count++;
+		      break;
+		    } else if (Geometry.has(other, ray[i])) {
+		      break;
+		    }
+		  }
+		}
+	      }
+	    }
+	    return count;
+	  }
 
 	  /**
 	   *  Return a decimal between -1 and 1 that indicates the likelihood of winning by 
@@ -415,6 +450,23 @@ public class Board {
 	   *  color that made the last move.
 	   **/
 	  int score(int numOfMoves, int previousPlayer) throws InvalidNodeException {
+	    if ((++scoreCalls & Profiling.SAMPLE_MASK) == 0 && Profiling.started()) {
+	      Profiling.Evaluation event = new Profiling.Evaluation();
+	      if (event.isEnabled()) {
+		event.begin();
+		int score = evaluate(numOfMoves, previousPlayer);
+		event.score = score;
+		event.commit();
+		return score;
+	      }
+	    }
+	    return evaluate(numOfMoves, previousPlayer);
+	  }
+
+	  /**
+	   *  Computes score() without sampling it.
+	   **/
+	  private int evaluate(int numOfMoves, int previousPlayer) throws InvalidNodeException {
 	    int score = 0;
 	    boolean ourNetwork = hasNetwork(color);
 	    boolean oppoNetwork = hasNetwork(1-color);
@@ -429,53 +481,18 @@ public class Board {
 	    } else if (oppoNetwork) {
 	      return -100 + (numOfMoves - 2) / 2;
 	    }
-	    if (color == BLACK) {
-	      if (board[3][7] == BLACK || board[4][7] == BLACK) {
-		score = score + 4;
-	      } 
-	      if (search("y", 7, BLACK) == 1) {
-		score = score + 4;
-	      } else if (search("y", 7, BLACK) > 2) {
-		score = score - 20;
-	      }
-	      if (board[3][0] == BLACK || board[4][0] == BLACK) {
-		score = score + 4;
-	      }
-	      if (search("y", 0, BLACK) == 1) {
-		score = score + 4;
-	      } else if (search("y", 0, BLACK) > 2) {
-		score = score - 20;
-	      }
-	    } else {
-	      if (board[7][3] == WHITE || board[7][4] == WHITE) {
-		score = score + 4;
-	      }
-	      if (search("x", 7, WHITE) == 1) {
-		score = score + 4;
-	      } else if (search("x", 7, WHITE) > 2) {
-		score = score - 20;
-	      }
-	      if (board[0][3] == WHITE || board[0][4] == WHITE) {
-		score = score + 4;
-	      }
-	      if (search("x", 0, WHITE) == 1) {
-		score = score + 4;
-	      } else if (search("x", 0, WHITE) > 2) {
-		score = score - 20;
-	      }
+	    if (accumulator != null) {
+	      score = accumulator.score(1 - previousPlayer);
+	      score = previousPlayer == color ? -score : score;
+	      return Math.max(-100, Math.min(100, score));
 	    }
-	    int connection = 0;
-	    int oppositeconnection = 0;
-	    for (int i = 0; i < DIMENSION; i++) {
-	      for (int j = 0; j< DIMENSION; j++) {
-		if (board[i][j] == color) {
-		  connection+=connections(new Chip(color, i, j)).length();
-		} else if (board[i][j] == 1 - color) {
-		  oppositeconnection+=connections(new Chip(1-color, i, j)).length();
-		}
-	      }
+	    int[] features = new int[Weights.SIZE];
+	    features(features);
+	    double sum = 0;
+	    for (int i = 0; i < Weights.SIZE; i++) {
+	      sum += weights[i] * features[i];
 	    }
-	    score+= connection - oppositeconnection; 
+	    score = (int) Math.round(sum);
 	    if (score > 100) {
 	      return 100;
 	    } else if (score < -100) {
@@ -485,6 +502,35 @@ public class Board {
 	    }
 	  }
 		  
+	  /**
+	   *  Computes the features of this Board that score() weighs, from the
+	   *  point of view of its color, into features; see Weights for their
+	   *  meaning.
+	   *  @param features holds Weights.SIZE entries.
+	   **/
+	  void features(int[] features) {
+	    String direction = color == BLACK ? "y" : "x";
+	    for (int i = 0; i < Weights.SIZE; i++) {
+	      features[i] = 0;
+	    }
+	    int low = dimension / 2 - 1;
+	    for (int line = 0; line < dimension; line += dimension - 1) {
+	      boolean middle = color == BLACK ? board[low][line] == BLACK || board[low + 1][line] == BLACK
+	                                      : board[line][low] == WHITE || board[line][low + 1] == WHITE;
+	      if (middle) {
+	        features[Weights.GOAL_ENTRY]++;
+	      }
+	      int chips = search(direction, line, color);
+	      if (chips == 1) {
+	        features[Weights.GOAL_SINGLE]++;
+	      } else if (chips > 2) {
+	        features[Weights.GOAL_CROWD]++;
+	      }
+	    }
+	    features[Weights.CONNECTION] = connectionCount(color);
+	    features[Weights.OPPOSITE_CONNECTION] = connectionCount(1 - color);
+	  }
+
 	  /**
 	   *  Search through the specified column or row and return the number
 	   *  of chips in that column or row with the given color.
@@ -498,13 +544,13 @@ public class Board {
 	  private int search(String direction, int coord, int side) {
 	    int counter = 0;
 	    if (direction == "x") {
-	      for (int i = 0; i < DIMENSION; i++) {
+	      for (int i = 0; i < dimension; i++) {
 		if (board[coord][i] == side) {
 		  counter++;
 		}
 	      }
 	    } else {
-	      for (int i = 0; i < DIMENSION; i++) {
+	      for (int i = 0; i < dimension; i++) {
 		if (board[i][coord] == side) {
 		  counter++;
 		}
@@ -520,239 +566,350 @@ public class Board {
 	   *  @param color is the color that is to make the next move.
 	   **/
 	  DList allValidMoves(int color) {
-	    DList allMoves = new DList();
-	    try {
-	      if (totalChips(color) >= 10) {
-		DList emptyList = new DList();
-		DList chipList = new DList();
-		for(int i=0; i<Board.DIMENSION; i++) {
-		  for(int j=0; j<Board.DIMENSION; j++) {
-		    Coordinate currCoord = new Coordinate(i,j);
-		    if(getColor(i,j) == EMPTY) {
-		      emptyList.insertBack(currCoord);
-		    } else if(getColor(i,j) == color){
-	              chipList.insertBack(currCoord);
-		    }
-		  }
-		}
-	        DListNode chipNode = (DListNode) chipList.front();
-		for(int i=0; i<chipList.length(); i++) {
-		  DListNode emptyNode = (DListNode) emptyList.front();
-		  for(int j=0; j<emptyList.length(); j++) {
-		    Coordinate emptyCoord = (Coordinate) emptyNode.item();
-		    Coordinate chipCoord = (Coordinate) chipNode.item();
-		    Move stepMove = new Move(emptyCoord.getX(), emptyCoord.getY(), chipCoord.getX(), chipCoord.getY());
-	            setColor(stepMove.x2, stepMove.y2, EMPTY);
-		    if(isValidMove(stepMove, color)) {
-	              allMoves.insertBack(stepMove);
-		    }
-		    setColor(stepMove.x2, stepMove.y2, color);
-		    emptyNode = (DListNode) emptyNode.next();
-		  }
-		  chipNode = (DListNode) chipNode.next();
-		}
-	      } else  {
-		for(int i=0; i<DIMENSION; i++) {
-		  for(int j=0; j<DIMENSION; j++) {
-		    if(getColor(i,j) == EMPTY) {
-	              Move addMove = new Move(i,j);
-		      if(isValidMove(addMove, color)) {
-		        allMoves.insertBack(addMove);
-		      }
-		    }
-		  }
-		}
+	    if ((++moveCalls & Profiling.SAMPLE_MASK) == 0 && Profiling.started()) {
+	      Profiling.MoveGeneration event = new Profiling.MoveGeneration();
+	      if (event.isEnabled()) {
+		event.begin();
+		DList moves = generateMoves(color);
+		event.color = Profiling.colorName(color);
+		event.moves = moves.length();
+		event.commit();
+		return moves;
 	      }
-	    } catch (InvalidNodeException e) {
-	      System.out.println(e + "in move generations");
 	    }
-	    return allMoves;
+	    return generateMoves(color);
 	  }
 
 	  /**
-	   *  Returns true if c is in the end goal area. Otherwise, returns false.
-	   *  @param c is the Chip whose position is to be determined.
+	   *  Computes allValidMoves() without sampling it.
 	   **/
-	  boolean inGoal(Chip c) {
-	    if (c.getColor() == WHITE) {
-	      if (c.getX() == DIMENSION -1) {
-		return true;
-	      } 
-	    } 
-	    if (c.getColor() == BLACK) {
-	      if (c.getY() == DIMENSION -1) {
-		return true;
-	      }
-	    }
-	    return false;
-	  }
-
-	  /**
-	   *  Returns true if c is in the start goal area. Otherwise, returns false.
-	   *  @param c is the Chip whose position is to be determined.
-	   **/
-	  boolean inStartGoal(Chip c) {
-	    if (c.getColor() == WHITE) {
-	      if (c.getX() == 0) {
-		return true;
-	      } 
-	    } 
-	    if (c.getColor() == BLACK) {
-	      if (c.getY() == 0) {
-		return true;
+	  private DList generateMoves(int color) {
+	    DList allMoves = new DList();
+	    if (totalChips(color) >= geometry.chips) {
+	      for (int i = 0; i < dimension; i++) {
+		for (int j = 0; j < dimension; j++) {
+		  if (board[i][j] != color) {
+		    continue;
+		  }
+		  for (int x = 0; x < dimension; x++) {
+		    for (int y = 0; y < dimension; y++) {
+		      if (board[x][y] == EMPTY) {
+		        Move stepMove = new Move(x, y, i, j);
+		        if (isValidMove(stepMove, color)) {
+		          allMoves.insertBack(stepMove);
+		        }
+		      }
+		    }
+		  }
+		}
 	      }
-	    }
-	    return false;
-	  }
-		  
-	  /** 
-	   *  Returns the slope of the segment formed by Chip a and Chip b.
-	   *  If the slope is infinite, return 10.
-	   *  @param a is the Chip that forms one end of the segment.
-	   *  @param b is the Chip that forms the other end of the segment.
-	   **/
-	  double slope(Chip a, Chip b) {
-	    if (a.getX() == b.getX()) {
-	      return 10;
-	    } else {
-	      double up = b.getY() - a.getY();
-	      double down = b.getX() - a.getX();
-	      return up/down;
-	    }
-	  }
-	      
-	  /**
-	   *  Returns all networks in a DList regardless of length starting from Chip start.
-	   *  @param start is the starting Chip of the network.
-	   *  @param depth records depth of the method in a recursive call.
-	   **/
-	  DList allNetwork(Chip start, int depth) throws InvalidNodeException {
-	    DList set = new DList();
-	    if (inGoal(start)) {
-	      DList network = new DList();
-	      network.insertFront(start);
-	      set.insertFront(network);
-	      return set;
-	    } else if (depth > 10) {
-	      return set;
-	    } else if (connections(start).length() == 0) {
-	      return set;
 	    } else {
-	      DListNode current = (DListNode) connections(start).front();
-	      int length =  connections(start).length();    
-	      for (int i = 0; i < length; i++) {
-		if (!inStartGoal((Chip)current.item())) {
-		  DList rest = allNetwork((Chip) current.item(), depth+1);
-		  if (rest.length() > 0) {
-		    DListNode currentNetworkNode = (DListNode) rest.front();
-		    for (int j = 0; j < rest.length(); j++) {
-		      DList currentNetwork = (DList) currentNetworkNode.item();
-		      currentNetwork.insertFront(start);
-		      if (isTurnCorner(currentNetwork) && noSameChip(currentNetwork)) {
-		        set.insertFront(currentNetwork);
-		      }
-		      currentNetworkNode = (DListNode) currentNetworkNode.next();
+	      for (int i = 0; i < dimension; i++) {
+		for (int j = 0; j < dimension; j++) {
+		  if (board[i][j] == EMPTY) {
+		    Move addMove = new Move(i, j);
+		    if (isValidMove(addMove, color)) {
+		      allMoves.insertBack(addMove);
 		    }
 		  }
-                }
-		current = (DListNode) current.next();
+		}
 	      }
-	      return set;
 	    }
-	  }  
-	  
-	    /**
-	     *  Searches if the length of the winning network is larger or equal to 6
-	     *  @param dlist is the possible winning network
-	     *  @return true if the network has enough length and false if not
-	     **/  
-	  boolean lengthMatch(DList dlist) throws InvalidNodeException {
-		  if (dlist.length() > 0) {
-			  DListNode currentNode = (DListNode) dlist.front();
-			  for (int i = 0; i < dlist.length(); i++) {
-				  DList currentList = (DList) currentNode.item();
-				  if (currentList.length() >= 6) {
-					  return true;
-				  } 
-			  currentNode = (DListNode) currentNode.next();
-			  } 
-		  } 	
-		 return false;
+	    return allMoves;
 	  }
-	  
+
 	    /**
 	     *  Searches if a give color has a winning network
 	     *  @param color is the color being checked
 	     *  @return true if the color has a network and false if it doesn't
 	     **/
 	  boolean hasNetwork(int color) throws InvalidNodeException {
-		  if (color == WHITE) {
-			  for (int i = 0; i < DIMENSION; i++) {
-				  if (board [0][i] == color) {
-					  Chip start = new Chip (color,0,i);
-					  return lengthMatch(allNetwork(start, 1));
-				  }
+		  if ((++networkCalls & Profiling.SAMPLE_MASK) == 0 && Profiling.started()) {
+			  Profiling.NetworkCheck event = new Profiling.NetworkCheck();
+			  if (event.isEnabled()) {
+				  event.begin();
+				  boolean found = findNetwork(color);
+				  event.color = Profiling.colorName(color);
+				  event.found = found;
+				  event.commit();
+				  return found;
 			  }
 		  }
-		  if (color == BLACK) {
-			  for (int i = 0; i < DIMENSION; i++) {
-				  if (board [i][0] == color) {
-					  Chip start = new Chip (color,i,0);
-					  return lengthMatch(allNetwork(start,1));
+		  return findNetwork(color);
+	  }
+
+	    /**
+	     *  Computes hasNetwork() without sampling it. A network is a path of
+	     *  at least Geometry.MIN_NETWORK chips of color from a chip in its
+	     *  start goal line to a chip in its end goal line, each chip seeing
+	     *  the next along a ray of Geometry, with no other goal chip, no chip
+	     *  twice and no two steps in the same direction in a row. Colors
+	     *  without chips in both goal lines or with too few chips are ruled
+	     *  out with the chip masks before any path is followed, and if the
+	     *  board keeps its components, so are colors none of whose
+	     *  components has chips in both goal lines.
+	     **/
+	  private boolean findNetwork(int color) {
+		  long[] mine = chipMask[color];
+		  long[][] goal = geometry.goal[color];
+		  if (!Geometry.intersects(mine, goal[0]) || !Geometry.intersects(mine, goal[1])
+		      || Geometry.count(mine) < Geometry.MIN_NETWORK
+		      || components != null && !components.spans(this, color)) {
+			  return false;
+		  }
+		  if (visited == null) {
+			  visited = new long[geometry.words];
+		  }
+		  Arrays.fill(visited, 0);
+		  for (int w = 0; w < mine.length; w++) {
+			  for (long bits = mine[w] & goal[0][w]; bits != 0; bits &= bits - 1) {
+				  int cell = w << 6 | Long.numberOfTrailingZeros(bits);
+				  Geometry.set(visited, cell);
+				  if (extend(cell, color, -1, 1)) {
+					  return true;
 				  }
+				  Geometry.clear(visited, cell);
 			  }
 		  }
-		  return false;	   
+		  return false;
 	  }
-		
+
 	    /**
-	     *  Searches if a network has passed through a chip without turning a corner
-	     *  @param list is a possible network
-	     *  @return true if the network has turned corner when passing through a chip
-	     *  false if it hasn't
-	     **/	  
-	  private  boolean isTurnCorner(DList list) throws InvalidNodeException {
-		  if (list.length() < 3) {
-			  return true;
-		  } else {
-			  Chip currChip = (Chip) list.front().item();
-			  Chip fatherChip = (Chip) list.front().next().item();
-			  Chip grandFatherChip = (Chip) list.front().next().next().item();
-			  if (slope(currChip, fatherChip) == slope(fatherChip, grandFatherChip)) {	
-				  return false;
+	     *  Extends a path of length chips of color ending at cell by one chip
+	     *  in every direction but lastDir, and returns true if it can be
+	     *  completed to a network.
+	     **/
+	  private boolean extend(int cell, int color, int lastDir, int length) {
+		  long[] mine = chipMask[color];
+		  long[] other = chipMask[1 - color];
+		  int[] ray = geometry.ray;
+		  int rayLength = geometry.rayLength;
+		  for (int dir = 0; dir < 8; dir++) {
+			  if (dir == lastDir) {
+				  continue;
 			  }
-			  else { 
-				  return true;
+			  int next = -1;
+			  for (int k = (cell * 8 + dir) * rayLength, end = k + rayLength; k < end && ray[k] >= 0; k++) {
+				  if (Geometry.has(mine, ray[k])) {
+					  next = ray[k];
+					  break;
+				  } else if (Geometry.has(other, ray[k])) {
+					  break;
+				  }
+			  }
+			  if (next < 0 || Geometry.has(visited, next)) {
+				  continue;
 			  }
-		 }
+			  int goal = geometry.goalOf(next, color);
+			  if (goal == 1) {
+				  if (length + 1 >= Geometry.MIN_NETWORK) {
+					  return true;
+				  }
+			  } else if (goal < 0) {
+				  Geometry.set(visited, next);
+				  if (extend(next, color, dir, length + 1)) {
+					  return true;
+				  }
+				  Geometry.clear(visited, next);
+			  }
+		  }
+		  return false;
 	  }
-		  
-	    /**
-	     *  Searches if the newly added chip already exists in the input list
-	     *  @param list is a DList being checked
-	     *  @return whether the newly added chip already exists in the input list; return false if there it already exists
-	     *  and true if it doesn't exist
-	     **/
-	private boolean noSameChip(DList list) {
-		if (list.length()-1==0) {
-			return true;
-		}
-		DListNode currNode;
-		try {
-			currNode = (DListNode) list.front().next();
-			for(int i =0; i< list.length()-1; i++) {
-				if(((Chip)currNode.item()).equal((Chip)list.front().item())) { 
-					return false;
-				}
-				currNode = (DListNode) currNode.next();
-			}
-            return true;
-		} 
-		catch (InvalidNodeException e) {
-			e.printStackTrace();
-		}
-		return false;
-	}
+
+  /**
+   *  Returns the number of goal lines of the given color, 0, 1 or 2, that
+   *  hold at least one chip of that color.
+   *  @param color is either 0(black) or 1(white).
+   **/
+  int goalLines(int color) {
+    long[][] goal = geometry.goal[color];
+    int lines = 0;
+    if (Geometry.intersects(chipMask[color], goal[0])) {
+      lines++;
+    }
+    if (Geometry.intersects(chipMask[color], goal[1])) {
+      lines++;
+    }
+    return lines;
+  }
+
+  /**
+   *  Returns a lower bound on the number of chips of the given color that
+   *  must still be placed or moved before it can have a network: 0 if it
+   *  might have one now. A network needs Geometry.MIN_NETWORK chips, one
+   *  in each goal line and, if this board keeps its components, all of
+   *  them in one component.
+   *  @param color is either 0(black) or 1(white).
+   **/
+  int chipsToConnect(int color) {
+    int needed = Math.max(Geometry.MIN_NETWORK - totalChips(color), 2 - goalLines(color));
+    if (needed <= 0 && components != null && !components.spans(this, color)) {
+      return 1;
+    }
+    return Math.max(needed, 0);
+  }
+
+  /**
+   *  Returns the Zobrist key of this Board with the given color to move.
+   *  @param color is the color to move.
+   **/
+  long key(int color) {
+    return color == WHITE ? hash ^ geometry.sideToMove : hash;
+  }
+
+  /**
+   *  Packs a Move on the standard board into a single int; see
+   *  encodeMove(Move, int).
+   **/
+  static int encodeMove(Move m) {
+    return encodeMove(m, DIMENSION);
+  }
+
+  /**
+   *  Packs a Move into a single int so that it can be stored in flat arrays.
+   *  Bits 0-7 hold the destination cell (x1 * dimension + y1), bits 8-15 the
+   *  source cell of a STEP move (x2 * dimension + y2) and bits 16-17 the
+   *  moveKind.
+   *  @param m is the Move to be packed.
+   *  @param dimension is the size of the board m is made on.
+   *  @return the packed Move.
+   **/
+  static int encodeMove(Move m, int dimension) {
+    int code = m.moveKind << 16;
+    if (m.moveKind == Move.ADD || m.moveKind == Move.STEP) {
+      code |= m.x1 * dimension + m.y1;
+    }
+    if (m.moveKind == Move.STEP) {
+      code |= (m.x2 * dimension + m.y2) << 8;
+    }
+    return code;
+  }
+
+  /**
+   *  Unpacks a Move on the standard board packed by encodeMove().
+   **/
+  static Move decodeMove(int code) {
+    return decodeMove(code, DIMENSION);
+  }
+
+  /**
+   *  Unpacks a Move packed by encodeMove().
+   *  @param code is the packed Move.
+   *  @param dimension is the size of the board the Move is made on.
+   *  @return a new Move equal to the one that was packed.
+   **/
+  static Move decodeMove(int code, int dimension) {
+    int kind = code >>> 16;
+    int to = code & 0xff;
+    int from = (code >>> 8) & 0xff;
+    if (kind == Move.ADD) {
+      return new Move(to / dimension, to % dimension);
+    } else if (kind == Move.STEP) {
+      return new Move(to / dimension, to % dimension, from / dimension, from % dimension);
+    }
+    return new Move();
+  }
+
+  /**
+   *  Returns a Move as a String on a board of any size: a cell as x,y, an
+   *  ADD move as its cell, a STEP move as from>to and a QUIT move as quit.
+   **/
+  static String formatMove(Move m) {
+    if (m.moveKind == Move.STEP) {
+      return m.x2 + "," + m.y2 + ">" + m.x1 + "," + m.y1;
+    } else if (m.moveKind == Move.ADD) {
+      return m.x1 + "," + m.y1;
+    }
+    return "quit";
+  }
+
+  /**
+   *  Returns a new standard Board of the given color holding a position
+   *  written as 64 characters, one row (y = 0..7) after the other, each row
+   *  from x = 0 to 7, with 'B' for black, 'W' for white and '.' for an
+   *  empty cell.
+   *  @param position is the position.
+   *  @param color is the color of the Board's player.
+   **/
+  static Board parse(String position, int color) {
+    Board board = new Board(color);
+    for (int y = 0; y < DIMENSION; y++) {
+      for (int x = 0; x < DIMENSION; x++) {
+        char c = position.charAt(y * DIMENSION + x);
+        if (c == 'B' || c == 'W') {
+          int chip = c == 'B' ? BLACK : WHITE;
+          board.setColor(x, y, chip);
+          board.addNumofColor(chip);
+        }
+      }
+    }
+    return board;
+  }
+
+  /**
+   *  Packs a Move on this Board; see encodeMove(Move, int).
+   **/
+  int encode(Move m) {
+    return encodeMove(m, dimension);
+  }
+
+  /**
+   *  Unpacks a Move on this Board; see decodeMove(int, int).
+   **/
+  Move decode(int code) {
+    return decodeMove(code, dimension);
+  }
+
+  /**
+   *  Writes this Board compactly: a byte for its dimension, a byte for its
+   *  color, and the cells in the order of their numbers, four to a byte, two
+   *  bits each: 0 for EMPTY, 1 for BLACK and 2 for WHITE. The standard board
+   *  takes 18 bytes. The weights are not written.
+   *  @param out is where the Board is written.
+   **/
+  void writePosition(DataOutput out) throws IOException {
+    out.writeByte(dimension);
+    out.writeByte(color);
+    int bits = 0;
+    for (int cell = 0; cell < geometry.cells; cell++) {
+      int value = board[cell / dimension][cell % dimension];
+      bits |= (value == EMPTY ? 0 : value + 1) << 2 * (cell & 3);
+      if ((cell & 3) == 3 || cell == geometry.cells - 1) {
+        out.writeByte(bits);
+        bits = 0;
+      }
+    }
+  }
+
+  /**
+   *  Reads a Board written by writePosition().
+   *  @param in is where the Board is read from.
+   *  @return the Board, with the startup weights.
+   *  @throws IOException if the position cannot be read or is malformed.
+   **/
+  static Board readPosition(DataInput in) throws IOException {
+    int dimension = in.readUnsignedByte();
+    int color = in.readUnsignedByte();
+    if (dimension < Geometry.MIN_DIMENSION || dimension > Geometry.MAX_DIMENSION
+        || (color != BLACK && color != WHITE)) {
+      throw new IOException("malformed position");
+    }
+    Board b = new Board(color, dimension);
+    int bits = 0;
+    for (int cell = 0; cell < b.geometry.cells; cell++) {
+      if ((cell & 3) == 0) {
+        bits = in.readUnsignedByte();
+      }
+      int value = bits >>> 2 * (cell & 3) & 3;
+      if (value == 3) {
+        throw new IOException("malformed position");
+      } else if (value != 0) {
+        b.setColor(cell / dimension, cell % dimension, value - 1);
+        b.addNumofColor(value - 1);
+      }
+    }
+    return b;
+  }
 
   /**
    *  toString() returns a String representation of this Board.
@@ -760,11 +917,19 @@ public class Board {
    **/	  
     public String toString() {
     	String print = new String();
-    	String margin = "   0    1   2   3   4   5   6   7\n";
-    	String line = "  --------------------------------\n";
-    	for(int i=0; i<DIMENSION; i++) {
-    		String str = i+" |";
-    		for(int j=0; j<DIMENSION; j++) {
+    	String margin = "   0    1";
+    	String line = "  ";
+    	for(int j=2; j<dimension; j++) {
+    		margin = margin + (j < 10 ? "   " : "  ") + j;
+    	}
+    	for(int j=0; j<dimension; j++) {
+    		line = line + "----";
+    	}
+    	margin = margin + "\n";
+    	line = line + "\n";
+    	for(int i=0; i<dimension; i++) {
+    		String str = (i < 10 ? i+" |" : i+"|");
+    		for(int j=0; j<dimension; j++) {
     			if(board[j][i] == BLACK) {
     				str = str + " B |";
     			} else if(board[j][i] == WHITE) {
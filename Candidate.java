@@ -0,0 +1,74 @@
+/* Candidate.java */
+
+package player;
+
+/**
+ *  A Candidate is one of the root moves ranked by MachinePlayer.analyze():
+ *  the move, its score and the principal variation that starts with it.
+ **/
+
+public class Candidate {
+
+  /**
+   *  move references the root move, score its minimax score from the
+   *  analyzing player's point of view, and pv the moves of its principal
+   *  variation packed by Board.encodeMove(), starting with move, on a
+   *  board of dimension cells on a side.
+   **/
+  private final Move move;
+  private final int score;
+  private final int[] pv;
+  private final int dimension;
+
+  /**
+   *  Creates a Candidate.
+   *  @param move is the root move.
+   *  @param score is the score of move.
+   *  @param pv is the packed principal variation starting with move.
+   *  @param dimension is the size of the board the moves were packed on.
+   **/
+  Candidate(Move move, int score, int[] pv, int dimension) {
+    this.move = move;
+    this.score = score;
+    this.pv = pv;
+    this.dimension = dimension;
+  }
+
+  /**
+   *  Returns the root move.
+   **/
+  public Move getMove() {
+    return move;
+  }
+
+  /**
+   *  Returns the score of the root move.
+   **/
+  public int getScore() {
+    return score;
+  }
+
+  /**
+   *  Returns the principal variation, starting with the root move.
+   **/
+  public Move[] getPrincipalVariation() {
+    Move[] line = new Move[pv.length];
+    for (int i = 0; i < pv.length; i++) {
+      line[i] = Board.decodeMove(pv[i], dimension);
+    }
+    return line;
+  }
+
+  /**
+   *  Returns the score and principal variation as a String, each move as
+   *  Board.formatMove() writes it.
+   **/
+  public String toString() {
+    StringBuilder s = new StringBuilder();
+    s.append(score).append(':');
+    for (int i = 0; i < pv.length; i++) {
+      s.append(' ').append(Board.formatMove(Board.decodeMove(pv[i], dimension)));
+    }
+    return s.toString();
+  }
+}
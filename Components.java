@@ -0,0 +1,317 @@
+/* Components.java */
+
+package player;
+
+import java.util.Arrays;
+
+/**
+ *  The connected components of the chips of each color on one Board, kept
+ *  up to date by Board.setColor() as chips are placed and moved: two chips
+ *  of a color are connected if each is the nearest chip the other sees
+ *  along a ray of Geometry. A network lies within one component that has
+ *  chips in both goal lines of its color, so while no component does,
+ *  Board.hasNetwork() can answer without following any path.
+ *
+ *  The components are a union-find forest over the cells, by size and
+ *  without path compression, so every change is a few writes to state.
+ *  While a frame is open each write is logged with the value it replaced;
+ *  updateBoard() pushes a frame and retrieveBoard() pops it, restoring the
+ *  logged values instead of undoing the move. The moves must be taken back
+ *  in the reverse order they were made, as the searches do;
+ *  retrieveBoard() on a frame that was not pushed undoes the move as it
+ *  was made.
+ *
+ *  A forest can only join trees, never split them, so the trees of a color
+ *  are its components joined into coarser ones: placing a chip joins it to
+ *  the nearest chips of its color around it, and taking a chip away joins
+ *  the pairs of chips it stood between, but a chip taken away stays in its
+ *  tree with its goal lines, and a chip placed between two chips of the
+ *  other color leaves them in one tree. So a tree may touch both goal lines
+ *  when no component does, but never the other way around, which is all
+ *  the searches need; the trees are exact again once the moves are taken
+ *  back. Only when a chip is placed on a cell whose former chip still has
+ *  others below it in its tree is that tree's color marked dirty, and its
+ *  trees are built again from the chip masks when they are next asked
+ *  about.
+ **/
+
+class Components {
+
+  /**
+   *  state holds the parent of each cell in the forest, then from sizeAt
+   *  on the number of cells in the tree of each root, from goalsAt on the
+   *  goal lines its chips touch (bit 0 for the first, bit 1 for the
+   *  second), from ownerAt on the color of the forest each cell is in plus
+   *  1, or 0, from childrenAt on the number of cells whose parent it is,
+   *  from spanningAt on the number of trees of each color that touch both
+   *  goal lines and from dirtyAt on whether the trees of each color are
+   *  dirty. log holds the slot and former value of each write since the
+   *  first frame, logSize the length in use, and marks the length at the
+   *  start of each frame, depth of them. near holds the nearest chip in
+   *  each direction from the cell being changed, or -1.
+   **/
+  private final int sizeAt;
+  private final int goalsAt;
+  private final int ownerAt;
+  private final int childrenAt;
+  private final int spanningAt;
+  private final int dirtyAt;
+  private final int[] state;
+  private int[] log = new int[64];
+  private int logSize;
+  private int[] marks = new int[16];
+  private int depth;
+  private final int[] near = new int[8];
+
+  /**
+   *  Creates the components of the chips on board.
+   **/
+  Components(Board board) {
+    int cells = board.dimension * board.dimension;
+    sizeAt = cells;
+    goalsAt = 2 * cells;
+    ownerAt = 3 * cells;
+    childrenAt = 4 * cells;
+    spanningAt = 5 * cells;
+    dirtyAt = spanningAt + 2;
+    state = new int[dirtyAt + 2];
+    rebuild(board, Board.BLACK);
+    rebuild(board, Board.WHITE);
+  }
+
+  /**
+   *  Opens a frame, for updateBoard().
+   **/
+  void push() {
+    if (depth == marks.length) {
+      marks = Arrays.copyOf(marks, 2 * depth);
+    }
+    marks[depth++] = logSize;
+  }
+
+  /**
+   *  Restores the components as they were when the current frame was
+   *  opened and closes it, for retrieveBoard(), and returns true, or
+   *  returns false if there is no frame.
+   **/
+  boolean pop() {
+    if (depth == 0) {
+      return false;
+    }
+    int mark = marks[--depth];
+    while (logSize > mark) {
+      logSize -= 2;
+      state[log[logSize]] = log[logSize + 1];
+    }
+    return true;
+  }
+
+  /**
+   *  Returns false if no component of color has chips in both of its goal
+   *  lines, and true if one might.
+   **/
+  boolean spans(Board board, int color) {
+    if (state[dirtyAt + color] != 0) {
+      rebuild(board, color);
+    }
+    return state[spanningAt + color] > 0;
+  }
+
+  /**
+   *  Returns false if a chip of color put on the empty cell cannot join the
+   *  components of its color it sees into one with chips in both goal
+   *  lines, and true if it might. The trees of color must not be dirty;
+   *  see spans().
+   **/
+  boolean joins(Board board, int cell, int color) {
+    int goals = goalBits(board, cell, color);
+    int[] ray = board.geometry.ray;
+    int rayLength = board.geometry.rayLength;
+    long[] mine = board.chipMask[color];
+    long[] other = board.chipMask[1 - color];
+    for (int k = cell * 8 * rayLength, end = k + 8 * rayLength; k < end; k += rayLength) {
+      for (int i = k, stop = k + rayLength; i < stop && ray[i] >= 0; i++) {
+        if (Geometry.has(mine, ray[i])) {
+          goals |= state[goalsAt + find(ray[i])];
+          break;
+        } else if (Geometry.has(other, ray[i])) {
+          break;
+        }
+      }
+    }
+    return goals == 3;
+  }
+
+  /**
+   *  Brings the components up to date after the chip on cell, of color
+   *  old or EMPTY, was replaced by the one now there. Called after the
+   *  change.
+   **/
+  void changed(Board board, int cell, int old) {
+    int now = board.board[cell / board.dimension][cell % board.dimension];
+    int[] ray = board.geometry.ray;
+    int rayLength = board.geometry.rayLength;
+    long[] black = board.chipMask[Board.BLACK];
+    long[] white = board.chipMask[Board.WHITE];
+    for (int dir = 0; dir < 8; dir++) {
+      near[dir] = -1;
+      for (int i = (cell * 8 + dir) * rayLength, stop = i + rayLength; i < stop && ray[i] >= 0;
+           i++) {
+        int c = ray[i];
+        if (((black[c >>> 6] | white[c >>> 6]) >>> c & 1) != 0) {
+          near[dir] = c;
+          break;
+        }
+      }
+    }
+    if (old != Board.EMPTY) {
+      for (int dir = 0; dir < 4; dir++) {
+        int c = pairColor(board, dir);
+        if (c >= 0 && state[dirtyAt + c] == 0) {
+          union(near[dir], near[7 - dir], c);
+        }
+      }
+    }
+    if (now != Board.EMPTY) {
+      int owner = state[ownerAt + cell];
+      if (owner != 0) {
+        int parent = state[cell];
+        if (state[childrenAt + cell] != 0) {
+          set(dirtyAt + owner - 1, 1);
+        } else if (parent != cell) {
+          set(childrenAt + parent, state[childrenAt + parent] - 1);
+        }
+      }
+      set(cell, cell);
+      set(sizeAt + cell, 1);
+      set(goalsAt + cell, goalBits(board, cell, now));
+      set(ownerAt + cell, now + 1);
+      set(childrenAt + cell, 0);
+      if (state[dirtyAt + now] == 0) {
+        long[] mine = board.chipMask[now];
+        for (int dir = 0; dir < 8; dir++) {
+          if (near[dir] >= 0 && Geometry.has(mine, near[dir])) {
+            union(cell, near[dir], now);
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   *  Returns the color of the nearest chips in direction dir and the
+   *  opposite one from the cell being changed, or -1 if there are not two
+   *  or they differ.
+   **/
+  private int pairColor(Board board, int dir) {
+    int a = near[dir];
+    int b = near[7 - dir];
+    if (a < 0 || b < 0) {
+      return -1;
+    }
+    long[] black = board.chipMask[Board.BLACK];
+    boolean blackA = Geometry.has(black, a);
+    if (blackA != Geometry.has(black, b)) {
+      return -1;
+    }
+    return blackA ? Board.BLACK : Board.WHITE;
+  }
+
+  /**
+   *  Builds the trees of color from the chip masks of board.
+   **/
+  private void rebuild(Board board, int color) {
+    long[] mine = board.chipMask[color];
+    long[] other = board.chipMask[1 - color];
+    for (int cell = 0; cell < sizeAt; cell++) {
+      if (Geometry.has(mine, cell)) {
+        set(cell, cell);
+        set(sizeAt + cell, 1);
+        set(goalsAt + cell, goalBits(board, cell, color));
+        set(ownerAt + cell, color + 1);
+        set(childrenAt + cell, 0);
+      } else if (state[ownerAt + cell] == color + 1) {
+        set(ownerAt + cell, 0);
+      }
+    }
+    set(spanningAt + color, 0);
+    set(dirtyAt + color, 0);
+    int[] ray = board.geometry.ray;
+    int rayLength = board.geometry.rayLength;
+    for (int w = 0; w < mine.length; w++) {
+      for (long bits = mine[w]; bits != 0; bits &= bits - 1) {
+        int cell = w << 6 | Long.numberOfTrailingZeros(bits);
+        for (int dir = 4; dir < 8; dir++) {
+          for (int i = (cell * 8 + dir) * rayLength, stop = i + rayLength;
+               i < stop && ray[i] >= 0; i++) {
+            if (Geometry.has(mine, ray[i])) {
+              union(cell, ray[i], color);
+              break;
+            } else if (Geometry.has(other, ray[i])) {
+              break;
+            }
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   *  Returns the goal lines of color that cell is in, as in state.
+   **/
+  private static int goalBits(Board board, int cell, int color) {
+    int line = board.geometry.goalOf(cell, color);
+    return line < 0 ? 0 : 1 << line;
+  }
+
+  private int find(int cell) {
+    while (state[cell] != cell) {
+      cell = state[cell];
+    }
+    return cell;
+  }
+
+  /**
+   *  Joins the trees of the chips of color on cells a and b.
+   **/
+  private void union(int a, int b, int color) {
+    int ra = find(a);
+    int rb = find(b);
+    if (ra == rb) {
+      return;
+    }
+    if (state[sizeAt + ra] < state[sizeAt + rb]) {
+      int swap = ra;
+      ra = rb;
+      rb = swap;
+    }
+    int goalsA = state[goalsAt + ra];
+    int goalsB = state[goalsAt + rb];
+    int spanning = (goalsA == 3 ? 1 : 0) + (goalsB == 3 ? 1 : 0);
+    set(rb, ra);
+    set(childrenAt + ra, state[childrenAt + ra] + 1);
+    set(sizeAt + ra, state[sizeAt + ra] + state[sizeAt + rb]);
+    set(goalsAt + ra, goalsA | goalsB);
+    if ((goalsA | goalsB) == 3 && spanning != 1) {
+      set(spanningAt + color, state[spanningAt + color] + 1 - spanning);
+    }
+  }
+
+  /**
+   *  Writes value to slot of state, logging the former value if a frame
+   *  is open.
+   **/
+  private void set(int slot, int value) {
+    if (state[slot] == value) {
+      return;
+    }
+    if (depth > 0) {
+      if (logSize == log.length) {
+        log = Arrays.copyOf(log, 2 * logSize);
+      }
+      log[logSize++] = slot;
+      log[logSize++] = state[slot];
+    }
+    state[slot] = value;
+  }
+}
@@ -0,0 +1,527 @@
+/* EngineConfig.java */
+
+package player;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Properties;
+
+/**
+ *  The configuration a MachinePlayer is built from: which SearchEngine it
+ *  uses and how that engine searches and evaluates. The setters return the
+ *  configuration, so one can be written as
+ *
+ *    new EngineConfig().setDepth(5).setFutilityPruning(false)
+ *
+ *  A MachinePlayer copies its configuration when it is created.
+ *
+ *  The configuration in use at startup is read from the properties file
+ *  named by the system property player.engine, or from FILE in the working
+ *  directory if it exists, and is the default configuration otherwise, so
+ *  engine variants can be chosen per deployment. A properties file may set
+ *
+ *    dimension             the cells on a side of the board, 6 to 16
+ *    engine                alpha-beta or monte-carlo
+ *    depth                 the alpha-beta search depth
+ *    step-depth            the alpha-beta search depth once all chips are
+ *                          placed
+ *    threads               the threads a Monte Carlo search runs on
+ *    table-bits            the base-2 size of the alpha-beta best-move table
+ *    time-budget           milliseconds per move; 0 searches alpha-beta to
+ *                          the given depth, more deepens it until the time
+ *                          runs out
+ *    late-move-reductions  true or false
+ *    futility-pruning      true or false
+ *    frontier-batching     true or false
+ *    components            true to keep the connected components of the
+ *                          chips during the alpha-beta search (see
+ *                          Components); by default only on boards
+ *                          larger than the standard one
+ *    warm-up               milliseconds of searches the first
+ *                          MachinePlayer runs when it is created, so the
+ *                          JIT has compiled the search before its first
+ *                          move; 0 for none
+ *    solver                true to run the proof-number solver first
+ *    evaluator             weights, the weighted features of Board.score(),
+ *                          or nnue, a Network (alpha-beta only, without
+ *                          frontier batching and futility pruning)
+ *    weights               a weights file for the evaluator (see Weights)
+ *    network               a network file for nnue (see Network)
+ *
+ *  Properties it does not set keep their default.
+ **/
+
+public class EngineConfig {
+
+  /**
+   *  ALPHA_BETA and MONTE_CARLO are the names of the engines, and WEIGHTS
+   *  and NNUE the names of the evaluators. DEPTH, STEP_DEPTH and
+   *  TABLE_BITS reference the default depths and table size, FILE the
+   *  default file of the startup configuration and STARTUP the
+   *  configuration read at startup.
+   **/
+  final static String ALPHA_BETA = "alpha-beta";
+  final static String MONTE_CARLO = "monte-carlo";
+  final static String WEIGHTS = "weights";
+  final static String NNUE = "nnue";
+  final static int DEPTH = 4;
+  final static int STEP_DEPTH = 1;
+  final static int TABLE_BITS = 16;
+  final static String FILE = "engine.properties";
+  final static private EngineConfig STARTUP = readStartup();
+
+  private int dimension = Board.DIMENSION;
+  private String engine = ALPHA_BETA;
+  private int depth = DEPTH;
+  private int stepDepth = STEP_DEPTH;
+  private int threads = Runtime.getRuntime().availableProcessors();
+  private int tableBits = TABLE_BITS;
+  private long timeBudget;
+  private boolean lateMoveReductions = true;
+  private boolean futilityPruning = true;
+  private boolean frontierBatching = true;
+  private Boolean components;
+  private long warmUp;
+  private boolean solver = true;
+  private String evaluator = WEIGHTS;
+  private double[] weights;
+  private Network network;
+
+  /**
+   *  Creates the default configuration: alpha-beta to depth DEPTH with both
+   *  prunings and the solver, and the startup weights of Board.
+   **/
+  public EngineConfig() {
+  }
+
+  /**
+   *  Returns a copy of this configuration.
+   **/
+  public EngineConfig copy() {
+    EngineConfig c = new EngineConfig();
+    c.dimension = dimension;
+    c.engine = engine;
+    c.depth = depth;
+    c.stepDepth = stepDepth;
+    c.threads = threads;
+    c.tableBits = tableBits;
+    c.timeBudget = timeBudget;
+    c.lateMoveReductions = lateMoveReductions;
+    c.futilityPruning = futilityPruning;
+    c.frontierBatching = frontierBatching;
+    c.components = components;
+    c.warmUp = warmUp;
+    c.solver = solver;
+    c.evaluator = evaluator;
+    c.weights = weights == null ? null : weights.clone();
+    c.network = network;
+    return c;
+  }
+
+  /**
+   *  Returns the configuration to use at startup.
+   **/
+  public static EngineConfig startup() {
+    return STARTUP.copy();
+  }
+
+  /**
+   *  Reads the startup configuration.
+   **/
+  private static EngineConfig readStartup() {
+    String name = System.getProperty("player.engine");
+    Path file = Path.of(name != null ? name : FILE);
+    if (name == null && !Files.exists(file)) {
+      return new EngineConfig();
+    }
+    try {
+      return load(file);
+    } catch (IOException | IllegalArgumentException e) {
+      System.err.println("cannot read engine configuration from " + file + ": "
+                         + e.getMessage());
+      return new EngineConfig();
+    }
+  }
+
+  /**
+   *  Reads a configuration from a properties file. A relative weights file
+   *  is looked up next to it.
+   *  @param file is the file to read.
+   *  @return the configuration.
+   *  @throws IllegalArgumentException if a property is unknown or invalid.
+   **/
+  public static EngineConfig load(Path file) throws IOException {
+    Properties p = new Properties();
+    Reader in = Files.newBufferedReader(file);
+    try {
+      p.load(in);
+    } finally {
+      in.close();
+    }
+    Path dir = file.toAbsolutePath().getParent();
+    return fromProperties(p, dir);
+  }
+
+  /**
+   *  Returns the configuration the properties p set.
+   *  @param p holds the properties listed above.
+   *  @param dir is the directory of relative weights files.
+   *  @throws IllegalArgumentException if a property is unknown or invalid.
+   **/
+  static EngineConfig fromProperties(Properties p, Path dir) throws IOException {
+    EngineConfig c = new EngineConfig();
+    for (String key : p.stringPropertyNames()) {
+      String value = p.getProperty(key).trim();
+      switch (key) {
+      case "dimension":
+        c.setDimension(Integer.parseInt(value));
+        break;
+      case "engine":
+        c.setEngine(value);
+        break;
+      case "depth":
+        c.setDepth(Integer.parseInt(value));
+        break;
+      case "step-depth":
+        c.setStepDepth(Integer.parseInt(value));
+        break;
+      case "threads":
+        c.setThreads(Integer.parseInt(value));
+        break;
+      case "table-bits":
+        c.setTableBits(Integer.parseInt(value));
+        break;
+      case "time-budget":
+        c.setTimeBudget(Long.parseLong(value));
+        break;
+      case "late-move-reductions":
+        c.setLateMoveReductions(parseBoolean(key, value));
+        break;
+      case "futility-pruning":
+        c.setFutilityPruning(parseBoolean(key, value));
+        break;
+      case "frontier-batching":
+        c.setFrontierBatching(parseBoolean(key, value));
+        break;
+      case "components":
+        c.setComponents(parseBoolean(key, value));
+        break;
+      case "warm-up":
+        c.setWarmUp(Long.parseLong(value));
+        break;
+      case "solver":
+        c.setSolver(parseBoolean(key, value));
+        break;
+      case "evaluator":
+        c.setEvaluator(value);
+        break;
+      case "weights":
+        c.setWeights(Weights.load(dir == null ? Path.of(value) : dir.resolve(value)));
+        break;
+      case "network":
+        c.setNetwork(Network.load(dir == null ? Path.of(value) : dir.resolve(value)));
+        break;
+      default:
+        throw new IllegalArgumentException("unknown property " + key);
+      }
+    }
+    return c;
+  }
+
+  /**
+   *  Returns the boolean value of the property key, rejecting anything but
+   *  true and false.
+   **/
+  private static boolean parseBoolean(String key, String value) {
+    if (!value.equals("true") && !value.equals("false")) {
+      throw new IllegalArgumentException(key + " must be true or false");
+    }
+    return value.equals("true");
+  }
+
+  /**
+   *  Returns a new SearchEngine of this configuration, which it keeps and
+   *  reads as it searches.
+   **/
+  SearchEngine createEngine() {
+    if (engine.equals(MONTE_CARLO)) {
+      if (timeBudget == 0) {
+        throw new IllegalArgumentException(MONTE_CARLO + " needs a time-budget");
+      }
+      return new MonteCarloEngine(this);
+    }
+    return new AlphaBetaEngine(this);
+  }
+
+  /**
+   *  Sets the number of cells on a side of the board, Geometry.MIN_DIMENSION
+   *  to Geometry.MAX_DIMENSION. Larger boards give each color more chips;
+   *  see Geometry.
+   **/
+  public EngineConfig setDimension(int dimension) {
+    if (dimension < Geometry.MIN_DIMENSION || dimension > Geometry.MAX_DIMENSION) {
+      throw new IllegalArgumentException("dimension must be " + Geometry.MIN_DIMENSION + " to "
+                                         + Geometry.MAX_DIMENSION);
+    }
+    this.dimension = dimension;
+    return this;
+  }
+
+  /**
+   *  Sets the engine.
+   *  @param engine is ALPHA_BETA or MONTE_CARLO.
+   **/
+  public EngineConfig setEngine(String engine) {
+    if (!engine.equals(ALPHA_BETA) && !engine.equals(MONTE_CARLO)) {
+      throw new IllegalArgumentException("unknown engine " + engine);
+    }
+    this.engine = engine;
+    return this;
+  }
+
+  /**
+   *  Sets the alpha-beta search depth, at least 1.
+   **/
+  public EngineConfig setDepth(int depth) {
+    this.depth = atLeast("depth", depth, 1);
+    return this;
+  }
+
+  /**
+   *  Sets the alpha-beta search depth once all chips are placed, at least 1.
+   *  STEP moves are many and the deeper search rarely pays for them.
+   **/
+  public EngineConfig setStepDepth(int stepDepth) {
+    this.stepDepth = atLeast("step-depth", stepDepth, 1);
+    return this;
+  }
+
+  /**
+   *  Sets the number of threads a Monte Carlo search runs on, at least 1.
+   **/
+  public EngineConfig setThreads(int threads) {
+    this.threads = atLeast("threads", threads, 1);
+    return this;
+  }
+
+  /**
+   *  Sets the base-2 logarithm of the number of slots of the alpha-beta
+   *  best-move table. A small table keeps the player small when many games
+   *  are hosted at once.
+   **/
+  public EngineConfig setTableBits(int tableBits) {
+    if (tableBits < 0 || tableBits > 30) {
+      throw new IllegalArgumentException("table-bits must be 0 to 30");
+    }
+    this.tableBits = tableBits;
+    return this;
+  }
+
+  /**
+   *  Sets the milliseconds chooseMove() may spend on a move. With 0 the
+   *  alpha-beta engine searches to its depth; otherwise it deepens one ply
+   *  at a time until the time runs out. The Monte Carlo engine needs a
+   *  time budget.
+   **/
+  public EngineConfig setTimeBudget(long timeBudget) {
+    this.timeBudget = atLeast("time-budget", timeBudget, 0);
+    return this;
+  }
+
+  /**
+   *  Turns late-move reductions in the alpha-beta search on or off.
+   **/
+  public EngineConfig setLateMoveReductions(boolean on) {
+    lateMoveReductions = on;
+    return this;
+  }
+
+  /**
+   *  Turns futility pruning in the alpha-beta search on or off.
+   **/
+  public EngineConfig setFutilityPruning(boolean on) {
+    futilityPruning = on;
+    return this;
+  }
+
+  /**
+   *  Turns batched scoring of the leaves of the alpha-beta search on or
+   *  off; see FrontierEvaluator. Off, each leaf is made and scored on its
+   *  own; the search is the same either way.
+   **/
+  public EngineConfig setFrontierBatching(boolean on) {
+    frontierBatching = on;
+    return this;
+  }
+
+  /**
+   *  Turns the connected components of the chips in the alpha-beta search
+   *  on or off; see Components. On, the search rules out networks by
+   *  them without following paths, and futility pruning skips the moves
+   *  they show cannot complete a network. Unless set, they are on for
+   *  boards larger than the standard one, whose longer network searches
+   *  they save more than they cost.
+   **/
+  public EngineConfig setComponents(boolean on) {
+    components = on;
+    return this;
+  }
+
+  /**
+   *  Sets the milliseconds of warm-up searches the first MachinePlayer of
+   *  the JVM runs when it is created; see MachinePlayer.warmUp(). 0 runs
+   *  none.
+   **/
+  public EngineConfig setWarmUp(long warmUp) {
+    this.warmUp = atLeast("warm-up", warmUp, 0);
+    return this;
+  }
+
+  /**
+   *  Turns the proof-number solver that looks for a forced network before
+   *  every search on or off.
+   **/
+  public EngineConfig setSolver(boolean on) {
+    solver = on;
+    return this;
+  }
+
+  /**
+   *  Sets the evaluator of the alpha-beta leaves. NNUE scores them with
+   *  the network and needs one; it turns frontier batching and futility
+   *  pruning off, since both rely on the weighted features.
+   *  @param evaluator is WEIGHTS or NNUE.
+   **/
+  public EngineConfig setEvaluator(String evaluator) {
+    if (!evaluator.equals(WEIGHTS) && !evaluator.equals(NNUE)) {
+      throw new IllegalArgumentException("unknown evaluator " + evaluator);
+    }
+    this.evaluator = evaluator;
+    return this;
+  }
+
+  /**
+   *  Sets the weights of the evaluator; see Weights.
+   *  @param weights holds Weights.SIZE weights, or is null for the startup
+   *  weights of Board.
+   **/
+  public EngineConfig setWeights(double[] weights) {
+    if (weights != null && weights.length != Weights.SIZE) {
+      throw new IllegalArgumentException("weights must hold " + Weights.SIZE + " values");
+    }
+    this.weights = weights == null ? null : weights.clone();
+    return this;
+  }
+
+  /**
+   *  Sets the network of the NNUE evaluator; see Network.
+   *  @param network is the Network, or null for the startup network.
+   **/
+  public EngineConfig setNetwork(Network network) {
+    this.network = network;
+    return this;
+  }
+
+  /**
+   *  Returns value if it is at least min.
+   *  @throws IllegalArgumentException otherwise.
+   **/
+  private static long atLeast(String name, long value, long min) {
+    if (value < min) {
+      throw new IllegalArgumentException(name + " must be at least " + min);
+    }
+    return value;
+  }
+
+  private static int atLeast(String name, int value, int min) {
+    return (int) atLeast(name, (long) value, (long) min);
+  }
+
+  /**
+   *  The methods below return the values set above.
+   **/
+  public int dimension() {
+    return dimension;
+  }
+
+  public String engine() {
+    return engine;
+  }
+
+  public int depth() {
+    return depth;
+  }
+
+  public int stepDepth() {
+    return stepDepth;
+  }
+
+  public int threads() {
+    return threads;
+  }
+
+  public int tableBits() {
+    return tableBits;
+  }
+
+  public long timeBudget() {
+    return timeBudget;
+  }
+
+  public boolean lateMoveReductions() {
+    return lateMoveReductions;
+  }
+
+  public boolean futilityPruning() {
+    return futilityPruning && evaluator.equals(WEIGHTS);
+  }
+
+  public boolean frontierBatching() {
+    return frontierBatching && evaluator.equals(WEIGHTS);
+  }
+
+  public boolean components() {
+    return components != null ? components : dimension > Board.DIMENSION;
+  }
+
+  public long warmUp() {
+    return warmUp;
+  }
+
+  public boolean solver() {
+    return solver;
+  }
+
+  public String evaluator() {
+    return evaluator;
+  }
+
+  /**
+   *  Returns the weights of the evaluator.
+   **/
+  public double[] weights() {
+    return weights == null ? Board.WEIGHTS.clone() : weights.clone();
+  }
+
+  /**
+   *  Returns the network of the NNUE evaluator, or null if there is none.
+   **/
+  public Network network() {
+    return network == null ? Network.STARTUP : network;
+  }
+
+  /**
+   *  Returns the configuration as the properties a file would set, other
+   *  than the weights and network, on one line.
+   **/
+  public String toString() {
+    return "dimension=" + dimension + " engine=" + engine + " depth=" + depth + " step-depth=" + stepDepth
+      + " threads=" + threads + " table-bits=" + tableBits + " time-budget=" + timeBudget
+      + " late-move-reductions=" + lateMoveReductions + " futility-pruning=" + futilityPruning
+      + " frontier-batching=" + frontierBatching + " components=" + components()
+      + " warm-up=" + warmUp
+      + " solver=" + solver + " evaluator=" + evaluator;
+  }
+}
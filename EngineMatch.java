@@ -0,0 +1,140 @@
+/* EngineMatch.java */
+
+package player;
+
+import java.util.Random;
+
+/**
+ *  Plays games between the Monte Carlo engine and the alpha-beta engine at
+ *  equal time per move and prints the results. The alpha-beta engine searches
+ *  to a fixed depth, so its average time per move is measured first in a
+ *  calibration game and then given to the Monte Carlo engine as its budget.
+ *
+ *  Usage: java player.EngineMatch [games] [depth]
+ **/
+
+public class EngineMatch {
+
+  /**
+   *  MAX_MOVES references the number of moves after which a game is a draw.
+   **/
+  final static private int MAX_MOVES = 200;
+
+  /**
+   *  Plays one game and returns the winning color, or -1 for a draw or an
+   *  illegal move. A player that quits loses. time[c] is increased by the
+   *  milliseconds spent by color c and moves[c] by the number of moves it
+   *  made.
+   *  @param players holds the black player at index 0 and white at index 1.
+   **/
+  static int playGame(Player[] players, long[] time, int[] moves) {
+    return playGame(players, new Move[0], time, moves);
+  }
+
+  /**
+   *  Plays one game that starts with the given opening moves, white first,
+   *  and returns the winning color as playGame(Player[], long[], int[]).
+   *  @param players holds the black player at index 0 and white at index 1.
+   *  @param opening holds legal moves that neither wins nor completes a
+   *  network.
+   **/
+  static int playGame(Player[] players, Move[] opening, long[] time, int[] moves) {
+    Board referee = new Board(Board.WHITE);
+    int toMove = Board.WHITE;
+    for (int i = 0; i < opening.length; i++) {
+      players[toMove].forceMove(opening[i]);
+      players[1 - toMove].opponentMove(opening[i]);
+      referee.updateBoard(opening[i], toMove);
+      toMove = 1 - toMove;
+    }
+    for (int i = 0; i < MAX_MOVES; i++) {
+      long start = System.nanoTime();
+      Move m = players[toMove].chooseMove();
+      time[toMove] += (System.nanoTime() - start) / 1000000;
+      moves[toMove]++;
+      if (m.moveKind == Move.QUIT) {
+        return 1 - toMove;
+      }
+      if (!referee.isValidMove(m, toMove) || !players[1 - toMove].opponentMove(m)) {
+        System.out.println("illegal move " + m + " by color " + toMove);
+        return -1;
+      }
+      referee.updateBoard(m, toMove);
+      int winner = MonteCarloTree.winner(referee, toMove);
+      if (winner >= 0) {
+        return winner;
+      }
+      toMove = 1 - toMove;
+    }
+    return -1;
+  }
+
+  /**
+   *  Returns the given number of random ADD moves, white first, that make a
+   *  legal opening.
+   *  @param random chooses the moves.
+   *  @param plies is the number of moves; at most 8, so no network is made.
+   **/
+  static Move[] randomOpening(Random random, int plies) {
+    Board board = new Board(Board.WHITE);
+    Move[] opening = new Move[plies];
+    int toMove = Board.WHITE;
+    for (int i = 0; i < plies; i++) {
+      Move m;
+      do {
+        m = new Move(random.nextInt(Board.DIMENSION), random.nextInt(Board.DIMENSION));
+      } while (!board.isValidMove(m, toMove));
+      board.updateBoard(m, toMove);
+      opening[i] = m;
+      toMove = 1 - toMove;
+    }
+    return opening;
+  }
+
+  public static void main(String[] args) {
+    int games = args.length > 0 ? Integer.parseInt(args[0]) : 4;
+    int depth = args.length > 1 ? Integer.parseInt(args[1]) : 3;
+
+    long[] time = new long[2];
+    int[] moves = new int[2];
+    playGame(new Player[] {new MachinePlayer(Board.BLACK, depth),
+                           new MachinePlayer(Board.WHITE, depth)}, time, moves);
+    long budget = Math.max(1, (time[0] + time[1]) / (moves[0] + moves[1]));
+    System.out.println("alpha-beta depth " + depth + ": " + budget + " ms/move");
+
+    int mctsWins = 0;
+    int abWins = 0;
+    int draws = 0;
+    long[] engineTime = new long[2];
+    int[] engineMoves = new int[2];
+    for (int g = 0; g < games; g++) {
+      int mctsColor = g % 2;
+      Player[] players = new Player[2];
+      players[mctsColor] = new MachinePlayer(mctsColor, depth, MachinePlayer.MONTE_CARLO, budget);
+      players[1 - mctsColor] = new MachinePlayer(1 - mctsColor, depth);
+      time = new long[2];
+      moves = new int[2];
+      int winner = playGame(players, time, moves);
+      engineTime[MachinePlayer.MONTE_CARLO] += time[mctsColor];
+      engineMoves[MachinePlayer.MONTE_CARLO] += moves[mctsColor];
+      engineTime[MachinePlayer.ALPHA_BETA] += time[1 - mctsColor];
+      engineMoves[MachinePlayer.ALPHA_BETA] += moves[1 - mctsColor];
+      if (winner < 0) {
+        draws++;
+      } else if (winner == mctsColor) {
+        mctsWins++;
+      } else {
+        abWins++;
+      }
+      System.out.println("game " + (g + 1) + ": monte carlo plays "
+                         + (mctsColor == Board.BLACK ? "black" : "white") + ", "
+                         + (winner < 0 ? "draw" : winner == mctsColor ? "monte carlo wins"
+                            : "alpha-beta wins"));
+    }
+    System.out.println("monte carlo " + mctsWins + ", alpha-beta " + abWins + ", draws " + draws);
+    System.out.println("ms/move: monte carlo "
+                       + engineTime[MachinePlayer.MONTE_CARLO] / Math.max(1, engineMoves[MachinePlayer.MONTE_CARLO])
+                       + ", alpha-beta "
+                       + engineTime[MachinePlayer.ALPHA_BETA] / Math.max(1, engineMoves[MachinePlayer.ALPHA_BETA]));
+  }
+}
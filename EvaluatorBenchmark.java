@@ -0,0 +1,119 @@
+/* EvaluatorBenchmark.java */
+
+package player;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Random;
+
+/**
+ *  Measures the evaluators of Board.score() on random positions: the
+ *  weighted features and a Network. A leaf is one valid move made, scored
+ *  and taken back, as the alpha-beta search does at its last ply, so the
+ *  time of a network leaf includes the updates of its accumulators. Then
+ *  the same positions are searched to a fixed depth with each evaluator
+ *  (the weights with and without frontier batching).
+ *
+ *  Usage: java player.EvaluatorBenchmark network [positions [depth]]
+ **/
+
+public class EvaluatorBenchmark {
+
+  /**
+   *  PLIES references the number of random moves of each position, and
+   *  ROUNDS the number of times the leaves are timed.
+   **/
+  final static private int PLIES = 14;
+  final static private int ROUNDS = 5;
+
+  /**
+   *  Makes, scores and takes back every valid move of the color to move
+   *  in every position and returns the nanoseconds per leaf.
+   **/
+  static double leaves(Board[] positions, int[] toMove, Move[][] moves) throws InvalidNodeException {
+    long count = 0;
+    long sum = 0;
+    long start = System.nanoTime();
+    for (int i = 0; i < positions.length; i++) {
+      Board board = positions[i];
+      int color = toMove[i];
+      for (Move m : moves[i]) {
+        board.updateBoard(m, color);
+        sum += board.score(1, color);
+        board.retrieveBoard(m, color);
+        count++;
+      }
+    }
+    if (sum == Long.MIN_VALUE) {
+      System.out.println(sum);
+    }
+    return (double) (System.nanoTime() - start) / count;
+  }
+
+  /**
+   *  Searches every position to depth as config says and returns the
+   *  microseconds per search; the nodes are added to nodes[0].
+   **/
+  static long search(Board[] positions, int[] toMove, EngineConfig config, long[] nodes) {
+    long start = System.nanoTime();
+    for (int i = 0; i < positions.length; i++) {
+      Search search = new Search(positions[i].copyBoard(), 0);
+      new AlphaBetaEngine(config).search(search, toMove[i]);
+      nodes[0] += search.nodes;
+    }
+    return (System.nanoTime() - start) / 1000 / positions.length;
+  }
+
+  public static void main(String[] args) throws IOException, InvalidNodeException {
+    if (args.length < 1) {
+      System.err.println("usage: java player.EvaluatorBenchmark network [positions [depth]]");
+      System.exit(2);
+    }
+    Network network = Network.load(Path.of(args[0]));
+    int count = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+    int depth = args.length > 2 ? Integer.parseInt(args[2]) : 3;
+    Random random = new Random(3);
+    Board[] weighted = new Board[count];
+    Board[] networked = new Board[count];
+    int[] toMove = new int[count];
+    Move[][] moves = new Move[count][];
+    for (int i = 0; i < count; i++) {
+      weighted[i] = SizeBenchmark.randomPosition(random, network.dimension, PLIES + i % 8);
+      networked[i] = weighted[i].copyBoard();
+      networked[i].setNetwork(network);
+      toMove[i] = random.nextInt(2);
+      DList list = weighted[i].allValidMoves(toMove[i]);
+      moves[i] = new Move[list.length()];
+      ListNode node = list.front();
+      for (int j = 0; j < moves[i].length; j++) {
+        moves[i][j] = (Move) node.item();
+        node = node.next();
+      }
+    }
+    double weights = Double.MAX_VALUE;
+    double nnue = Double.MAX_VALUE;
+    for (int round = 0; round < ROUNDS; round++) {
+      weights = Math.min(weights, leaves(weighted, toMove, moves));
+      nnue = Math.min(nnue, leaves(networked, toMove, moves));
+    }
+    System.out.printf("%d positions, %d hidden values%n", count, network.hidden);
+    System.out.printf("leaf, weights: %8.0f ns%n", weights);
+    System.out.printf("leaf, network: %8.0f ns (%.2fx)%n", nnue, weights / nnue);
+
+    EngineConfig config = new EngineConfig().setDimension(network.dimension).setDepth(depth)
+      .setStepDepth(depth).setSolver(false);
+    EngineConfig[] configs = {config.copy(), config.copy().setFrontierBatching(false),
+                              config.copy().setEvaluator(EngineConfig.NNUE)};
+    String[] names = {"weights, batched", "weights", "network"};
+    for (int round = 0; round < 2; round++) {
+      for (int e = 0; e < configs.length; e++) {
+        long[] nodes = new long[1];
+        long micros = search(e == 2 ? networked : weighted, toMove, configs[e], nodes);
+        if (round == 1) {
+          System.out.printf("depth %d, %-17s %7d us/search, %7d nodes/search%n", depth,
+                            names[e] + ":", micros, nodes[0] / count);
+        }
+      }
+    }
+  }
+}
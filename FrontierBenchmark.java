@@ -0,0 +1,76 @@
+/* FrontierBenchmark.java */
+
+package player;
+
+import java.util.Random;
+
+/**
+ *  Measures the alpha-beta search with the leaves scored one at a time and
+ *  in batches by FrontierEvaluator, on the same random positions, and
+ *  checks that both choose the same moves after the same number of nodes.
+ *
+ *  Usage: java player.FrontierBenchmark [positions [depth [dimension]]]
+ **/
+
+public class FrontierBenchmark {
+
+  /**
+   *  PLIES references the number of random moves of each position, and
+   *  ROUNDS the number of times the positions are searched.
+   **/
+  final static private int PLIES = 14;
+  final static private int ROUNDS = 3;
+
+  /**
+   *  Searches every position to depth with frontier batching on or off,
+   *  into moves and nodes, and returns the microseconds taken.
+   **/
+  static long run(Board[] positions, int dimension, int depth, boolean batching,
+                  Move[] moves, long[] nodes) {
+    EngineConfig config = new EngineConfig().setDimension(dimension).setDepth(depth)
+      .setStepDepth(depth).setSolver(false).setFrontierBatching(batching);
+    long start = System.nanoTime();
+    for (int i = 0; i < positions.length; i++) {
+      Search search = new Search(positions[i].copyBoard(), 0);
+      moves[i] = new AlphaBetaEngine(config).search(search, Board.WHITE);
+      nodes[i] = search.nodes;
+    }
+    return (System.nanoTime() - start) / 1000;
+  }
+
+  public static void main(String[] args) throws InvalidNodeException {
+    int count = args.length > 0 ? Integer.parseInt(args[0]) : 40;
+    int depth = args.length > 1 ? Integer.parseInt(args[1]) : 3;
+    int dimension = args.length > 2 ? Integer.parseInt(args[2]) : Board.DIMENSION;
+    Random random = new Random(1);
+    Board[] positions = new Board[count];
+    for (int i = 0; i < count; i++) {
+      positions[i] = SizeBenchmark.randomPosition(random, dimension, PLIES);
+    }
+    Move[] scalarMoves = new Move[count];
+    Move[] batchMoves = new Move[count];
+    long[] scalarNodes = new long[count];
+    long[] batchNodes = new long[count];
+    long scalar = Long.MAX_VALUE;
+    long batched = Long.MAX_VALUE;
+    for (int round = 0; round < ROUNDS; round++) {
+      scalar = Math.min(scalar, run(positions, dimension, depth, false, scalarMoves, scalarNodes));
+      batched = Math.min(batched, run(positions, dimension, depth, true, batchMoves, batchNodes));
+    }
+    int differ = 0;
+    long nodes = 0;
+    for (int i = 0; i < count; i++) {
+      if (!scalarMoves[i].toString().equals(batchMoves[i].toString())
+          || scalarNodes[i] != batchNodes[i]) {
+        differ++;
+      }
+      nodes += batchNodes[i];
+    }
+    System.out.println(count + " positions, " + dimension + "x" + dimension + ", depth " + depth
+                       + ", " + nodes / count + " nodes/search");
+    System.out.printf("one at a time: %8d us/search%n", scalar / count);
+    System.out.printf("batched:       %8d us/search (%.2fx)%n", batched / count,
+                      (double) scalar / batched);
+    System.out.println(differ == 0 ? "same moves and nodes" : differ + " searches differ");
+  }
+}
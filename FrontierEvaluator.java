@@ -0,0 +1,295 @@
+/* FrontierEvaluator.java */
+
+package player;
+
+/**
+ *  A FrontierEvaluator scores the children of a frontier node of the
+ *  alpha-beta search, the nodes one ply above the leaves, in batches. The
+ *  children are given as moves packed by Board.encode(), the deltas from
+ *  the position of the frontier node. The position is read once by load();
+ *  each child is then scored from the changes its move makes to the
+ *  connection counts and goal lines, instead of making the move, scoring
+ *  the whole board and taking the move back. The scores are those
+ *  Board.score() gives the children.
+ *
+ *  The features of the batch are kept in lanes, one int array per feature
+ *  with one entry per child, and weighed lane by lane in a loop the JIT can
+ *  compile to vector instructions.
+ *
+ *  If the board keeps its Components, a child reached by an ADD move can
+ *  only have a network of a color if the frontier node has a component of
+ *  that color with chips in both goal lines, or the added chip joins its
+ *  components into one; otherwise the network search is skipped.
+ **/
+
+class FrontierEvaluator {
+
+  /**
+   *  BATCH references the most children scored at once.
+   **/
+  final static int BATCH = 16;
+
+  /**
+   *  geometry references the tables of the boards evaluated, and cells the
+   *  position of the frontier node, one entry per cell.
+   *  connections holds the connection counts of each color in that
+   *  position, lineChips the chips of the board's color in its start and
+   *  end goal lines, and lineMiddle those on the two middle cells of each.
+   *  lanes holds the features of each child, and sum their weighted sums;
+   *  won marks the children in which a color has a network, whose score
+   *  is set directly.
+   *  delta holds the change of the connection counts of the child being
+   *  scored. components references the components of the frontier node,
+   *  or null, and spans whether it has a component of each color with
+   *  chips in both goal lines.
+   *  moves, codes, scores and skipped are scratch space for the caller: a
+   *  batch of children, their packed moves, their scores and the number of
+   *  children pruned before each one.
+   **/
+  private final Geometry geometry;
+  private final int[] cells;
+  private final int[] connections = new int[2];
+  private final int[] lineChips = new int[2];
+  private final int[] lineMiddle = new int[2];
+  private final int[][] lanes = new int[Weights.SIZE][BATCH];
+  private final double[] sum = new double[BATCH];
+  private final boolean[] won = new boolean[BATCH];
+  private final int[] delta = new int[2];
+  private Components components;
+  private final boolean[] spans = new boolean[2];
+  final Move[] moves = new Move[BATCH];
+  final int[] codes = new int[BATCH];
+  final int[] scores = new int[BATCH];
+  final int[] skipped = new int[BATCH];
+
+  /**
+   *  Creates an evaluator of boards of the size of geometry.
+   **/
+  FrontierEvaluator(Geometry geometry) {
+    this.geometry = geometry;
+    cells = new int[geometry.cells];
+  }
+
+  /**
+   *  Reads the position of the frontier node board, whose children the
+   *  following calls of score() evaluate.
+   **/
+  void load(Board board) {
+    int dimension = geometry.dimension;
+    for (int x = 0; x < dimension; x++) {
+      for (int y = 0; y < dimension; y++) {
+        cells[x * dimension + y] = board.board[x][y];
+      }
+    }
+    int self = board.color;
+    connections[Board.BLACK] = board.connectionCount(Board.BLACK);
+    connections[Board.WHITE] = board.connectionCount(Board.WHITE);
+    lineChips[0] = lineChips[1] = 0;
+    lineMiddle[0] = lineMiddle[1] = 0;
+    for (int i = 0; i < cells.length; i++) {
+      if (cells[i] == self) {
+        countGoal(i, self, 1);
+      }
+    }
+    components = board.components;
+    if (components != null) {
+      spans[Board.BLACK] = components.spans(board, Board.BLACK);
+      spans[Board.WHITE] = components.spans(board, Board.WHITE);
+    }
+  }
+
+  /**
+   *  Returns false if the child reached by color moving a chip from the
+   *  cell from (-1 for an ADD move) to the cell to cannot have a network
+   *  of the color given; see the class comment.
+   **/
+  private boolean mayConnect(Board board, int network, int color, int from, int to) {
+    return components == null || from >= 0 || spans[network]
+      || network == color && components.joins(board, to, color);
+  }
+
+  /**
+   *  Scores the children of board reached by color playing each of the
+   *  given moves, as board.score(ply, color) would after each move.
+   *  board is read but not changed, and must be the position last loaded.
+   *  @param board is the position of the frontier node.
+   *  @param codes holds the packed moves of the children.
+   *  @param count is the number of children, at most BATCH.
+   *  @param color is the color making the moves.
+   *  @param ply is the number of moves made in the search to reach the
+   *  children.
+   *  @param scores gets the score of each child.
+   **/
+  void score(Board board, int[] codes, int count, int color, int ply, int[] scores)
+    throws InvalidNodeException {
+    int self = board.color;
+    long[] mask = board.chipMask[color];
+    for (int j = 0; j < count; j++) {
+      int to = codes[j] & 0xFF;
+      int from = codes[j] >>> 16 == Move.STEP ? codes[j] >>> 8 & 0xFF : -1;
+      delta[Board.BLACK] = delta[Board.WHITE] = 0;
+      if (from >= 0) {
+        removeChip(from, color);
+        cells[from] = Board.EMPTY;
+        Geometry.clear(mask, from);
+      }
+      addChip(to, color);
+      Geometry.set(mask, to);
+      board.components = null;
+      boolean ours = mayConnect(board, self, color, from, to) && board.hasNetwork(self);
+      boolean theirs = mayConnect(board, 1 - self, color, from, to)
+        && board.hasNetwork(1 - self);
+      board.components = components;
+      Geometry.clear(mask, to);
+      if (from >= 0) {
+        cells[from] = color;
+        Geometry.set(mask, from);
+      }
+
+      won[j] = ours || theirs;
+      if (won[j]) {
+        scores[j] = networkScore(ours, theirs, ply, color == self);
+        continue;
+      }
+      if (color == self) {
+        if (from >= 0) {
+          countGoal(from, self, -1);
+        }
+        countGoal(to, self, 1);
+      }
+      int entry = 0;
+      int single = 0;
+      int crowd = 0;
+      for (int line = 0; line < 2; line++) {
+        if (lineMiddle[line] > 0) {
+          entry++;
+        }
+        if (lineChips[line] == 1) {
+          single++;
+        } else if (lineChips[line] > 2) {
+          crowd++;
+        }
+      }
+      if (color == self) {
+        countGoal(to, self, -1);
+        if (from >= 0) {
+          countGoal(from, self, 1);
+        }
+      }
+      lanes[Weights.GOAL_ENTRY][j] = entry;
+      lanes[Weights.GOAL_SINGLE][j] = single;
+      lanes[Weights.GOAL_CROWD][j] = crowd;
+      lanes[Weights.CONNECTION][j] = connections[self] + delta[self];
+      lanes[Weights.OPPOSITE_CONNECTION][j] = connections[1 - self] + delta[1 - self];
+    }
+
+    double[] weights = board.weights;
+    for (int j = 0; j < count; j++) {
+      sum[j] = weights[0] * lanes[0][j];
+    }
+    for (int i = 1; i < Weights.SIZE; i++) {
+      double w = weights[i];
+      int[] lane = lanes[i];
+      for (int j = 0; j < count; j++) {
+        sum[j] += w * lane[j];
+      }
+    }
+    for (int j = 0; j < count; j++) {
+      if (!won[j]) {
+        scores[j] = (int) Math.max(-100, Math.min(100, Math.round(sum[j])));
+      }
+    }
+  }
+
+  /**
+   *  Returns the score Board.score() gives a position with the given
+   *  networks.
+   *  @param ours is true if the board's color has a network.
+   *  @param theirs is true if the other color has one.
+   *  @param ply is the number of moves made to reach the position.
+   *  @param selfMoved is true if the board's color made the last move.
+   **/
+  private static int networkScore(boolean ours, boolean theirs, int ply, boolean selfMoved) {
+    if (ours && theirs) {
+      return selfMoved ? -100 + (ply - 1) / 2 : 100 - (ply - 2) / 2;
+    } else if (ours) {
+      return 100 - (ply - 1) / 2;
+    }
+    return -100 + (ply - 2) / 2;
+  }
+
+  /**
+   *  Adds n to the goal-line counts if cell is in a goal line of color.
+   **/
+  private void countGoal(int cell, int color, int n) {
+    int line = geometry.goalOf(cell, color);
+    if (line < 0) {
+      return;
+    }
+    lineChips[line] += n;
+    int along = color == Board.WHITE ? cell % geometry.dimension : cell / geometry.dimension;
+    int low = geometry.dimension / 2 - 1;
+    if (along == low || along == low + 1) {
+      lineMiddle[line] += n;
+    }
+  }
+
+  /**
+   *  Adds to delta the change of the connection counts when a chip of color
+   *  is placed on the empty cell. On each of the four lines through cell,
+   *  the two nearest chips no longer see each other, and each of them of
+   *  color sees the new chip; every pair of chips that see each other
+   *  counts twice.
+   **/
+  private void addChip(int cell, int color) {
+    for (int dir = 0; dir < 4; dir++) {
+      int a = nearest(cell, dir);
+      int b = nearest(cell, 7 - dir);
+      if (a >= 0 && a == b) {
+        delta[a] -= 2;
+      }
+      if (a == color) {
+        delta[color] += 2;
+      }
+      if (b == color) {
+        delta[color] += 2;
+      }
+    }
+  }
+
+  /**
+   *  Adds to delta the change of the connection counts when the chip of
+   *  color on cell is taken away; the reverse of addChip().
+   **/
+  private void removeChip(int cell, int color) {
+    for (int dir = 0; dir < 4; dir++) {
+      int a = nearest(cell, dir);
+      int b = nearest(cell, 7 - dir);
+      if (a >= 0 && a == b) {
+        delta[a] += 2;
+      }
+      if (a == color) {
+        delta[color] -= 2;
+      }
+      if (b == color) {
+        delta[color] -= 2;
+      }
+    }
+  }
+
+  /**
+   *  Returns the color of the nearest chip from cell in direction dir, or
+   *  -1 if there is none.
+   **/
+  private int nearest(int cell, int dir) {
+    int[] ray = geometry.ray;
+    for (int k = (cell * 8 + dir) * geometry.rayLength, end = k + geometry.rayLength;
+         k < end && ray[k] >= 0; k++) {
+      int c = cells[ray[k]];
+      if (c != Board.EMPTY) {
+        return c;
+      }
+    }
+    return -1;
+  }
+}
@@ -0,0 +1,246 @@
+/* GameHost.java */
+
+package player;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ *  Hosts many concurrent games between MachinePlayers. Each game is driven
+ *  by its own virtual thread, which blocks cheaply while a move is being
+ *  chosen; all searches run on one bounded pool with a thread per core.
+ *  On a Java runtime without virtual threads the games are driven by a
+ *  pool of platform threads instead, so fewer games are in flight at once.
+ *
+ *  The immutable tables (Zobrist keys and ray tables in Geometry) are
+ *  shared by all games of a board size, and the proof-number solver
+ *  tables by all players, at most one per search thread.
+ *  Each player gets a small best-move table, so a game costs a few
+ *  kilobytes.
+ *
+ *  Usage: java player.GameHost [budget ms] [moves per game] [games...]
+ **/
+
+public class GameHost {
+
+  /**
+   *  TABLE_BITS references the base-2 size of each player's best-move table,
+   *  and CONFIG the startup configuration of the players with that table.
+   *  BUCKETS references the number of 100-microsecond latency buckets; the
+   *  last one also counts all longer latencies.
+   *  DRIVERS references the number of platform threads that drive games
+   *  when virtual threads are not available.
+   **/
+  final static private int TABLE_BITS = 8;
+  final static private EngineConfig CONFIG = EngineConfig.startup().setTableBits(TABLE_BITS);
+  final static private int BUCKETS = 100000;
+  final static private int DRIVERS = 256;
+
+  /**
+   *  searches references the pool that runs all searches, and games the
+   *  executor that drives the games. budget references the time a move
+   *  may take. latency counts the moves whose latency fell in each bucket.
+   **/
+  private final ExecutorService searches;
+  private final ExecutorService games;
+  private final Duration budget;
+  private final AtomicLongArray latency = new AtomicLongArray(BUCKETS);
+  private final AtomicLong moves = new AtomicLong();
+  private final AtomicLong unsearched = new AtomicLong();
+
+  /**
+   *  Creates a host whose searches run on the given number of threads.
+   *  @param searchThreads is the number of search threads.
+   *  @param budget is the time each move may take.
+   **/
+  public GameHost(int searchThreads, Duration budget) {
+    this.searches = Executors.newFixedThreadPool(searchThreads);
+    this.games = gameExecutor();
+    this.budget = budget;
+  }
+
+  /**
+   *  Returns an executor that starts a virtual thread per task, or a pool
+   *  of DRIVERS platform threads if the runtime has no virtual threads.
+   **/
+  static ExecutorService gameExecutor() {
+    try {
+      return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor")
+        .invoke(null);
+    } catch (ReflectiveOperationException e) {
+      return Executors.newFixedThreadPool(DRIVERS);
+    }
+  }
+
+  /**
+   *  Starts a game and returns a future completed with its winner, or -1 if
+   *  it ends in a draw or on an illegal move.
+   *  @param maxMoves is the number of moves after which the game is drawn.
+   **/
+  public CompletableFuture<Integer> startGame(final int maxMoves) {
+    final CompletableFuture<Integer> result = new CompletableFuture<Integer>();
+    games.execute(() -> {
+      try {
+        result.complete(play(maxMoves));
+      } catch (RuntimeException e) {
+        result.completeExceptionally(e);
+      }
+    });
+    return result;
+  }
+
+  /**
+   *  Plays one game on the calling thread and returns its winner, or -1.
+   **/
+  private int play(int maxMoves) {
+    MachinePlayer[] players = {new MachinePlayer(Board.BLACK, CONFIG),
+                               new MachinePlayer(Board.WHITE, CONFIG)};
+    Board referee = new Board(Board.WHITE, CONFIG.dimension());
+    Playout networks = new Playout(0);
+    int toMove = Board.WHITE;
+    for (int i = 0; i < maxMoves; i++) {
+      boolean book = referee.totalChips(toMove) < 2;
+      long start = System.nanoTime();
+      Move m = players[toMove].chooseMoveAsync(budget, searches).join();
+      record(System.nanoTime() - start);
+      if (!book && players[toMove].depthReached() == 0) {
+        unsearched.incrementAndGet();
+      }
+      if (m.moveKind == Move.QUIT) {
+        return 1 - toMove;
+      }
+      if (!referee.isValidMove(m, toMove) || !players[1 - toMove].opponentMove(m)) {
+        return -1;
+      }
+      referee.updateBoard(m, toMove);
+      networks.load(referee);
+      int winner = networks.winner(toMove);
+      if (winner >= 0) {
+        return winner;
+      }
+      toMove = 1 - toMove;
+    }
+    return -1;
+  }
+
+  /**
+   *  Counts one move that took the given number of nanoseconds.
+   **/
+  private void record(long nanos) {
+    moves.incrementAndGet();
+    latency.incrementAndGet((int) Math.min(BUCKETS - 1, nanos / 100000));
+  }
+
+  /**
+   *  Returns the given percentile of the move latencies, in milliseconds.
+   *  @param percentile is between 0 and 100.
+   **/
+  public double latencyPercentile(double percentile) {
+    long total = moves.get();
+    long rank = (long) Math.ceil(total * percentile / 100);
+    long seen = 0;
+    for (int i = 0; i < BUCKETS; i++) {
+      seen += latency.get(i);
+      if (seen >= rank && seen > 0) {
+        return (i + 1) / 10.0;
+      }
+    }
+    return 0;
+  }
+
+  /**
+   *  Returns the number of moves played so far.
+   **/
+  public long moves() {
+    return moves.get();
+  }
+
+  /**
+   *  Returns the number of moves, other than the two opening moves of each
+   *  player, completed before any search iteration finished, i.e. played by
+   *  the fallback move because the search pool was overloaded.
+   **/
+  public long unsearchedMoves() {
+    return unsearched.get();
+  }
+
+  /**
+   *  Stops the executors once all started games are over.
+   **/
+  public void shutdown() throws InterruptedException {
+    games.shutdown();
+    games.awaitTermination(1, TimeUnit.DAYS);
+    searches.shutdown();
+  }
+
+  public static void main(String[] args) throws Exception {
+    long budgetMs = args.length > 0 ? Long.parseLong(args[0]) : 5;
+    int maxMoves = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+    int[] counts = {1000, 10000, 50000};
+    if (args.length > 2) {
+      counts = new int[args.length - 2];
+      for (int i = 2; i < args.length; i++) {
+        counts[i - 2] = Integer.parseInt(args[i]);
+      }
+    }
+    int cores = Runtime.getRuntime().availableProcessors();
+    ExecutorService drivers = gameExecutor();
+    System.out.println("virtual threads: " + !(drivers instanceof ThreadPoolExecutor)
+                       + ", search threads: " + cores + ", budget " + budgetMs + " ms");
+    drivers.shutdown();
+    long playerBytes = bytesPerGame();
+    for (int n : counts) {
+      GameHost host = new GameHost(cores, Duration.ofMillis(budgetMs));
+      long start = System.nanoTime();
+      CompletableFuture<?>[] results = new CompletableFuture<?>[n];
+      for (int i = 0; i < n; i++) {
+        results[i] = host.startGame(maxMoves);
+      }
+      CompletableFuture.allOf(results).join();
+      double seconds = (System.nanoTime() - start) / 1e9;
+      host.shutdown();
+      System.out.printf("%6d games: %8.0f moves/s, p50 %6.1f ms, p99 %6.1f ms, "
+                        + "%d of %d moves unsearched, %d bytes/game%n",
+                        n, host.moves() / seconds, host.latencyPercentile(50),
+                        host.latencyPercentile(99), host.unsearchedMoves(), host.moves(),
+                        bytesPerGame(playerBytes, n, cores));
+    }
+  }
+
+  /**
+   *  Returns the approximate heap used by one of the given number of games
+   *  on the given number of search threads: playerBytes for its players
+   *  and referee, and its share of the solver node tables the players
+   *  share, of which there is at most one per search thread.
+   **/
+  static long bytesPerGame(long playerBytes, int games, int searchThreads) {
+    return playerBytes + searchThreads * MachinePlayer.solverBytes() / Math.max(1, games);
+  }
+
+  /**
+   *  Returns the approximate heap used by the two players and the referee of
+   *  one game, measured over a thousand games. The solver tables are not
+   *  counted, since no player owns one; see bytesPerGame(long, int, int).
+   **/
+  static long bytesPerGame() {
+    int n = 1000;
+    Object[] keep = new Object[n];
+    Runtime runtime = Runtime.getRuntime();
+    System.gc();
+    long before = runtime.totalMemory() - runtime.freeMemory();
+    for (int i = 0; i < n; i++) {
+      keep[i] = new Object[] {new MachinePlayer(Board.BLACK, CONFIG),
+                              new MachinePlayer(Board.WHITE, CONFIG),
+                              new Board(Board.WHITE, CONFIG.dimension()), new Playout(0)};
+    }
+    System.gc();
+    long after = runtime.totalMemory() - runtime.freeMemory();
+    return keep.length > 0 ? Math.max(0, after - before) / n : 0;
+  }
+}
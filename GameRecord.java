@@ -0,0 +1,398 @@
+/* GameRecord.java */
+
+package player;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+
+/**
+ *  A GameRecord holds the moves of one game, white first, its winner and,
+ *  optionally, search statistics for every move. GameRecordWriter appends
+ *  records to a file in a compact binary form and GameRecordReader streams
+ *  them back.
+ *
+ *  A record is written as
+ *
+ *    magic      1 byte   MAGIC
+ *    flags      1 byte   STATS if the record has per-move statistics
+ *    length     varint   the number of bytes that follow
+ *    winner     1 byte   BLACK, WHITE or NO_WINNER
+ *    moves      varint   the number of moves
+ *    move       1 or 2 bytes per move
+ *    stats      per move, if STATS is set: depth (1 byte), score (1 byte,
+ *               signed), nodes (varint), microseconds (varint)
+ *
+ *  An ADD move is the byte x * 8 + y of its cell, a QUIT move the byte
+ *  QUIT, and a STEP move the destination cell with STEP set followed by
+ *  the source cell. A varint holds 7 bits per byte, least significant
+ *  first, with the high bit set on every byte but the last. Records are
+ *  only kept of games on the standard 8x8 board.
+ **/
+
+public class GameRecord {
+
+  /**
+   *  MAGIC references the first byte of every record and STATS the flag of
+   *  a record with per-move statistics. NO_WINNER references the winner of
+   *  an unfinished or drawn game. QUIT and STEP are the move bytes described
+   *  above. MAX_HEADER references the most bytes before the body.
+   **/
+  final static int MAGIC = 0x4e;
+  final static int STATS = 1;
+  final static int NO_WINNER = 2;
+  final static private int QUIT = 0x40;
+  final static private int STEP = 0x80;
+  final static int MAX_HEADER = 2 + 5;
+
+  /**
+   *  moves holds the moves packed by Board.encodeMove() and length their
+   *  number. depth, score, nodes and micros hold the statistics of each
+   *  move if hasStats is true.
+   **/
+  private int winner = NO_WINNER;
+  private int[] moves = new int[16];
+  private int length;
+  private boolean hasStats;
+  private int[] depth = new int[0];
+  private int[] score = new int[0];
+  private long[] nodes = new long[0];
+  private long[] micros = new long[0];
+
+  /**
+   *  Creates an empty record without statistics.
+   **/
+  public GameRecord() {
+    this(false);
+  }
+
+  /**
+   *  Creates an empty record.
+   *  @param hasStats is true if every move is recorded with statistics.
+   **/
+  public GameRecord(boolean hasStats) {
+    this.hasStats = hasStats;
+    if (hasStats) {
+      depth = new int[moves.length];
+      score = new int[moves.length];
+      nodes = new long[moves.length];
+      micros = new long[moves.length];
+    }
+  }
+
+  /**
+   *  Appends a move made without a search, or whose statistics are not known.
+   *  @param m is the move.
+   **/
+  public void addMove(Move m) {
+    addMove(m, 0, 0, 0, 0);
+  }
+
+  /**
+   *  Appends a move with its search statistics. The statistics are dropped
+   *  if the record has none.
+   *  @param m is the move.
+   *  @param depth is the depth searched, 0 to 255.
+   *  @param score is the score of the move, -128 to 127.
+   *  @param nodes is the number of nodes searched.
+   *  @param micros is the time taken, in microseconds.
+   **/
+  public void addMove(Move m, int depth, int score, long nodes, long micros) {
+    addPackedMove(Board.encodeMove(m), depth, score, nodes, micros);
+  }
+
+  /**
+   *  Appends a move packed by Board.encodeMove() with its search
+   *  statistics, as addMove().
+   **/
+  void addPackedMove(int code, int depth, int score, long nodes, long micros) {
+    if (length == moves.length) {
+      moves = grow(moves);
+      if (hasStats) {
+        this.depth = grow(this.depth);
+        this.score = grow(this.score);
+        long[] n = new long[2 * length];
+        System.arraycopy(this.nodes, 0, n, 0, length);
+        this.nodes = n;
+        long[] t = new long[2 * length];
+        System.arraycopy(this.micros, 0, t, 0, length);
+        this.micros = t;
+      }
+    }
+    moves[length] = code;
+    if (hasStats) {
+      this.depth[length] = depth;
+      this.score[length] = score;
+      this.nodes[length] = nodes;
+      this.micros[length] = micros;
+    }
+    length++;
+  }
+
+  /**
+   *  Returns a copy of a with twice its length.
+   **/
+  private static int[] grow(int[] a) {
+    int[] b = new int[2 * a.length];
+    System.arraycopy(a, 0, b, 0, a.length);
+    return b;
+  }
+
+  /**
+   *  Records the winner of the game.
+   *  @param winner is Board.BLACK, Board.WHITE or NO_WINNER.
+   **/
+  public void setWinner(int winner) {
+    this.winner = winner;
+  }
+
+  /**
+   *  Returns the winner of the game: Board.BLACK, Board.WHITE or NO_WINNER.
+   **/
+  public int winner() {
+    return winner;
+  }
+
+  /**
+   *  Returns the number of moves.
+   **/
+  public int length() {
+    return length;
+  }
+
+  /**
+   *  Returns true if the moves have search statistics.
+   **/
+  public boolean hasStats() {
+    return hasStats;
+  }
+
+  /**
+   *  Returns move i; move 0 is white's first.
+   **/
+  public Move move(int i) {
+    return Board.decodeMove(moves[i]);
+  }
+
+  /**
+   *  Returns move i packed by Board.encodeMove().
+   **/
+  int packedMove(int i) {
+    return moves[i];
+  }
+
+  /**
+   *  Returns the depth searched for move i, or 0.
+   **/
+  public int depth(int i) {
+    return hasStats ? depth[i] : 0;
+  }
+
+  /**
+   *  Returns the score of move i, or 0.
+   **/
+  public int score(int i) {
+    return hasStats ? score[i] : 0;
+  }
+
+  /**
+   *  Returns the number of nodes searched for move i, or 0.
+   **/
+  public long nodes(int i) {
+    return hasStats ? nodes[i] : 0;
+  }
+
+  /**
+   *  Returns the microseconds taken by move i, or 0.
+   **/
+  public long micros(int i) {
+    return hasStats ? micros[i] : 0;
+  }
+
+  /**
+   *  Returns the Board after the first plies moves, seen by the given color.
+   *  The moves are applied without checking that they are valid.
+   *  @param color is the color whose Board it is.
+   *  @param plies is the number of moves to play, at most length().
+   **/
+  public Board replay(int color, int plies) {
+    Board board = new Board(color);
+    replay(board, plies);
+    return board;
+  }
+
+  /**
+   *  Plays the first plies moves on board, which must be the starting
+   *  position, without checking that they are valid. One Move object is
+   *  reused for all of them.
+   *  @param board is the Board to play on.
+   *  @param plies is the number of moves to play, at most length().
+   **/
+  public void replay(Board board, int plies) {
+    Move m = new Move();
+    int toMove = Board.WHITE;
+    for (int i = 0; i < plies; i++) {
+      int code = moves[i];
+      int to = code & 0xff;
+      int from = (code >>> 8) & 0xff;
+      m.moveKind = code >>> 16;
+      m.x1 = to / Board.DIMENSION;
+      m.y1 = to % Board.DIMENSION;
+      m.x2 = from / Board.DIMENSION;
+      m.y2 = from % Board.DIMENSION;
+      board.updateBoard(m, toMove);
+      toMove = 1 - toMove;
+    }
+  }
+
+  /**
+   *  Returns the number of bytes the record takes after its header.
+   **/
+  int bodySize() {
+    int size = 1 + varintSize(length);
+    for (int i = 0; i < length; i++) {
+      size += moves[i] >>> 16 == Move.STEP ? 2 : 1;
+      if (hasStats) {
+        size += 2 + varintSize(nodes[i]) + varintSize(micros[i]);
+      }
+    }
+    return size;
+  }
+
+  /**
+   *  Writes the record to buf, which must have at least MAX_HEADER +
+   *  bodySize() bytes remaining.
+   **/
+  void write(ByteBuffer buf) {
+    buf.put((byte) MAGIC);
+    buf.put((byte) (hasStats ? STATS : 0));
+    putVarint(buf, bodySize());
+    buf.put((byte) winner);
+    putVarint(buf, length);
+    for (int i = 0; i < length; i++) {
+      int code = moves[i];
+      int kind = code >>> 16;
+      if (kind == Move.ADD) {
+        buf.put((byte) (code & 0xff));
+      } else if (kind == Move.STEP) {
+        buf.put((byte) (STEP | (code & 0xff)));
+        buf.put((byte) ((code >>> 8) & 0xff));
+      } else {
+        buf.put((byte) QUIT);
+      }
+    }
+    if (hasStats) {
+      for (int i = 0; i < length; i++) {
+        buf.put((byte) depth[i]);
+        buf.put((byte) score[i]);
+        putVarint(buf, nodes[i]);
+        putVarint(buf, micros[i]);
+      }
+    }
+  }
+
+  /**
+   *  Reads the header of a record from buf and returns its flags and body
+   *  length as flags << 32 | length, or -1 if buf does not hold a complete
+   *  header; buf is then left unchanged.
+   *  @throws IllegalStateException if buf does not start with a record.
+   **/
+  static long readHeader(ByteBuffer buf) {
+    int start = buf.position();
+    try {
+      if ((buf.get() & 0xff) != MAGIC) {
+        throw new IllegalStateException("not a game record at byte " + start);
+      }
+      int flags = buf.get() & 0xff;
+      long body = getVarint(buf);
+      return (long) flags << 32 | body;
+    } catch (BufferUnderflowException e) {
+      buf.position(start);
+      return -1;
+    }
+  }
+
+  /**
+   *  Reads the body of a record whose header readHeader() returned.
+   *  @param buf holds the whole body.
+   *  @param flags is the flags byte of the header.
+   **/
+  static GameRecord readBody(ByteBuffer buf, int flags) {
+    GameRecord record = new GameRecord((flags & STATS) != 0);
+    record.winner = buf.get();
+    int n = (int) getVarint(buf);
+    record.ensureCapacity(n);
+    for (int i = 0; i < n; i++) {
+      int b = buf.get() & 0xff;
+      int code;
+      if (b == QUIT) {
+        code = Move.QUIT << 16;
+      } else if ((b & STEP) != 0) {
+        code = Move.STEP << 16 | (buf.get() & 0xff) << 8 | (b & ~STEP);
+      } else {
+        code = Move.ADD << 16 | b;
+      }
+      record.moves[i] = code;
+    }
+    if (record.hasStats) {
+      for (int i = 0; i < n; i++) {
+        record.depth[i] = buf.get() & 0xff;
+        record.score[i] = buf.get();
+        record.nodes[i] = getVarint(buf);
+        record.micros[i] = getVarint(buf);
+      }
+    }
+    record.length = n;
+    return record;
+  }
+
+  /**
+   *  Makes room for n moves in an empty record.
+   **/
+  private void ensureCapacity(int n) {
+    if (n > moves.length) {
+      moves = new int[n];
+      if (hasStats) {
+        depth = new int[n];
+        score = new int[n];
+        nodes = new long[n];
+        micros = new long[n];
+      }
+    }
+  }
+
+  /**
+   *  Returns the number of bytes of the varint of v.
+   **/
+  static int varintSize(long v) {
+    int size = 1;
+    while ((v >>>= 7) != 0) {
+      size++;
+    }
+    return size;
+  }
+
+  /**
+   *  Writes v to buf as a varint.
+   **/
+  static void putVarint(ByteBuffer buf, long v) {
+    while ((v & ~0x7fL) != 0) {
+      buf.put((byte) (v & 0x7f | 0x80));
+      v >>>= 7;
+    }
+    buf.put((byte) v);
+  }
+
+  /**
+   *  Reads a varint from buf.
+   **/
+  static long getVarint(ByteBuffer buf) {
+    long v = 0;
+    for (int shift = 0; ; shift += 7) {
+      int b = buf.get() & 0xff;
+      v |= (long) (b & 0x7f) << shift;
+      if ((b & 0x80) == 0) {
+        return v;
+      }
+    }
+  }
+}
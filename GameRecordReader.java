@@ -0,0 +1,90 @@
+/* GameRecordReader.java */
+
+package player;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ *  Reads the GameRecords of a file written by GameRecordWriter one at a
+ *  time. Only a buffer of the file is held in memory, which grows only if
+ *  a single record does not fit in it.
+ **/
+
+public class GameRecordReader implements Closeable {
+
+  /**
+   *  BUFFER_SIZE references the initial size of the read buffer.
+   **/
+  final static private int BUFFER_SIZE = 1 << 16;
+
+  private final FileChannel channel;
+  private ByteBuffer buf = ByteBuffer.allocateDirect(BUFFER_SIZE);
+
+  /**
+   *  Opens file for reading.
+   *  @param file is the file to read.
+   **/
+  public GameRecordReader(Path file) throws IOException {
+    channel = FileChannel.open(file, StandardOpenOption.READ);
+    buf.limit(0);
+  }
+
+  /**
+   *  Returns the next record, or null at the end of the file.
+   *  @throws IOException if the file ends inside a record or holds
+   *  something other than records.
+   **/
+  public GameRecord next() throws IOException {
+    while (true) {
+      int start = buf.position();
+      long header;
+      try {
+        header = GameRecord.readHeader(buf);
+      } catch (IllegalStateException e) {
+        throw new IOException(e.getMessage());
+      }
+      if (header >= 0) {
+        int body = (int) header;
+        if (buf.remaining() >= body) {
+          return GameRecord.readBody(buf, (int) (header >>> 32));
+        }
+        buf.position(start);
+      }
+      if (!fill()) {
+        if (buf.hasRemaining()) {
+          throw new IOException("truncated game record");
+        }
+        return null;
+      }
+    }
+  }
+
+  /**
+   *  Moves the unread bytes to the front of the buffer, growing it if it is
+   *  full, and reads more of the file. Returns false at the end of the file.
+   **/
+  private boolean fill() throws IOException {
+    if (buf.position() == 0 && buf.limit() == buf.capacity()) {
+      ByteBuffer larger = ByteBuffer.allocateDirect(2 * buf.capacity());
+      larger.put(buf);
+      buf = larger;
+    } else {
+      buf.compact();
+    }
+    int read = channel.read(buf);
+    buf.flip();
+    return read > 0;
+  }
+
+  /**
+   *  Closes the file.
+   **/
+  public void close() throws IOException {
+    channel.close();
+  }
+}
@@ -0,0 +1,84 @@
+/* GameRecordWriter.java */
+
+package player;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ *  Appends GameRecords to a file in the binary form described in
+ *  GameRecord. Records are collected in a direct buffer and written to the
+ *  file's channel when the buffer fills up, on flush() and on close().
+ **/
+
+public class GameRecordWriter implements Closeable {
+
+  /**
+   *  BUFFER_SIZE references the size of the write buffer.
+   **/
+  final static private int BUFFER_SIZE = 1 << 16;
+
+  private final FileChannel channel;
+  private final ByteBuffer buf = ByteBuffer.allocateDirect(BUFFER_SIZE);
+
+  /**
+   *  Opens file for appending, creating it if it does not exist.
+   *  @param file is the file to append to.
+   **/
+  public GameRecordWriter(Path file) throws IOException {
+    channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                               StandardOpenOption.APPEND);
+  }
+
+  /**
+   *  Appends record to the file.
+   *  @param record is the record to append.
+   **/
+  public void write(GameRecord record) throws IOException {
+    int size = GameRecord.MAX_HEADER + record.bodySize();
+    if (size > buf.remaining()) {
+      flush();
+    }
+    if (size > buf.capacity()) {
+      ByteBuffer large = ByteBuffer.allocate(size);
+      record.write(large);
+      large.flip();
+      writeFully(large);
+    } else {
+      record.write(buf);
+    }
+  }
+
+  /**
+   *  Writes the buffered records to the file.
+   **/
+  public void flush() throws IOException {
+    buf.flip();
+    writeFully(buf);
+    buf.clear();
+  }
+
+  /**
+   *  Writes all remaining bytes of b to the channel.
+   **/
+  private void writeFully(ByteBuffer b) throws IOException {
+    while (b.hasRemaining()) {
+      channel.write(b);
+    }
+  }
+
+  /**
+   *  Writes the buffered records and closes the file.
+   **/
+  public void close() throws IOException {
+    try {
+      flush();
+    } finally {
+      channel.close();
+    }
+  }
+}
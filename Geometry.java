@@ -0,0 +1,415 @@
+/* Geometry.java */
+
+package player;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ *  The precomputed tables of one board size, shared by every Board, Playout
+ *  and search of that size. A cell is numbered x * dimension + y, as in
+ *  Board.encodeMove(). Sets of cells are multi-word bitsets: long[] masks of
+ *  words longs, cell c in bit c % 64 of word c / 64, so boards of up to
+ *  MAX_DIMENSION cells on a side work the same way as the standard one.
+ *
+ *  Each color places chips chips before it steps; the standard board has
+ *  10, and larger boards proportionally more, rounded: 16 on 10x10 and 23
+ *  on 12x12. A network still needs MIN_NETWORK chips.
+ *
+ *  The tables are computed on first use, unless they are found in RESOURCE,
+ *  a binary file on the class path next to this class, which holds the
+ *  tables of one or more sizes as write() writes them and is read in one
+ *  go when the first Geometry is wanted. It is made by
+ *
+ *    java player.Geometry [file [dimension ...]]
+ *
+ *  which writes the tables of the given sizes (the standard one by default)
+ *  to file (RESOURCE by default); copy it into the player directory of the
+ *  class path or jar. A missing resource costs nothing; one that cannot be read
+ *  is reported and the tables are computed.
+ *
+ *    java player.Geometry -check
+ *
+ *  writes and reads back the tables of every size and checks that they are
+ *  those computed.
+ **/
+
+public class Geometry {
+
+  /**
+   *  MIN_DIMENSION and MAX_DIMENSION are the smallest and largest sizes; a
+   *  packed move has 8 bits per cell. STANDARD_CHIPS references the chips
+   *  of the standard 8x8 board and MIN_NETWORK the chips of a network.
+   *  SIZES caches the Geometry of each size once it is first used, and
+   *  loaded whether RESOURCE has been read into it. MAGIC begins RESOURCE,
+   *  and CHECK is the argument that makes main() run check().
+   **/
+  final static int MIN_DIMENSION = 6;
+  final static int MAX_DIMENSION = 16;
+  final static int STANDARD_CHIPS = 10;
+  final static int MIN_NETWORK = 6;
+  final static String RESOURCE = "tables.bin";
+  final static private int MAGIC = 0x4E575432;
+  final static private String CHECK = "-check";
+  final static private Geometry[] SIZES = new Geometry[MAX_DIMENSION + 1];
+  private static boolean loaded;
+  final static private int[] DX = {-1, -1, -1, 0, 0, 1, 1, 1};
+  final static private int[] DY = {-1, 0, 1, -1, 1, -1, 0, 1};
+
+  /**
+   *  dimension references the number of cells on a side, cells their
+   *  number, chips the chips each color places and words the longs of a
+   *  cell mask.
+   *  zobrist holds a random key for each color and cell, and sideToMove a
+   *  key for white to move; the standard board's keys are those it has
+   *  always had.
+   *  ray holds, for each cell and each of the 8 directions, the cells along
+   *  that ray, terminated by -1 if shorter than rayLength (= dimension).
+   *  neighbors holds the up to 8 adjacent cells of each cell, terminated by
+   *  -1, in 9 entries per cell.
+   *  goal holds, for each color, the masks of its start (0) and end (1)
+   *  goal lines, without the corners.
+   *  book holds, for each color, the cells of the first two chips
+   *  MachinePlayer places: the middle of its start goal line, then the
+   *  other middle cell of its end goal line.
+   **/
+  final int dimension;
+  final int cells;
+  final int chips;
+  final int words;
+  final long[][] zobrist;
+  final long sideToMove;
+  final int rayLength;
+  final int[] ray;
+  final int[] neighbors;
+  final long[][][] goal;
+  final int[][] book;
+
+  /**
+   *  Returns the Geometry of boards with the given number of cells on a side.
+   *  @throws IllegalArgumentException if dimension is not MIN_DIMENSION to
+   *  MAX_DIMENSION.
+   **/
+  static Geometry of(int dimension) {
+    if (dimension < MIN_DIMENSION || dimension > MAX_DIMENSION) {
+      throw new IllegalArgumentException("dimension must be " + MIN_DIMENSION + " to "
+                                         + MAX_DIMENSION);
+    }
+    Geometry g = SIZES[dimension];
+    if (g == null) {
+      synchronized (SIZES) {
+        if (!loaded) {
+          loaded = true;
+          load();
+        }
+        g = SIZES[dimension];
+        if (g == null) {
+          g = new Geometry(dimension);
+          SIZES[dimension] = g;
+        }
+      }
+    }
+    return g;
+  }
+
+  /**
+   *  Reads the Geometries in RESOURCE, if there is one, into SIZES.
+   **/
+  private static void load() {
+    InputStream resource = Geometry.class.getResourceAsStream(RESOURCE);
+    if (resource == null) {
+      return;
+    }
+    try {
+      DataInputStream in = new DataInputStream(new BufferedInputStream(resource));
+      try {
+        if (in.readInt() != MAGIC) {
+          throw new IOException("not a table file");
+        }
+        Geometry[] sizes = new Geometry[MAX_DIMENSION + 1];
+        for (int n = in.readUnsignedByte(); n > 0; n--) {
+          Geometry g = new Geometry(in);
+          sizes[g.dimension] = g;
+        }
+        System.arraycopy(sizes, 0, SIZES, 0, sizes.length);
+      } finally {
+        in.close();
+      }
+    } catch (IOException e) {
+      System.err.println("cannot read " + RESOURCE + ": " + e.getMessage());
+    }
+  }
+
+  /**
+   *  Builds the tables of the given size.
+   **/
+  private Geometry(int dimension) {
+    this.dimension = dimension;
+    cells = dimension * dimension;
+    chips = (STANDARD_CHIPS * cells + 32) / 64;
+    words = (cells + 63) / 64;
+    rayLength = dimension;
+    goal = goalLines(dimension, words);
+    zobrist = new long[2][cells];
+    Random random = new Random(61);
+    for (int i = 0; i < cells; i++) {
+      zobrist[Board.BLACK][i] = random.nextLong();
+      zobrist[Board.WHITE][i] = random.nextLong();
+    }
+    sideToMove = random.nextLong();
+
+    ray = new int[cells * 8 * rayLength];
+    neighbors = new int[cells * 9];
+    for (int x = 0; x < dimension; x++) {
+      for (int y = 0; y < dimension; y++) {
+        int cell = x * dimension + y;
+        int n = 0;
+        for (int dir = 0; dir < 8; dir++) {
+          int base = (cell * 8 + dir) * rayLength;
+          int k = 0;
+          for (int i = x + DX[dir], j = y + DY[dir];
+               i >= 0 && i < dimension && j >= 0 && j < dimension;
+               i += DX[dir], j += DY[dir]) {
+            ray[base + k++] = i * dimension + j;
+          }
+          if (k < rayLength) {
+            ray[base + k] = -1;
+          }
+          if (k > 0) {
+            neighbors[cell * 9 + n++] = ray[base];
+          }
+        }
+        neighbors[cell * 9 + n] = -1;
+      }
+    }
+
+    int low = dimension / 2 - 1;
+    int last = dimension - 1;
+    book = new int[2][];
+    book[Board.BLACK] = new int[] {cell(low, 0), cell(low + 1, last)};
+    book[Board.WHITE] = new int[] {cell(0, low), cell(last, low + 1)};
+  }
+
+  /**
+   *  Reads the tables of a Geometry written by write().
+   **/
+  private Geometry(DataInput in) throws IOException {
+    dimension = in.readUnsignedByte();
+    if (dimension < MIN_DIMENSION || dimension > MAX_DIMENSION) {
+      throw new IOException("bad dimension " + dimension);
+    }
+    cells = dimension * dimension;
+    chips = (STANDARD_CHIPS * cells + 32) / 64;
+    words = (cells + 63) / 64;
+    rayLength = dimension;
+    goal = goalLines(dimension, words);
+    zobrist = new long[2][cells];
+    for (int color = 0; color < 2; color++) {
+      for (int i = 0; i < cells; i++) {
+        zobrist[color][i] = in.readLong();
+      }
+    }
+    sideToMove = in.readLong();
+    ray = readCells(in, cells * 8 * rayLength);
+    neighbors = readCells(in, cells * 9);
+    book = new int[2][];
+    book[Board.BLACK] = readCells(in, 2);
+    book[Board.WHITE] = readCells(in, 2);
+  }
+
+  /**
+   *  Writes the tables of this Geometry: its dimension, the Zobrist keys,
+   *  then the ray, neighbor and opening tables, each cell (or -1) as an
+   *  unsigned short holding the cell plus 1.
+   **/
+  void write(DataOutput out) throws IOException {
+    out.writeByte(dimension);
+    for (int color = 0; color < 2; color++) {
+      for (int i = 0; i < cells; i++) {
+        out.writeLong(zobrist[color][i]);
+      }
+    }
+    out.writeLong(sideToMove);
+    writeCells(out, ray);
+    writeCells(out, neighbors);
+    writeCells(out, book[Board.BLACK]);
+    writeCells(out, book[Board.WHITE]);
+  }
+
+  /**
+   *  Reads count cells written by writeCells().
+   **/
+  private static int[] readCells(DataInput in, int count) throws IOException {
+    int[] cells = new int[count];
+    for (int i = 0; i < count; i++) {
+      cells[i] = in.readUnsignedShort() - 1;
+    }
+    return cells;
+  }
+
+  /**
+   *  Writes cells, each (or -1) as an unsigned short holding the cell plus
+   *  1; a byte would not hold the last cell of a MAX_DIMENSION board.
+   **/
+  private static void writeCells(DataOutput out, int[] cells) throws IOException {
+    for (int i = 0; i < cells.length; i++) {
+      out.writeShort(cells[i] + 1);
+    }
+  }
+
+  /**
+   *  Returns the masks of the goal lines of each color on boards of the
+   *  given size; see goal.
+   **/
+  private static long[][][] goalLines(int dimension, int words) {
+    long[][][] goal = new long[2][2][words];
+    for (int i = 1; i < dimension - 1; i++) {
+      for (int end = 0; end < 2; end++) {
+        int line = end * (dimension - 1);
+        set(goal[Board.WHITE][end], line * dimension + i);
+        set(goal[Board.BLACK][end], i * dimension + line);
+      }
+    }
+    return goal;
+  }
+
+  /**
+   *  Returns the cell of (x, y).
+   **/
+  int cell(int x, int y) {
+    return x * dimension + y;
+  }
+
+  /**
+   *  Returns 0 if cell is in color's start goal line, 1 if it is in its
+   *  end goal line and -1 otherwise.
+   **/
+  int goalOf(int cell, int color) {
+    int coord = color == Board.WHITE ? cell / dimension : cell % dimension;
+    if (coord == 0) {
+      return 0;
+    } else if (coord == dimension - 1) {
+      return 1;
+    }
+    return -1;
+  }
+
+  /**
+   *  Adds cell to mask.
+   **/
+  static void set(long[] mask, int cell) {
+    mask[cell >>> 6] |= 1L << cell;
+  }
+
+  /**
+   *  Removes cell from mask.
+   **/
+  static void clear(long[] mask, int cell) {
+    mask[cell >>> 6] &= ~(1L << cell);
+  }
+
+  /**
+   *  Returns true if cell is in mask.
+   **/
+  static boolean has(long[] mask, int cell) {
+    return (mask[cell >>> 6] & 1L << cell) != 0;
+  }
+
+  /**
+   *  Returns true if a and b have a cell in common.
+   **/
+  static boolean intersects(long[] a, long[] b) {
+    for (int w = 0; w < a.length; w++) {
+      if ((a[w] & b[w]) != 0) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   *  Returns the number of cells in mask.
+   **/
+  static int count(long[] mask) {
+    int n = 0;
+    for (int w = 0; w < mask.length; w++) {
+      n += Long.bitCount(mask[w]);
+    }
+    return n;
+  }
+
+  /**
+   *  Writes and reads back the tables of every size from MIN_DIMENSION to
+   *  MAX_DIMENSION and returns the sizes whose tables read back differ from
+   *  those computed, or none.
+   **/
+  static String check() throws IOException {
+    String failed = "";
+    for (int dimension = MIN_DIMENSION; dimension <= MAX_DIMENSION; dimension++) {
+      Geometry computed = new Geometry(dimension);
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      DataOutputStream out = new DataOutputStream(bytes);
+      computed.write(out);
+      out.close();
+      DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+      Geometry read = new Geometry(in);
+      if (read.dimension != dimension || in.available() != 0
+          || !Arrays.deepEquals(read.zobrist, computed.zobrist)
+          || read.sideToMove != computed.sideToMove
+          || !Arrays.equals(read.ray, computed.ray)
+          || !Arrays.equals(read.neighbors, computed.neighbors)
+          || !Arrays.deepEquals(read.book, computed.book)) {
+        failed += " " + dimension;
+      }
+    }
+    return failed;
+  }
+
+  public static void main(String[] args) throws IOException {
+    if (args.length == 1 && args[0].equals(CHECK)) {
+      String failed = check();
+      if (failed.length() > 0) {
+        System.out.println("tables read back differ for sizes" + failed);
+        System.exit(1);
+      }
+      System.out.println("tables of sizes " + MIN_DIMENSION + " to " + MAX_DIMENSION
+                         + " read back unchanged");
+      return;
+    }
+    String file = args.length > 0 ? args[0] : RESOURCE;
+    int[] sizes = {Board.DIMENSION};
+    if (args.length > 1) {
+      sizes = new int[args.length - 1];
+      for (int i = 1; i < args.length; i++) {
+        sizes[i - 1] = Integer.parseInt(args[i]);
+      }
+    }
+    DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+      new FileOutputStream(file)));
+    try {
+      out.writeInt(MAGIC);
+      out.writeByte(sizes.length);
+      for (int dimension : sizes) {
+        if (dimension < MIN_DIMENSION || dimension > MAX_DIMENSION) {
+          throw new IllegalArgumentException("dimension must be " + MIN_DIMENSION + " to "
+                                             + MAX_DIMENSION);
+        }
+        new Geometry(dimension).write(out);
+      }
+    } finally {
+      out.close();
+    }
+    System.out.println("wrote the tables of " + sizes.length + " sizes to " + file);
+  }
+}
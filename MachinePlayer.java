@@ -2,7 +2,17 @@
 
 package player;
 
-
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  *  An implementation of an automatic Network player. Keeps track of moves
@@ -12,45 +22,184 @@ package player;
 public class MachinePlayer extends Player {
 
   /**
-   *  DEPTH references the default searchDepth the first constructor chooses.
    *  board references the current Board the game is at.
-   *  searchDepth references the number of moves the game tree search makes
-   *  before it calls an evaluation function to evaluate the board.
    *  color references the color this MachinePlayer is assigned to.
-   *  MACHINE_WIN references the maximum score which is assigned when the board
-   *  has an immediate win for this MachinePlayer.
-   *  OPPONENT_WIN references the minimum score which is assigned when the board
-   *  has an immediate win for the opponent.
+   *  ALPHA_BETA and MONTE_CARLO are the search engines the four-argument
+   *  constructor can choose.
+   *  config references the configuration this MachinePlayer was built from,
+   *  and engine the SearchEngine it built.
+   *  analysis references the alpha-beta engine analyze() runs, which is
+   *  engine unless that is not an AlphaBetaEngine.
+   *  nodes references the number of nodes visited by the last search.
+   *  DEADLINES references the shared timer that completes time-limited
+   *  searches at their deadline, and current the running one, if any.
+   *  depthReached references the depth of the last search, or of the
+   *  deepest complete iteration of the last time-limited search.
+   *  SOLVERS holds the idle proof-number solvers that look for a forced
+   *  network before every search. They are shared by all players: a solve
+   *  takes one, or makes one if none is idle, and puts it back, so there
+   *  are only as many node tables as solves ever ran at once, not one per
+   *  player. SOLVE_CHIPS references the number of chips this player needs
+   *  before a network within SOLVE_DEPTH moves is possible at all,
+   *  SOLVE_NODES the most nodes a solver may expand per move and
+   *  SOLVER_SIZE the size of a solver's node table.
+   *  reductions, researches and futilityPrunes count the reduced searches,
+   *  the reduced searches repeated to the full depth and the pruned moves
+   *  of the last search. tableProbes and tableHits count the best-move
+   *  table lookups of the last search and those that found a valid move.
+   *  id identifies this player in Profiling events, and PLAYERS counts the
+   *  players created.
+   *  WARM_UP holds the positions warmUp() searches, as Board.parse() reads
+   *  them, one in the placing phase and one in the stepping phase, and
+   *  WARMED whether a player has warmed up the JVM.
    **/
 
-  final static private int DEPTH = 4;
   private Board board;
-  private int searchDepth;
   private int color;
-  final static private int MACHINE_WIN = 100;
-  final static private int OPPONENT_WIN = -100;
+  final static public int ALPHA_BETA = 0;
+  final static public int MONTE_CARLO = 1;
+  private final EngineConfig config;
+  private final SearchEngine engine;
+  private AlphaBetaEngine analysis;
+  private long nodes;
+  final static private ScheduledExecutorService DEADLINES =
+    Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+      public Thread newThread(Runnable r) {
+        Thread t = new Thread(r, "MachinePlayer deadlines");
+        t.setDaemon(true);
+        return t;
+      }
+    });
+  private volatile Search current;
+  private int depthReached;
+  final static private int SOLVE_DEPTH = 3;
+  final static private int SOLVE_CHIPS = 4;
+  final static private int SOLVE_NODES = 1000;
+  final static private int SOLVER_SIZE = 1 << 16;
+  final static private ConcurrentLinkedQueue<ProofNumberSearch> SOLVERS =
+    new ConcurrentLinkedQueue<ProofNumberSearch>();
+  private long reductions;
+  private long researches;
+  private long futilityPrunes;
+  private long tableProbes;
+  private long tableHits;
+  final static private AtomicLong PLAYERS = new AtomicLong();
+  private final long id = PLAYERS.incrementAndGet();
+  final static private String[] WARM_UP = {
+    "..........W......BB......W....W..............WB...........B.....",
+    ".B.B.B...W..W....WB.B.W...B..W..W.WW..B..B..........WW.......BB.",
+  };
+  final static private AtomicBoolean WARMED = new AtomicBoolean();
 
   /**
-   *  Creates a machine player with the given color. Color is either 0 (black)
-   *  or 1 (white). (White has the first move.)
+   *  Creates a machine player with the given color and the startup
+   *  configuration (see EngineConfig). Color is either 0 (black) or 1
+   *  (white). (White has the first move.)
    *  @param color is the color this MachinePlayer is assigned to.
    **/ 
   public MachinePlayer(int color) {
-    this.color = color;
-    board = new Board(color);
-    searchDepth = DEPTH; 
+    this(color, EngineConfig.startup());
   }
 
   /**
-   *  Creates a machine player with the given color and search depth. Color is
-   *  either 0 (black) or 1 (white). (White has the first move.)
+   *  Creates a machine player with the given color and search depth, and
+   *  the startup configuration otherwise. Color is either 0 (black) or 1
+   *  (white). (White has the first move.)
    *  @param color is the color this MachinePlayer is assigned to.
-   *  @param searchDepth is the searchDepth to be stored.
+   *  @param searchDepth is the alpha-beta search depth.
    **/
   public MachinePlayer(int color, int searchDepth) {
+    this(color, EngineConfig.startup().setDepth(searchDepth));
+  }
+
+  /**
+   *  Creates a machine player with the given color, search depth and size of
+   *  its best-move table, and the startup configuration otherwise. A small
+   *  table keeps the player small when many games are hosted at once.
+   *  @param color is the color this MachinePlayer is assigned to.
+   *  @param searchDepth is the alpha-beta search depth.
+   *  @param tableBits is the base-2 logarithm of the number of table slots.
+   **/
+  public MachinePlayer(int color, int searchDepth, int tableBits) {
+    this(color, EngineConfig.startup().setDepth(searchDepth).setTableBits(tableBits));
+  }
+
+  /**
+   *  Creates a machine player with the given color, search depth and search
+   *  engine, and the startup configuration otherwise. The Monte Carlo
+   *  engine ignores the search depth and searches for timeBudget
+   *  milliseconds on all available cores; the alpha-beta engine deepens
+   *  until timeBudget runs out, if it is not 0.
+   *  @param color is the color this MachinePlayer is assigned to.
+   *  @param searchDepth is the alpha-beta search depth.
+   *  @param engine is either ALPHA_BETA or MONTE_CARLO.
+   *  @param timeBudget is the time in milliseconds a search may take.
+   **/
+  public MachinePlayer(int color, int searchDepth, int engine, long timeBudget) {
+    this(color, EngineConfig.startup().setDepth(searchDepth).setTimeBudget(timeBudget)
+         .setEngine(engine == MONTE_CARLO ? EngineConfig.MONTE_CARLO : EngineConfig.ALPHA_BETA));
+  }
+
+  /**
+   *  Creates a machine player with the given color that chooses its moves
+   *  as config says. Color is either 0 (black) or 1 (white). (White has the
+   *  first move.) The first player of the JVM whose configuration has a
+   *  warm-up runs it before it returns; see warmUp().
+   *  @param color is the color this MachinePlayer is assigned to.
+   *  @param config is the configuration; it is copied.
+   *  @throws IllegalArgumentException if config has no valid engine, or
+   *  its evaluator has no network.
+   **/
+  public MachinePlayer(int color, EngineConfig config) {
     this.color = color;
-    board = new Board(color);
-    this.searchDepth = searchDepth;
+    this.config = config.copy();
+    board = new Board(color, this.config.dimension());
+    prepare(board, this.config);
+    engine = this.config.createEngine();
+    if (this.config.warmUp() > 0 && WARMED.compareAndSet(false, true)) {
+      warmUp(this.config);
+    }
+  }
+
+  /**
+   *  Sets board up to be searched as config says: scored with its weights,
+   *  or with its network if the alpha-beta engine uses the NNUE evaluator,
+   *  and keeping its components if the alpha-beta engine uses them.
+   *  @throws IllegalArgumentException if that evaluator has no network.
+   **/
+  private static void prepare(Board board, EngineConfig config) {
+    board.weights = config.weights();
+    boolean alphaBeta = config.engine().equals(EngineConfig.ALPHA_BETA);
+    board.setComponents(alphaBeta && config.components());
+    if (config.evaluator().equals(EngineConfig.NNUE) && alphaBeta) {
+      if (config.network() == null) {
+        throw new IllegalArgumentException("the nnue evaluator needs a network");
+      }
+      board.setNetwork(config.network());
+    }
+  }
+
+  /**
+   *  Spends config.warmUp() milliseconds choosing moves in the WARM_UP
+   *  positions with throwaway players configured like config, taking
+   *  turns between the positions and colors, so the JIT has compiled the
+   *  solver, the engine and the evaluation before the first real move
+   *  needs them. The players search on the standard board, which runs the
+   *  same code as any other size.
+   **/
+  private static void warmUp(EngineConfig config) {
+    long budget = config.warmUp();
+    long slice = Math.max(1, budget / (2 * WARM_UP.length));
+    EngineConfig c = config.copy().setDimension(Board.DIMENSION).setWarmUp(0);
+    long end = System.nanoTime() + budget * 1000000;
+    for (int i = 0; end - System.nanoTime() > 0; i++) {
+      int color = i / WARM_UP.length % 2;
+      long left = Math.max(1, (end - System.nanoTime()) / 1000000);
+      MachinePlayer p = new MachinePlayer(color, c.copy().setTimeBudget(Math.min(slice, left)));
+      p.board = Board.parse(WARM_UP[i % WARM_UP.length], color);
+      prepare(p.board, c);
+      p.chooseMove();
+    }
   }
 
   /**
@@ -58,94 +207,326 @@ public class MachinePlayer extends Player {
    *  the internal game board) as a move by "this" player.
    *  @return a new best move chosen by this MachinePlayer.
    **/
-  public Move chooseMove() {
-    if (board.totalChips(color) == 0) {
-      if (color == 0) {
-        Move first = new Move(3,0);
-        board.updateBoard(first,color);
-        return first;
-      } else {
-        Move first = new Move(0,3);
-        board.updateBoard(first,color);
-        return first;
+  public synchronized Move chooseMove() {
+    Profiling.ChooseMove event = Profiling.beginChooseMove();
+    long budget = config.timeBudget();
+    Search search = new Search(board, budget == 0 ? 0 : System.nanoTime() + budget * 1000000);
+    search.event = event;
+    Move m = selectMove(search);
+    recordCounters(search);
+    commit(search, m);
+    return m;
+  }
+
+  /**
+   *  Chooses the move chooseMove() returns, recording the engine that chose
+   *  it and the depth it reached in search.
+   **/
+  private Move selectMove(Search search) {
+    Move opening = openingMove();
+    if (opening != null) {
+      search.engine = "book";
+      board.updateBoard(opening, color);
+      return opening;
+    }
+    Move m = forcedWin(search);
+    if (m == null) {
+      search.engine = config.engine();
+      m = engine.search(search, color);
+    }
+    board.updateBoard(m, color);
+    engine.chosen(search, m);
+    return m;
+  }
+
+  /**
+   *  Fills in and commits the Profiling event of search, if it has one and
+   *  the recorder wants it, for the move m. The counters of search must
+   *  have been recorded.
+   **/
+  private void commit(Search search, Move m) {
+    Profiling.ChooseMove event = search.event;
+    if (event != null && event.shouldCommit()) {
+      event.player = id;
+      event.engine = search.engine;
+      event.color = Profiling.colorName(color);
+      event.move = m.toString();
+      event.depth = depthReached;
+      event.nodes = nodes;
+      event.tableProbes = tableProbes;
+      event.tableHitRate = tableProbes == 0 ? 0 : (float) tableHits / tableProbes;
+      event.commit();
+    }
+  }
+
+  /**
+   *  Returns the fixed first or second move of this MachinePlayer, or null
+   *  once it has placed two chips.
+   **/
+  private Move openingMove() {
+    int chips = board.totalChips(color);
+    if (chips < 2) {
+      int cell = board.geometry.book[color][chips];
+      return new Move(cell / board.dimension, cell % board.dimension);
+    }
+    return null;
+  }
+
+  /**
+   *  Starts choosing a new move by "this" player on the common ForkJoinPool
+   *  and returns at once. See chooseMoveAsync(Duration, Executor).
+   *  @param budget is the time the search may take.
+   *  @return a future completed with the chosen move.
+   **/
+  public CompletableFuture<Move> chooseMoveAsync(Duration budget) {
+    return chooseMoveAsync(budget, ForkJoinPool.commonPool());
+  }
+
+  /**
+   *  Starts choosing a new move by "this" player and returns at once. The
+   *  engine searches on the given executor on a copy of the board until the
+   *  budget runs out; the alpha-beta engine deepens one ply at a time until
+   *  then, a forced result is found or it reaches its deepest iteration.
+   *  The future is completed with the best move of the deepest complete
+   *  iteration, at the latest when the budget runs out, and the move is
+   *  then recorded on the internal game board. Cancelling the future stops
+   *  the search and records no move. Until the future completes, neither
+   *  opponentMove() nor forceMove() may be called.
+   *  @param budget is the time the search may take.
+   *  @param executor runs the search.
+   *  @return a future completed with the chosen move.
+   **/
+  public CompletableFuture<Move> chooseMoveAsync(Duration budget, Executor executor) {
+    final CompletableFuture<Move> future = new CompletableFuture<Move>();
+    Profiling.ChooseMove event = Profiling.beginChooseMove();
+    synchronized (this) {
+      Move opening = openingMove();
+      if (opening != null) {
+        board.updateBoard(opening, color);
+        Search book = new Search(board, 0);
+        book.engine = "book";
+        book.event = event;
+        recordCounters(book);
+        commit(book, opening);
+        future.complete(opening);
+        return future;
       }
-    } else if(board.totalChips(color) == 1) {
-      if (color == 0) {
-        Move second = new Move(4,7);
-        board.updateBoard(second,color);
-        return second;
-      } else {
-        Move second = new Move(7,4);
-        board.updateBoard(second,color);
-        return second;
+      final Search search = new Search(board.copyBoard(), System.nanoTime() + budget.toNanos());
+      search.event = event;
+      search.engine = config.engine();
+      DList moves = search.board.allValidMoves(color);
+      try {
+        search.best = moves.length() > 0 ? (Move) moves.front().item() : new Move();
+      } catch (InvalidNodeException e) {
+        search.best = new Move();
       }
+      current = search;
+      future.whenComplete((m, e) -> {
+        search.stop = true;
+        if (current == search) {
+          current = null;
+        }
+      });
+      executor.execute(() -> {
+        run(search);
+        finish(search, future);
+      });
+      DEADLINES.schedule(() -> finish(search, future), budget.toNanos(), TimeUnit.NANOSECONDS);
     }
-    int alpha = OPPONENT_WIN;
-    int beta = MACHINE_WIN;
-    boolean side = true;
-    if (board.totalChips(color) == 10) {
-      this.searchDepth = 1;
+    return future;
+  }
+
+  /**
+   *  Returns the best move found so far by the running chooseMoveAsync()
+   *  search, or null if no search is running.
+   **/
+  public Move currentBestMove() {
+    Search search = current;
+    return search == null ? null : search.best;
+  }
+
+  /**
+   *  Runs the solver and then, if it finds no forced network, the engine
+   *  on search, which records the result of every complete iteration.
+   **/
+  private void run(Search search) {
+    Move win = forcedWin(search);
+    if (win != null) {
+      search.best = win;
+      return;
     }
-    try {
-      Best myBest = abTree(side, color, searchDepth, alpha, beta);	 
-      board.updateBoard(myBest.getMove(), this.color);			     
-      return myBest.getMove();
-    } catch (InvalidNodeException e) {
-      return new Move();
-    }									     
-  }
-
-  /**
-   *  abTree() uses minimax algorithm and alpha-beta pruning to search game tree
-   *  to the given search depth and returns a Best object which contains the 
-   *  best Move and the score of the board.
-   *  @param side is true if it is this MachinePlayer's turn to make a move, 
-   *  and false if it is the opponent's turn.
-   *  @param color is the color to make the next move.
-   *  @param depth is the search depth in game tree search.
-   *  @param alpha is the initial value of alpha in alpha-beta pruning.
-   *  @param beta is the initial value of beta in alpha-beta pruning.
-   *  @return Best object which contains the best Move and the score of the board.
-   **/
-  private Best abTree(boolean side, int color, int depth, int alpha, int beta) throws InvalidNodeException {
-    Best myBest = new Best();
-    DList allValidMoves = board.allValidMoves(color);
-    DListNode current = (DListNode) allValidMoves.front();
-    myBest.setMove((Move)current.item());
-    Best reply;
-    if (depth == 0 || board.hasNetwork(color) || board.hasNetwork(1-color)) {
-      myBest.setScore(board.score(searchDepth-depth, 1-color));
-      return myBest;   
-    } 
-    if (side) {				 
-      myBest.setScore(alpha);  	
-    } else {
-      myBest.setScore(beta);	
+    engine.search(search, color);
+  }
+
+  /**
+   *  Returns a move that forces a network for this player within
+   *  SOLVE_DEPTH moves, as proven by the proof-number solver on the board
+   *  of search, or null; search then records the solver as its engine. The
+   *  solver's nodes are added to search.nodes. Returns null at once if the
+   *  configuration turns the solver off.
+   **/
+  private Move forcedWin(Search search) {
+    if (!config.solver() || search.board.totalChips(color) < SOLVE_CHIPS) {
+      return null;
+    }
+    ProofNumberSearch solver = SOLVERS.poll();
+    if (solver == null) {
+      solver = new ProofNumberSearch(SOLVER_SIZE);
     }
     try {
-      for (int i = 0; i < allValidMoves.length(); i ++) { 
-        Move currentMove = (Move) current.item();
-        board.updateBoard(currentMove, color);
-        reply = abTree(!side, opponentColor(color), depth-1, alpha, beta );
-        board.retrieveBoard(currentMove, color);
-        if (side && reply.getScore() > myBest.getScore()) {
-	  myBest.setMove(currentMove);
-          myBest.setScore((int) reply.getScore());
-          alpha = (int) reply.getScore();
-        } else if(!side && reply.getScore() < myBest.getScore()) {
-	  myBest.setMove(currentMove);
-          myBest.setScore((int)reply.getScore());
-          beta = (int) reply.getScore();
-        }
-        if (alpha >= beta) {
-          return myBest;
-        }
-        current = (DListNode)current.next();
+      int result = solver.solve(search.board, color, color, SOLVE_DEPTH, SOLVE_NODES,
+                                search::isStopped);
+      search.nodes += solver.nodes();
+      if (result == ProofNumberSearch.PROVEN) {
+        Move win = solver.provingMove();
+        search.pv = new int[] {search.board.encode(win)};
+        search.engine = "solver";
+        search.completedDepth = SOLVE_DEPTH;
+        return win;
       }
-    } catch (InvalidNodeException e) {
-      System.err.println(e);
+    } finally {
+      SOLVERS.offer(solver);
     }
-    return myBest;
+    return null;
+  }
+
+  /**
+   *  Returns the bytes of the node table of one shared solver.
+   **/
+  static long solverBytes() {
+    return ProofNumberSearch.tableBytes(SOLVER_SIZE);
+  }
+
+  /**
+   *  Completes future with the best move of search, unless it is already
+   *  complete, and records the move on the internal game board. The
+   *  counters of search are recorded first, so a caller woken by the
+   *  future reads those of this search.
+   **/
+  private synchronized void finish(Search search, CompletableFuture<Move> future) {
+    if (future.isDone()) {
+      return;
+    }
+    Move m = search.best;
+    board.updateBoard(m, color);
+    recordCounters(search);
+    if (future.complete(m)) {
+      commit(search, m);
+      engine.chosen(search, m);
+    } else {
+      board.retrieveBoard(m, color);
+    }
+  }
+
+  /**
+   *  Returns the count best moves of "this" player in the current position,
+   *  from best to worst, each with its score and principal variation. No
+   *  move is made. The root moves share one alpha-beta search to the given
+   *  depth, run by AlphaBetaEngine.analyze(), whatever engine this player
+   *  chooses its moves with. Fewer than count Candidates are returned if
+   *  there are fewer valid moves.
+   *  @param count is the number of moves to rank, at least 1.
+   *  @param depth is the search depth, at least 1.
+   *  @param threads is the number of threads to search with, at least 1.
+   *  @return the ranked Candidates.
+   **/
+  public synchronized Candidate[] analyze(int count, int depth, int threads) {
+    if (count < 1 || depth < 1 || threads < 1) {
+      throw new IllegalArgumentException("count, depth and threads must be at least 1");
+    }
+    if (analysis == null) {
+      analysis = engine instanceof AlphaBetaEngine ? (AlphaBetaEngine) engine
+        : new AlphaBetaEngine(config);
+    }
+    Search total = new Search(board, 0);
+    Candidate[] candidates = analysis.analyze(board, color, count, depth, threads, total);
+    recordCounters(total);
+    return candidates;
+  }
+
+  /**
+   *  Returns the number of nodes visited by the last search.
+   **/
+  synchronized long nodeCount() {
+    return nodes;
+  }
+
+  /**
+   *  Records the depth and counters of search as those of the last search.
+   **/
+  private void recordCounters(Search search) {
+    nodes = search.nodes;
+    depthReached = search.completedDepth;
+    tableProbes = search.tableProbes;
+    tableHits = search.tableHits;
+    reductions = search.reductions;
+    researches = search.researches;
+    futilityPrunes = search.futilityPrunes;
+  }
+
+  /**
+   *  Returns the number of moves the last search reduced.
+   **/
+  synchronized long reductions() {
+    return reductions;
+  }
+
+  /**
+   *  Returns the number of reduced moves the last search searched again to
+   *  the full depth.
+   **/
+  synchronized long researches() {
+    return researches;
+  }
+
+  /**
+   *  Returns the number of moves the last search skipped by futility
+   *  pruning.
+   **/
+  synchronized long futilityPrunes() {
+    return futilityPrunes;
+  }
+
+  /**
+   *  Returns a copy of the configuration this player was built from, with
+   *  any changes made by the setters below.
+   **/
+  public synchronized EngineConfig getConfig() {
+    return config.copy();
+  }
+
+  /**
+   *  Turns late-move reductions in the alpha-beta search on or off.
+   *  @param on is true to reduce late moves.
+   **/
+  public synchronized void setLateMoveReductions(boolean on) {
+    config.setLateMoveReductions(on);
+  }
+
+  /**
+   *  Turns futility pruning in the alpha-beta search on or off.
+   *  @param on is true to prune futile moves near the leaves.
+   **/
+  public synchronized void setFutilityPruning(boolean on) {
+    config.setFutilityPruning(on);
+  }
+
+  /**
+   *  Sets the weights this player's evaluation function uses; see Weights.
+   *  @param weights holds Weights.SIZE weights.
+   **/
+  public synchronized void setWeights(double[] weights) {
+    config.setWeights(weights);
+    board.weights = config.weights();
+  }
+
+  /**
+   *  Returns the depth of the last search, or of the deepest iteration the
+   *  last time-limited search completed; 0 if the move came from the
+   *  opening book or had to fall back to the first valid move.
+   **/
+  synchronized int depthReached() {
+    return depthReached;
   }
 
   /**
@@ -155,9 +536,10 @@ public class MachinePlayer extends Player {
    *  player. This method allows your opponents to inform you of their moves.
    *  @param m is the Move by the opponent.
    **/
-  public boolean opponentMove(Move m) {
+  public synchronized boolean opponentMove(Move m) {
     if (board.isValidMove(m, 1 - board.color)) {
       board.updateBoard(m, 1 - board.color);
+      engine.opponentMoved(m);
       return true;
     } else {
       return false;
@@ -172,34 +554,13 @@ public class MachinePlayer extends Player {
    *  player to solve.
    *  @param m is the desired Move to be made.
    **/
-  public boolean forceMove(Move m) {
+  public synchronized boolean forceMove(Move m) {
     if (board.isValidMove(m, board.color)) {
       board.updateBoard(m, board.color);
+      engine.reset();
       return true;
     } else {
       return false;
     }
   }
-
-  /**
-   *  Returns the color of the other side.
-   *  @param color is either 0 (black) or 1 (white).
-   **/
-  private int opponentColor(int color) {
-    if (color == Board.BLACK) {
-      return Board.WHITE;
-    }
-    return Board.BLACK;
-  }
 }
-
-
-
-
-
-
-
-
-
-
-
@@ -0,0 +1,61 @@
+/* MonteCarloEngine.java */
+
+package player;
+
+/**
+ *  A SearchEngine that runs a MonteCarloTree search on the threads of its
+ *  EngineConfig for its time budget, or until the deadline of a
+ *  time-limited search. The tree is built anew for every move, so the
+ *  engine keeps nothing between moves.
+ **/
+
+public class MonteCarloEngine implements SearchEngine {
+
+  /**
+   *  TREE_SIZE references the number of nodes in the Monte Carlo tree, and
+   *  tree the tree, created by the first search.
+   **/
+  final static private int TREE_SIZE = 1 << 20;
+  private final EngineConfig config;
+  private MonteCarloTree tree;
+
+  /**
+   *  Creates an engine that searches as config says.
+   *  @param config is the configuration to read; it is not copied.
+   **/
+  MonteCarloEngine(EngineConfig config) {
+    this.config = config;
+  }
+
+  /**
+   *  Searches search.board for a move of color; see SearchEngine. The
+   *  workers stop at their next playout once search is stopped, and a
+   *  search that starts while a stopped one is still unwinding waits for
+   *  it, since they share the tree. The number of playouts is added to
+   *  search.nodes.
+   **/
+  public synchronized Move search(Search search, int color) {
+    if (tree == null) {
+      tree = new MonteCarloTree(TREE_SIZE);
+    }
+    long budget = config.timeBudget();
+    if (search.deadline != 0) {
+      budget = Math.max(1, (search.deadline - System.nanoTime()) / 1000000);
+    }
+    Move m = tree.search(search.board, color, budget, config.threads(), search::isStopped);
+    search.nodes += tree.playouts();
+    if (!search.isStopped()) {
+      search.best = m;
+    }
+    return m;
+  }
+
+  public void chosen(Search search, Move m) {
+  }
+
+  public void opponentMoved(Move m) {
+  }
+
+  public void reset() {
+  }
+}
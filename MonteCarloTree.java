@@ -0,0 +1,296 @@
+/* MonteCarloTree.java */
+
+package player;
+
+import java.util.function.BooleanSupplier;
+
+/**
+ *  A Monte Carlo tree search (UCT) engine. The tree is kept in a fixed pool of
+ *  nodes stored in parallel arrays; the children of a node occupy one
+ *  contiguous block of the pool. Several worker threads share the tree (tree
+ *  parallelism). Each worker walks down the tree on its own copy of the
+ *  Board, adding a virtual loss to every node on its path so that the other
+ *  workers spread out, then finishes the game with a random playout (see
+ *  Playout) and backs the result up.
+ **/
+
+public class MonteCarloTree {
+
+  /**
+   *  EXPLORATION references the UCT exploration constant.
+   *  VIRTUAL_LOSS references the number of lost visits a worker adds to every
+   *  node on its path until it backs its result up.
+   *  PLAYOUT_LIMIT references the number of moves after which a playout is
+   *  counted as a draw.
+   *  MAX_PATH references the deepest path a worker may walk in the tree.
+   *  UNEXPANDED and EXPANDING are the values of numChildren for a node whose
+   *  children have not been generated yet, or are being generated by a worker.
+   **/
+
+  final static private double EXPLORATION = 1.0;
+  final static private int VIRTUAL_LOSS = 3;
+  final static private int PLAYOUT_LIMIT = 60;
+  final static private int MAX_PATH = 64;
+  final static private int UNEXPANDED = -1;
+  final static private int EXPANDING = -2;
+
+  /**
+   *  capacity references the number of nodes in the pool and size the number
+   *  of nodes in use. parent, firstChild, numChildren, moves (packed by
+   *  Board.encodeMove()), visits and wins hold one entry per node. wins is
+   *  counted for the player who made the move leading to the node.
+   *  lock guards every access to the node arrays.
+   **/
+
+  private final int capacity;
+  private int size;
+  private final int[] parent;
+  private final int[] firstChild;
+  private final int[] numChildren;
+  private final int[] moves;
+  private final int[] visits;
+  private final float[] wins;
+  private final Object lock = new Object();
+  private Board rootBoard;
+  private int rootColor;
+  private long deadline;
+  private BooleanSupplier stop;
+  private long playouts;
+
+  /**
+   *  Creates a tree whose node pool holds the given number of nodes.
+   *  @param capacity is the number of nodes in the pool.
+   **/
+  public MonteCarloTree(int capacity) {
+    this.capacity = capacity;
+    parent = new int[capacity];
+    firstChild = new int[capacity];
+    numChildren = new int[capacity];
+    moves = new int[capacity];
+    visits = new int[capacity];
+    wins = new float[capacity];
+  }
+
+  /**
+   *  Searches from the given Board until the time budget runs out, the node
+   *  pool is full or stop returns true, and returns the most visited move
+   *  for the given color. The given Board is not modified. The tree runs
+   *  one search at a time; a second caller waits for the first.
+   *  @param board is the Board to search from.
+   *  @param color is the color to move.
+   *  @param timeBudget is the search time in milliseconds.
+   *  @param threads is the number of worker threads.
+   *  @param stop is polled by every worker before each playout; the search
+   *  ends once it returns true.
+   *  @return the most visited root move, or a quit Move if there is none.
+   **/
+  public synchronized Move search(Board board, int color, long timeBudget, int threads,
+                     BooleanSupplier stop) {
+    this.stop = stop;
+    rootBoard = board;
+    rootColor = color;
+    size = 1;
+    playouts = 0;
+    parent[0] = -1;
+    numChildren[0] = UNEXPANDED;
+    visits[0] = 0;
+    wins[0] = 0;
+    deadline = System.currentTimeMillis() + timeBudget;
+    Thread[] workers = new Thread[threads];
+    for (int i = 0; i < threads; i++) {
+      workers[i] = new Thread(new Worker(board.copyBoard()));
+      workers[i].start();
+    }
+    for (int i = 0; i < threads; i++) {
+      try {
+        workers[i].join();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+    int best = -1;
+    for (int i = 0; i < numChildren[0]; i++) {
+      int child = firstChild[0] + i;
+      if (best < 0 || visits[child] > visits[best]) {
+        best = child;
+      }
+    }
+    if (best < 0) {
+      return new Move();
+    }
+    return board.decode(moves[best]);
+  }
+
+  /**
+   *  Returns the number of playouts made by the last search.
+   **/
+  public long playouts() {
+    return playouts;
+  }
+
+  /**
+   *  Returns the number of nodes used by the last search.
+   **/
+  public int nodes() {
+    return size;
+  }
+
+  /**
+   *  Returns the child of node with the highest UCT value, counting virtual
+   *  losses. Must be called while holding lock.
+   *  @param node is a node whose children have been generated.
+   **/
+  private int select(int node) {
+    int best = firstChild[node];
+    double bestValue = -1;
+    double logVisits = Math.log(visits[node] + 1);
+    for (int i = 0; i < numChildren[node]; i++) {
+      int child = firstChild[node] + i;
+      if (visits[child] == 0) {
+        return child;
+      }
+      double value = wins[child] / visits[child]
+        + EXPLORATION * Math.sqrt(logVisits / visits[child]);
+      if (value > bestValue) {
+        bestValue = value;
+        best = child;
+      }
+    }
+    return best;
+  }
+
+  /**
+   *  Returns the color that has won on board after lastMover moved, or -1 if
+   *  neither color has a network. A move that completes networks for both
+   *  colors loses.
+   *  @param board is the Board to check.
+   *  @param lastMover is the color that made the last move.
+   **/
+  static int winner(Board board, int lastMover) {
+    try {
+      if (board.hasNetwork(1 - lastMover)) {
+        return 1 - lastMover;
+      } else if (board.hasNetwork(lastMover)) {
+        return lastMover;
+      }
+    } catch (InvalidNodeException e) {
+      System.err.println(e);
+    }
+    return -1;
+  }
+
+  /**
+   *  A Worker repeatedly selects a leaf, expands it, plays a random game from
+   *  it and backs the result up until the search runs out of time or is
+   *  stopped.
+   **/
+  private class Worker implements Runnable {
+
+    private final Board board;
+    private final int[] path = new int[MAX_PATH];
+    private final Move[] pathMoves = new Move[MAX_PATH];
+
+    Worker(Board board) {
+      this.board = board;
+    }
+
+    public void run() {
+      while (System.currentTimeMillis() < deadline && !stop.getAsBoolean()) {
+        if (!iterate()) {
+          return;
+        }
+      }
+    }
+
+    /**
+     *  Runs one select-expand-playout-backup iteration and returns false if
+     *  the tree could not grow any further.
+     **/
+    private boolean iterate() {
+      int depth = 0;
+      int node = 0;
+      int toMove = rootColor;
+      boolean expand = false;
+      synchronized (lock) {
+        path[0] = 0;
+        visits[0] += VIRTUAL_LOSS;
+        while (numChildren[node] > 0 && depth < MAX_PATH - 1) {
+          node = select(node);
+          path[++depth] = node;
+          visits[node] += VIRTUAL_LOSS;
+          pathMoves[depth] = rootBoard.decode(moves[node]);
+        }
+        if (numChildren[node] == UNEXPANDED && (visits[node] > VIRTUAL_LOSS || node == 0)) {
+          numChildren[node] = EXPANDING;
+          expand = true;
+        }
+      }
+      for (int d = 1; d <= depth; d++) {
+        board.updateBoard(pathMoves[d], toMove);
+        toMove = 1 - toMove;
+      }
+      Playout kernel = Playout.local();
+      kernel.load(board);
+      int winner = depth > 0 ? kernel.winner(1 - toMove) : -1;
+      boolean full = false;
+      if (expand) {
+        full = expand(node, winner >= 0, toMove);
+      }
+      if (winner < 0) {
+        winner = kernel.play(toMove, PLAYOUT_LIMIT);
+      }
+      for (int d = depth; d >= 1; d--) {
+        toMove = 1 - toMove;
+        board.retrieveBoard(pathMoves[d], toMove);
+      }
+      synchronized (lock) {
+        playouts++;
+        for (int d = depth; d >= 0; d--) {
+          int n = path[d];
+          visits[n] += 1 - VIRTUAL_LOSS;
+          int mover = (d % 2 == 1) ? rootColor : 1 - rootColor;
+          if (winner == mover) {
+            wins[n] += 1;
+          } else if (winner < 0) {
+            wins[n] += 0.5f;
+          }
+        }
+      }
+      return !full || depth > 0;
+    }
+
+    /**
+     *  Generates the children of node on this Worker's board and publishes
+     *  them in the pool. Returns true if the pool was too full to hold them.
+     **/
+    private boolean expand(int node, boolean terminal, int toMove) {
+      DList list = terminal ? new DList() : board.allValidMoves(toMove);
+      synchronized (lock) {
+        int n = list.length();
+        if (size + n > capacity) {
+          numChildren[node] = UNEXPANDED;
+          return true;
+        }
+        int first = size;
+        size += n;
+        try {
+          ListNode current = list.front();
+          for (int i = 0; i < n; i++) {
+            int child = first + i;
+            parent[child] = node;
+            numChildren[child] = UNEXPANDED;
+            moves[child] = rootBoard.encode((Move) current.item());
+            visits[child] = 0;
+            wins[child] = 0;
+            current = current.next();
+          }
+        } catch (InvalidNodeException e) {
+          System.err.println(e);
+        }
+        firstChild[node] = first;
+        numChildren[node] = n;
+      }
+      return false;
+    }
+  }
+}
@@ -0,0 +1,69 @@
+/* MoveTable.java */
+
+package player;
+
+import java.util.Arrays;
+
+/**
+ *  A MoveTable remembers the best move found for each searched position,
+ *  keyed by the position's Zobrist key (see Board.key()). A later search
+ *  tries the remembered move first. The table has a fixed number of slots;
+ *  a new entry replaces whatever was in its slot.
+ **/
+
+public class MoveTable {
+
+  /**
+   *  keys and moves hold the Zobrist key and the packed best move (see
+   *  Board.encodeMove()) of each slot; a move of NONE marks an empty slot.
+   *  mask selects a slot from a key.
+   **/
+
+  final static int NONE = -1;
+  private final long[] keys;
+  private final int[] moves;
+  private final int mask;
+
+  /**
+   *  Creates an empty table with 2^bits slots.
+   *  @param bits is the base-2 logarithm of the number of slots.
+   **/
+  public MoveTable(int bits) {
+    keys = new long[1 << bits];
+    moves = new int[1 << bits];
+    mask = (1 << bits) - 1;
+    clear();
+  }
+
+  /**
+   *  Records move as the best move of the position with the given key.
+   *  @param key is the Zobrist key of the position.
+   *  @param move is the packed best move.
+   **/
+  void put(long key, int move) {
+    int slot = (int) key & mask;
+    keys[slot] = key;
+    moves[slot] = move;
+  }
+
+  /**
+   *  Returns the packed best move recorded for the position with the given
+   *  key, or NONE.
+   *  @param key is the Zobrist key of the position.
+   **/
+  int get(long key) {
+    int slot = (int) key & mask;
+    if (keys[slot] == key) {
+      return moves[slot];
+    }
+    return NONE;
+  }
+
+  /**
+   *  Removes all entries.
+   **/
+  void clear() {
+    Arrays.fill(keys, 0);
+    Arrays.fill(moves, NONE);
+  }
+}
@@ -0,0 +1,223 @@
+/* Network.java */
+
+package player;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ *  A small quantized neural network that Board.score() can use in place of
+ *  its weighted features, in the style of the NNUE evaluators of chess
+ *  engines. Its inputs are the chips on the board, each as its color, its
+ *  cell and its number of connections (as Board.connectionCount() counts
+ *  them, up to BUCKETS - 1), seen from the point of view of each color: a
+ *  chip is one of its own or one of the other color's, and black sees the
+ *  board transposed, so both colors' goals are the first and last rows.
+ *
+ *  The first layer maps every input to hidden values; the sum over the
+ *  chips on the board of these, plus a bias, is the accumulator of a
+ *  color, which Accumulator keeps up to date as chips are placed, moved
+ *  and taken back, so a move only changes the rows of the chips it adds,
+ *  removes or changes the connections of. The output is a weighted sum of
+ *  the two accumulators, the mover's first, each clipped to 0 to SCALE,
+ *  and is the score of the position for the color to move in the units of
+ *  Board.score(). All arithmetic is on integers: the first layer holds
+ *  activations times SCALE, and the output weights are scaled by
+ *  OUTPUT_SCALE.
+ *
+ *  The network in use at startup is read from the file named by the system
+ *  property player.network, or from FILE in the working directory if it
+ *  exists; otherwise there is none. A network file holds MAGIC, the board
+ *  dimension (byte), the number of hidden values (short), then the input
+ *  weights (shorts, by input and then hidden value), the hidden biases
+ *  (shorts), the output weights (shorts, the mover's first) and the output
+ *  bias (int). NetworkTrainer writes it.
+ **/
+
+public class Network {
+
+  /**
+   *  BUCKETS references the connection counts an input tells apart, SCALE
+   *  the first-layer value of an activation of 1 and OUTPUT_SCALE the
+   *  output weight of 1. MAGIC begins a network file, FILE is the default
+   *  file of the startup network and STARTUP that network, or null.
+   **/
+  final static int BUCKETS = 5;
+  final static int SCALE = 127;
+  final static int OUTPUT_SCALE = 64;
+  final static private int MAGIC = 0x4E4E5545;
+  final static String FILE = "network.bin";
+  final static Network STARTUP = startup();
+
+  /**
+   *  dimension references the size of the boards this network scores,
+   *  cells its number of cells, hidden the number of hidden values and
+   *  inputs the number of inputs. input holds the first-layer weights,
+   *  hidden per input, bias the first-layer biases, output the output
+   *  weights of the mover's hidden values and then the other's, and
+   *  outputBias the output bias, in units of SCALE * OUTPUT_SCALE.
+   *  orient maps each cell to the cell black sees it as (0) and white (1).
+   **/
+  final int dimension;
+  final int cells;
+  final int hidden;
+  final int inputs;
+  final short[] input;
+  final short[] bias;
+  final short[] output;
+  final int outputBias;
+  final int[][] orient;
+
+  /**
+   *  Creates a network from its weights; see the fields.
+   **/
+  Network(int dimension, int hidden, short[] input, short[] bias, short[] output,
+          int outputBias) {
+    this.dimension = dimension;
+    cells = dimension * dimension;
+    this.hidden = hidden;
+    inputs = 2 * cells * BUCKETS;
+    if (input.length != inputs * hidden || bias.length != hidden
+        || output.length != 2 * hidden) {
+      throw new IllegalArgumentException("network weights do not fit " + hidden
+                                         + " hidden values");
+    }
+    this.input = input;
+    this.bias = bias;
+    this.output = output;
+    this.outputBias = outputBias;
+    orient = new int[2][cells];
+    for (int x = 0; x < dimension; x++) {
+      for (int y = 0; y < dimension; y++) {
+        orient[Board.WHITE][x * dimension + y] = x * dimension + y;
+        orient[Board.BLACK][x * dimension + y] = y * dimension + x;
+      }
+    }
+  }
+
+  /**
+   *  Returns the index in input of the row of a chip of the given color on
+   *  cell with the given connections, seen by perspective.
+   **/
+  int row(int perspective, int color, int cell, int connections) {
+    int own = color == perspective ? 0 : 1;
+    int bucket = connections < BUCKETS ? connections : BUCKETS - 1;
+    return ((own * cells + orient[perspective][cell]) * BUCKETS + bucket) * hidden;
+  }
+
+  /**
+   *  Returns the input of a chip of the given color on cell with the given
+   *  connections, seen by perspective, on boards of the given size: its
+   *  row in input divided by hidden.
+   **/
+  static int input(int dimension, int perspective, int color, int cell, int connections) {
+    int seen = perspective == Board.WHITE ? cell
+      : cell % dimension * dimension + cell / dimension;
+    int own = color == perspective ? 0 : 1;
+    int bucket = connections < BUCKETS ? connections : BUCKETS - 1;
+    return (own * dimension * dimension + seen) * BUCKETS + bucket;
+  }
+
+  /**
+   *  Returns the score of the position whose accumulators are given for
+   *  the color to move, rounded to the units of Board.score().
+   *  @param mover is the accumulator of the color to move.
+   *  @param other is the accumulator of the other color.
+   **/
+  int score(short[] mover, short[] other) {
+    int sum = outputBias;
+    for (int h = 0; h < hidden; h++) {
+      int a = mover[h];
+      sum += (a < 0 ? 0 : a > SCALE ? SCALE : a) * output[h];
+    }
+    for (int h = 0; h < hidden; h++) {
+      int a = other[h];
+      sum += (a < 0 ? 0 : a > SCALE ? SCALE : a) * output[hidden + h];
+    }
+    int unit = SCALE * OUTPUT_SCALE;
+    return sum >= 0 ? (sum + unit / 2) / unit : -((unit / 2 - sum) / unit);
+  }
+
+  /**
+   *  Returns the network to use at startup, or null.
+   **/
+  static Network startup() {
+    String name = System.getProperty("player.network");
+    Path file = Path.of(name != null ? name : FILE);
+    if (name == null && !Files.exists(file)) {
+      return null;
+    }
+    try {
+      return load(file);
+    } catch (IOException | IllegalArgumentException e) {
+      System.err.println("cannot read network from " + file + ": " + e.getMessage());
+      return null;
+    }
+  }
+
+  /**
+   *  Reads a network file.
+   *  @param file is the file to read.
+   *  @return the network.
+   *  @throws IOException if the file is not a network file.
+   **/
+  static Network load(Path file) throws IOException {
+    DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)));
+    try {
+      if (in.readInt() != MAGIC) {
+        throw new IOException("not a network file");
+      }
+      int dimension = in.readUnsignedByte();
+      if (dimension < Geometry.MIN_DIMENSION || dimension > Geometry.MAX_DIMENSION) {
+        throw new IOException("bad dimension " + dimension);
+      }
+      int hidden = in.readUnsignedShort();
+      short[] input = readShorts(in, 2 * dimension * dimension * BUCKETS * hidden);
+      short[] bias = readShorts(in, hidden);
+      short[] output = readShorts(in, 2 * hidden);
+      int outputBias = in.readInt();
+      return new Network(dimension, hidden, input, bias, output, outputBias);
+    } finally {
+      in.close();
+    }
+  }
+
+  /**
+   *  Writes this network to a network file.
+   *  @param file is the file to write.
+   **/
+  void save(Path file) throws IOException {
+    DataOutputStream out = new DataOutputStream(
+      new BufferedOutputStream(Files.newOutputStream(file)));
+    try {
+      out.writeInt(MAGIC);
+      out.writeByte(dimension);
+      out.writeShort(hidden);
+      writeShorts(out, input);
+      writeShorts(out, bias);
+      writeShorts(out, output);
+      out.writeInt(outputBias);
+    } finally {
+      out.close();
+    }
+  }
+
+  private static short[] readShorts(DataInputStream in, int count) throws IOException {
+    short[] values = new short[count];
+    for (int i = 0; i < count; i++) {
+      values[i] = in.readShort();
+    }
+    return values;
+  }
+
+  private static void writeShorts(DataOutputStream out, short[] values) throws IOException {
+    for (short v : values) {
+      out.writeShort(v);
+    }
+  }
+}
@@ -0,0 +1,497 @@
+/* NetworkTrainer.java */
+
+package player;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ *  Trains a Network on the results of recorded games. Every position of
+ *  every game but the last is an example: the chips on the board, the
+ *  color to move and the game result for that color (1 for a win, 0 for a
+ *  loss, 1/2 for no winner). As TexelTuner does for the weights, the fit
+ *  minimizes the mean squared difference between the result and
+ *  sigmoid(k * score); k is the scale TexelTuner fits for the startup
+ *  weights on the same games, so the network scores in the units of
+ *  Board.score().
+ *
+ *  The network is trained in floating point with Adam on minibatches of
+ *  shuffled examples, then quantized as Network describes and written to
+ *  the output file. Every HOLD_OUT-th game is kept out of the training; the
+ *  network after the pass with the lowest error on its positions is kept,
+ *  and that error, before and after quantization, and the error of the
+ *  startup weights are printed. With -match n
+ *  budget, n games are then played between players using the weights and
+ *  the network, at budget milliseconds per move.
+ *
+ *  Usage: java player.NetworkTrainer [-hidden n] [-epochs n] [-match games budget]
+ *                                    output records...
+ **/
+
+public class NetworkTrainer {
+
+  /**
+   *  HIDDEN and EPOCHS reference the default number of hidden values and
+   *  passes over the examples, BATCH the examples per step, RATE, BETA1
+   *  and BETA2 the parameters of Adam, and HOLD_OUT the share of games
+   *  kept out. LIMIT bounds the first-layer weights, so the quantized
+   *  accumulators cannot overflow. OPENING references the number of random
+   *  opening moves of the match games.
+   **/
+  final static private int HIDDEN = 32;
+  final static private int EPOCHS = 6;
+  final static private int BATCH = 256;
+  final static private double RATE = 0.002;
+  final static private double BETA1 = 0.9;
+  final static private double BETA2 = 0.999;
+  final static private int HOLD_OUT = 10;
+  final static private double LIMIT = 4;
+  final static private int OPENING = 6;
+
+  /**
+   *  dimension, cells and inputs describe the boards of the examples (see
+   *  Network), and hidden the network trained. The examples are held in
+   *  parallel arrays: chips holds the chips of all examples, each as
+   *  (color * cells + cell) * BUCKETS + connections, and start the index
+   *  of the first chip of each example, with one more entry at the end;
+   *  toMove holds the color to move, result the result for it in halves,
+   *  weightsScore the score of the startup weights for it and held whether
+   *  the example is kept out. count references the number of examples and
+   *  games the number of games read.
+   **/
+  private final int dimension = Board.DIMENSION;
+  private final int cells = dimension * dimension;
+  private final int inputs = 2 * cells * Network.BUCKETS;
+  private final int hidden;
+  private short[] chips = new short[1 << 16];
+  private int[] start = new int[1 << 12];
+  private byte[] toMove = new byte[1 << 12];
+  private byte[] result = new byte[1 << 12];
+  private int[] weightsScore = new int[1 << 12];
+  private boolean[] held = new boolean[1 << 12];
+  private int count;
+  private int games;
+
+  /**
+   *  inputOf maps each chip code of chips to its input as seen by each
+   *  color. The parameters of the network in floating point are w, the
+   *  first-layer weights (hidden per input), b the first-layer biases, v
+   *  the output weights and c the output bias; the output is the logit
+   *  k * score, not the score. acc holds the accumulators of the example
+   *  last run through forward().
+   **/
+  private final int[][] inputOf;
+  private final double[] w;
+  private final double[] b;
+  private final double[] v;
+  private double c;
+  private final double[][] acc;
+
+  /**
+   *  Creates a trainer of a network with the given number of hidden values.
+   **/
+  NetworkTrainer(int hidden) {
+    this.hidden = hidden;
+    inputOf = new int[2][inputs];
+    for (int color = 0; color < 2; color++) {
+      for (int cell = 0; cell < cells; cell++) {
+        for (int k = 0; k < Network.BUCKETS; k++) {
+          int code = (color * cells + cell) * Network.BUCKETS + k;
+          for (int p = 0; p < 2; p++) {
+            inputOf[p][code] = Network.input(dimension, p, color, cell, k);
+          }
+        }
+      }
+    }
+    w = new double[inputs * hidden];
+    b = new double[hidden];
+    v = new double[2 * hidden];
+    acc = new double[2][hidden];
+    Random random = new Random(11);
+    for (int i = 0; i < w.length; i++) {
+      w[i] = (random.nextDouble() - 0.5) * 0.2;
+    }
+    Arrays.fill(b, 0.5);
+    for (int i = 0; i < v.length; i++) {
+      v[i] = (random.nextDouble() - 0.5) * 0.2;
+    }
+  }
+
+  /**
+   *  Reads all games of a file of GameRecords and adds their positions.
+   *  @param file is the file to read.
+   **/
+  void read(Path file) throws IOException {
+    GameRecordReader reader = new GameRecordReader(file);
+    try {
+      GameRecord record;
+      while ((record = reader.next()) != null) {
+        add(record, games++ % HOLD_OUT == 0);
+      }
+    } finally {
+      reader.close();
+    }
+  }
+
+  /**
+   *  Adds every position of record but the last, which ends the game.
+   **/
+  private void add(GameRecord record, boolean heldOut) {
+    int white = record.winner() == Board.WHITE ? 2 : record.winner() == Board.BLACK ? 0 : 1;
+    Board board = new Board(Board.WHITE);
+    int[] f = new int[Weights.SIZE];
+    for (int i = 0; i < record.length() - 1; i++) {
+      board.updateBoard(record.move(i), i % 2 == 0 ? Board.WHITE : Board.BLACK);
+      int mover = i % 2 == 0 ? Board.BLACK : Board.WHITE;
+      grow(board.totalChips());
+      int n = start[count];
+      for (int color = 0; color < 2; color++) {
+        long[] mask = board.chipMask[color];
+        for (int k = 0; k < mask.length; k++) {
+          for (long bits = mask[k]; bits != 0; bits &= bits - 1) {
+            int cell = k << 6 | Long.numberOfTrailingZeros(bits);
+            int connections = Math.min(Accumulator.connectionsOf(board, cell, color),
+                                       Network.BUCKETS - 1);
+            chips[n++] = (short) ((color * cells + cell) * Network.BUCKETS + connections);
+          }
+        }
+      }
+      start[count + 1] = n;
+      toMove[count] = (byte) mover;
+      result[count] = (byte) (mover == Board.WHITE ? white : 2 - white);
+      board.features(f);
+      double sum = 0;
+      for (int j = 0; j < Weights.SIZE; j++) {
+        sum += Board.WEIGHTS[j] * f[j];
+      }
+      int score = Math.max(-100, Math.min(100, (int) Math.round(sum)));
+      weightsScore[count] = mover == Board.WHITE ? score : -score;
+      held[count] = heldOut;
+      count++;
+    }
+  }
+
+  /**
+   *  Makes room for one more example with the given number of chips.
+   **/
+  private void grow(int more) {
+    if (count + 2 > start.length) {
+      int size = 2 * start.length;
+      start = Arrays.copyOf(start, size);
+      toMove = Arrays.copyOf(toMove, size);
+      result = Arrays.copyOf(result, size);
+      weightsScore = Arrays.copyOf(weightsScore, size);
+      held = Arrays.copyOf(held, size);
+    }
+    if (start[count] + more > chips.length) {
+      chips = Arrays.copyOf(chips, 2 * chips.length);
+    }
+  }
+
+  /**
+   *  Returns the number of examples read.
+   **/
+  int size() {
+    return count;
+  }
+
+  /**
+   *  Returns the activation of an accumulator value.
+   **/
+  private static double clip(double a) {
+    return a < 0 ? 0 : a > 1 ? 1 : a;
+  }
+
+  /**
+   *  Computes the accumulators of example e into acc and returns the
+   *  output of the network for it.
+   **/
+  private double forward(int e) {
+    for (int p = 0; p < 2; p++) {
+      double[] a = acc[p];
+      System.arraycopy(b, 0, a, 0, hidden);
+      for (int i = start[e]; i < start[e + 1]; i++) {
+        int row = inputOf[p][chips[i]] * hidden;
+        for (int h = 0; h < hidden; h++) {
+          a[h] += w[row + h];
+        }
+      }
+    }
+    double[] mover = acc[toMove[e]];
+    double[] other = acc[1 - toMove[e]];
+    double z = c;
+    for (int h = 0; h < hidden; h++) {
+      z += v[h] * clip(mover[h]) + v[hidden + h] * clip(other[h]);
+    }
+    return z;
+  }
+
+  /**
+   *  Adds the gradient of the squared error of example e, whose output
+   *  forward() has just computed as z, to gw, gb, gv and gc[0].
+   **/
+  private void backward(int e, double z, double[] gw, double[] gb, double[] gv, double[] gc) {
+    double predicted = 1 / (1 + Math.exp(-z));
+    double dz = 2 * (predicted - result[e] / 2.0) * predicted * (1 - predicted);
+    gc[0] += dz;
+    for (int side = 0; side < 2; side++) {
+      int p = side == 0 ? toMove[e] : 1 - toMove[e];
+      double[] a = acc[p];
+      int offset = side * hidden;
+      for (int h = 0; h < hidden; h++) {
+        double d = a[h] > 0 && a[h] < 1 ? dz * v[offset + h] : 0;
+        gv[offset + h] += dz * clip(a[h]);
+        a[h] = d;
+        gb[h] += d;
+      }
+      for (int i = start[e]; i < start[e + 1]; i++) {
+        int row = inputOf[p][chips[i]] * hidden;
+        for (int h = 0; h < hidden; h++) {
+          gw[row + h] += a[h];
+        }
+      }
+    }
+  }
+
+  /**
+   *  Takes step t of Adam on the parameters p with the gradient g and the
+   *  moments m and s, keeping each parameter within limit.
+   **/
+  private static void adam(double[] p, double[] g, double[] m, double[] s, int t, double limit) {
+    double c1 = 1 - Math.pow(BETA1, t);
+    double c2 = 1 - Math.pow(BETA2, t);
+    for (int i = 0; i < p.length; i++) {
+      m[i] = BETA1 * m[i] + (1 - BETA1) * g[i];
+      s[i] = BETA2 * s[i] + (1 - BETA2) * g[i] * g[i];
+      double x = p[i] - RATE * (m[i] / c1) / (Math.sqrt(s[i] / c2) + 1e-12);
+      p[i] = x < -limit ? -limit : x > limit ? limit : x;
+      g[i] = 0;
+    }
+  }
+
+  /**
+   *  Trains the network for the given number of passes over the examples
+   *  that are not held out, printing the error on the held-out ones after
+   *  each, and keeps the parameters of the pass with the lowest error.
+   **/
+  void train(int epochs) {
+    int[] order = new int[count];
+    int n = 0;
+    for (int e = 0; e < count; e++) {
+      if (!held[e]) {
+        order[n++] = e;
+      }
+    }
+    double[] gw = new double[w.length];
+    double[] gb = new double[hidden];
+    double[] gv = new double[v.length];
+    double[] gc = new double[1];
+    double[][] m = {new double[w.length], new double[hidden], new double[v.length], new double[1]};
+    double[][] s = {new double[w.length], new double[hidden], new double[v.length], new double[1]};
+    double[] bias = new double[1];
+    Random random = new Random(13);
+    int t = 0;
+    double best = heldOutError();
+    double[][] kept = {w.clone(), b.clone(), v.clone(), {c}};
+    for (int epoch = 1; epoch <= epochs; epoch++) {
+      long began = System.nanoTime();
+      for (int i = n - 1; i > 0; i--) {
+        int j = random.nextInt(i + 1);
+        int swap = order[i];
+        order[i] = order[j];
+        order[j] = swap;
+      }
+      for (int from = 0; from < n; from += BATCH) {
+        int to = Math.min(n, from + BATCH);
+        for (int i = from; i < to; i++) {
+          backward(order[i], forward(order[i]), gw, gb, gv, gc);
+        }
+        double scale = 1.0 / (to - from);
+        for (int i = 0; i < gw.length; i++) {
+          gw[i] *= scale;
+        }
+        for (int h = 0; h < hidden; h++) {
+          gb[h] *= scale;
+        }
+        for (int i = 0; i < gv.length; i++) {
+          gv[i] *= scale;
+        }
+        gc[0] *= scale;
+        t++;
+        adam(w, gw, m[0], s[0], t, LIMIT);
+        adam(b, gb, m[1], s[1], t, LIMIT);
+        adam(v, gv, m[2], s[2], t, Double.MAX_VALUE);
+        bias[0] = c;
+        adam(bias, gc, m[3], s[3], t, Double.MAX_VALUE);
+        c = bias[0];
+      }
+      double error = heldOutError();
+      System.out.printf("epoch %d: held-out error %.6f, %.1f s%n", epoch, error,
+                        (System.nanoTime() - began) / 1e9);
+      if (error < best) {
+        best = error;
+        kept = new double[][] {w.clone(), b.clone(), v.clone(), {c}};
+      }
+    }
+    System.arraycopy(kept[0], 0, w, 0, w.length);
+    System.arraycopy(kept[1], 0, b, 0, hidden);
+    System.arraycopy(kept[2], 0, v, 0, v.length);
+    c = kept[3][0];
+  }
+
+  /**
+   *  Returns the mean squared error of the floating-point network on the
+   *  held-out examples.
+   **/
+  double heldOutError() {
+    double sum = 0;
+    int n = 0;
+    for (int e = 0; e < count; e++) {
+      if (held[e]) {
+        double predicted = 1 / (1 + Math.exp(-forward(e)));
+        double difference = result[e] / 2.0 - predicted;
+        sum += difference * difference;
+        n++;
+      }
+    }
+    return sum / Math.max(1, n);
+  }
+
+  /**
+   *  Returns the mean squared error on the held-out examples of the
+   *  network, if it is not null, and of the startup weights otherwise,
+   *  with scale k.
+   **/
+  double heldOutError(Network network, double k) {
+    short[][] values = new short[2][];
+    double sum = 0;
+    int n = 0;
+    for (int e = 0; e < count; e++) {
+      if (!held[e]) {
+        continue;
+      }
+      int score = weightsScore[e];
+      if (network != null) {
+        for (int p = 0; p < 2; p++) {
+          values[p] = network.bias.clone();
+          for (int i = start[e]; i < start[e + 1]; i++) {
+            int row = inputOf[p][chips[i]] * hidden;
+            for (int h = 0; h < hidden; h++) {
+              values[p][h] += network.input[row + h];
+            }
+          }
+        }
+        score = Math.max(-100, Math.min(100, network.score(values[toMove[e]],
+                                                           values[1 - toMove[e]])));
+      }
+      double predicted = 1 / (1 + Math.exp(-k * score));
+      double difference = result[e] / 2.0 - predicted;
+      sum += difference * difference;
+      n++;
+    }
+    return sum / Math.max(1, n);
+  }
+
+  /**
+   *  Returns the network quantized for scale k; see Network.
+   **/
+  Network quantize(double k) {
+    short[] input = new short[w.length];
+    for (int i = 0; i < w.length; i++) {
+      input[i] = toShort(w[i] * Network.SCALE);
+    }
+    short[] bias = new short[hidden];
+    for (int h = 0; h < hidden; h++) {
+      bias[h] = toShort(b[h] * Network.SCALE);
+    }
+    short[] output = new short[v.length];
+    for (int i = 0; i < v.length; i++) {
+      output[i] = toShort(v[i] / k * Network.OUTPUT_SCALE);
+    }
+    int outputBias = (int) Math.round(c / k * Network.SCALE * Network.OUTPUT_SCALE);
+    return new Network(dimension, hidden, input, bias, output, outputBias);
+  }
+
+  /**
+   *  Returns x rounded to a short, clipped to its range.
+   **/
+  private static short toShort(double x) {
+    return (short) Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, Math.round(x)));
+  }
+
+  /**
+   *  Plays games between a player using the startup weights and one using
+   *  network, at budget milliseconds per move each, from random openings
+   *  with colors swapped, and prints the results.
+   **/
+  static void match(int games, long budget, Network network) {
+    int[] wins = new int[3];
+    Random random = new Random(37);
+    Move[] opening = null;
+    for (int g = 0; g < games; g++) {
+      if (g % 2 == 0) {
+        opening = EngineMatch.randomOpening(random, OPENING);
+      }
+      int networkColor = g % 2;
+      EngineConfig config = EngineConfig.startup().setTimeBudget(budget).setWarmUp(0);
+      MachinePlayer[] players = new MachinePlayer[2];
+      players[networkColor] = new MachinePlayer(networkColor, config.copy()
+        .setEvaluator(EngineConfig.NNUE).setNetwork(network));
+      players[1 - networkColor] = new MachinePlayer(1 - networkColor, config);
+      int winner = EngineMatch.playGame(players, opening, new long[2], new int[2]);
+      wins[winner < 0 ? 2 : winner == networkColor ? 0 : 1]++;
+    }
+    System.out.println("network " + wins[0] + ", weights " + wins[1] + ", draws " + wins[2]);
+  }
+
+  public static void main(String[] args) throws IOException {
+    int hidden = HIDDEN;
+    int epochs = EPOCHS;
+    int games = 0;
+    long budget = 0;
+    int first = 0;
+    while (first < args.length && args[first].startsWith("-")) {
+      if (args[first].equals("-hidden") && first + 1 < args.length) {
+        hidden = Integer.parseInt(args[first + 1]);
+        first += 2;
+      } else if (args[first].equals("-epochs") && first + 1 < args.length) {
+        epochs = Integer.parseInt(args[first + 1]);
+        first += 2;
+      } else if (args[first].equals("-match") && first + 2 < args.length) {
+        games = Integer.parseInt(args[first + 1]);
+        budget = Long.parseLong(args[first + 2]);
+        first += 3;
+      } else {
+        break;
+      }
+    }
+    if (args.length < first + 2) {
+      System.err.println("usage: java player.NetworkTrainer [-hidden n] [-epochs n] "
+                         + "[-match games budget] output records...");
+      System.exit(2);
+    }
+    Path output = Path.of(args[first]);
+    NetworkTrainer trainer = new NetworkTrainer(hidden);
+    TexelTuner tuner = new TexelTuner();
+    long began = System.nanoTime();
+    for (int i = first + 1; i < args.length; i++) {
+      trainer.read(Path.of(args[i]));
+      tuner.read(Path.of(args[i]));
+    }
+    double k = tuner.fitScale(Board.WEIGHTS);
+    System.out.printf("%d positions of %d games, k %.5f, read in %.1f s%n", trainer.size(),
+                      trainer.games, k, (System.nanoTime() - began) / 1e9);
+
+    trainer.train(epochs);
+    Network network = trainer.quantize(k);
+    System.out.printf("held-out error: weights %.6f, network %.6f, quantized %.6f%n",
+                      trainer.heldOutError(null, k), trainer.heldOutError(),
+                      trainer.heldOutError(network, k));
+    network.save(output);
+    if (games > 0) {
+      match(games, budget, network);
+    }
+  }
+}
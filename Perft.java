@@ -0,0 +1,95 @@
+/* Perft.java */
+
+package player;
+
+/**
+ *  Counts the leaf nodes of the full game tree to a given depth, using
+ *  Board.allValidMoves(), updateBoard() and retrieveBoard(). The counts of a
+ *  few positions in both the ADD and the STEP phase are checked in below, so
+ *  a change to move generation can be checked for correctness and speed.
+ *  Networks do not end the tree; only move generation is counted.
+ *
+ *  A position is written as Board.parse() reads it: 64 characters, one row
+ *  after the other, 'B' for black, 'W' for white and '.' for empty.
+ *
+ *  Usage: java player.Perft
+ *         java player.Perft position color depth
+ **/
+
+public class Perft {
+
+  /**
+   *  SUITE holds the checked-in positions, each as position, color to move,
+   *  depth and expected number of leaf nodes.
+   **/
+  final static private String[][] SUITE = {
+    {"................................................................", "1", "1", "48"},
+    {"................................................................", "1", "2", "2268"},
+    {"................................................................", "1", "3", "104904"},
+    {"................................................................", "1", "4", "4773960"},
+    {"..........W......BB......W....W..............WB...........B.....", "1", "1", "39"},
+    {"..........W......BB......W....W..............WB...........B.....", "1", "2", "1343"},
+    {"..........W......BB......W....W..............WB...........B.....", "1", "3", "44112"},
+    {"..........W......BB......W....W..............WB...........B.....", "0", "3", "41898"},
+    {".B.B.B...W..W....WB.B.W...B..W..W.WW..B..B..........WW.......BB.", "1", "1", "123"},
+    {".B.B.B...W..W....WB.B.W...B..W..W.WW..B..B..........WW.......BB.", "1", "2", "23706"},
+    {".B.B.B...W..W....WB.B.W...B..W..W.WW..B..B..........WW.......BB.", "1", "3", "3315865"},
+    {".B.B.B...W..W....WB.B.W...B..W..W.WW..B..B..........WW.......BB.", "0", "2", "23503"},
+  };
+
+  /**
+   *  Returns the number of leaf nodes depth moves below board, color to move.
+   *  @param board is the Board to count from; it is restored on return.
+   *  @param color is the color to move.
+   *  @param depth is the number of moves to make.
+   **/
+  static long perft(Board board, int color, int depth) throws InvalidNodeException {
+    DList moves = board.allValidMoves(color);
+    if (depth <= 1) {
+      return depth == 1 ? moves.length() : 1;
+    }
+    long nodes = 0;
+    ListNode current = moves.front();
+    for (int i = 0; i < moves.length(); i++) {
+      Move m = (Move) current.item();
+      board.updateBoard(m, color);
+      nodes += perft(board, 1 - color, depth - 1);
+      board.retrieveBoard(m, color);
+      current = current.next();
+    }
+    return nodes;
+  }
+
+  /**
+   *  Counts one position and prints the count and the speed. Returns the
+   *  number of leaf nodes.
+   **/
+  static long run(String position, int color, int depth) throws InvalidNodeException {
+    Board board = Board.parse(position, Board.WHITE);
+    long start = System.nanoTime();
+    long nodes = perft(board, color, depth);
+    long elapsed = Math.max(1, System.nanoTime() - start);
+    System.out.printf("%s %d %d: %d nodes, %.0f nodes/s%n", position, color, depth,
+                      nodes, nodes * 1e9 / elapsed);
+    return nodes;
+  }
+
+  public static void main(String[] args) throws InvalidNodeException {
+    if (args.length == 3) {
+      run(args[0], Integer.parseInt(args[1]), Integer.parseInt(args[2]));
+      return;
+    }
+    int failures = 0;
+    for (int i = 0; i < SUITE.length; i++) {
+      long nodes = run(SUITE[i][0], Integer.parseInt(SUITE[i][1]), Integer.parseInt(SUITE[i][2]));
+      if (nodes != Long.parseLong(SUITE[i][3])) {
+        System.out.println("  expected " + SUITE[i][3]);
+        failures++;
+      }
+    }
+    System.out.println(failures == 0 ? "all counts match" : failures + " counts differ");
+    if (failures > 0) {
+      System.exit(1);
+    }
+  }
+}
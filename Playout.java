@@ -0,0 +1,392 @@
+/* Playout.java */
+
+package player;
+
+/**
+ *  A fast random playout kernel. A Playout keeps its own flat copy of a
+ *  position, picks uniformly random legal moves by rejection sampling instead
+ *  of generating move lists, and only runs its network search when the
+ *  color that just moved (or, after a STEP, the color that may have been
+ *  unblocked) has chips in both goal areas and at least six chips. No
+ *  objects are allocated once a Playout has been created, so each thread
+ *  should keep its own instance, e.g. through Playout.local().
+ **/
+
+public class Playout {
+
+  /**
+   *  MIN_NETWORK references the minimum number of chips in a network.
+   *  REJECTIONS references the number of random candidates tried before
+   *  falling back to counting the legal moves.
+   **/
+
+  final static private int MIN_NETWORK = Geometry.MIN_NETWORK;
+  final static private int REJECTIONS = 256;
+
+  final static private ThreadLocal<Playout> LOCAL = new ThreadLocal<Playout>() {
+    protected Playout initialValue() {
+      return new Playout(System.nanoTime() ^ Thread.currentThread().getId());
+    }
+  };
+
+  /**
+   *  geometry references the tables of the size of the loaded position; a
+   *  cell is numbered as in Geometry. cellCount, ray, rayLength, neighbors and
+   *  maxChips copy its number of cells, rays, ray length, neighbor lists
+   *  and chips per color.
+   *  cells holds BLACK, WHITE or EMPTY for each cell and saved the position
+   *  given to load(). chips holds the cells of each color's chips and
+   *  chipIndex the position of a chip in chips. count, startGoal and endGoal
+   *  hold the number of chips of each color on the board and in its two goal
+   *  areas. visited holds the mask of the chips on the path hasNetwork()
+   *  follows. seed is the state of the xorshift generator. plies counts the
+   *  moves made by all playouts.
+   **/
+
+  private Geometry geometry;
+  private int cellCount;
+  private int[] ray;
+  private int rayLength;
+  private int[] neighbors;
+  private int maxChips;
+  private int[] cells;
+  private int[] saved;
+  private int[][] chips;
+  private int[] chipIndex;
+  private final int[] count = new int[2];
+  private final int[] startGoal = new int[2];
+  private final int[] endGoal = new int[2];
+  private long[] visited;
+  private long seed;
+  private long plies;
+
+  /**
+   *  Creates a Playout whose random generator starts from the given seed.
+   *  @param seed is any value; zero is replaced by a fixed constant.
+   **/
+  public Playout(long seed) {
+    this.seed = seed == 0 ? 0x9E3779B97F4A7C15L : seed;
+    resize(Geometry.of(Board.DIMENSION));
+  }
+
+  /**
+   *  Makes this Playout work on boards of the size of geometry, with an
+   *  empty position.
+   **/
+  private void resize(Geometry geometry) {
+    this.geometry = geometry;
+    cellCount = geometry.cells;
+    ray = geometry.ray;
+    rayLength = geometry.rayLength;
+    neighbors = geometry.neighbors;
+    maxChips = geometry.chips;
+    cells = new int[cellCount];
+    saved = new int[cellCount];
+    chips = new int[2][maxChips];
+    chipIndex = new int[cellCount];
+    visited = new long[geometry.words];
+    for (int cell = 0; cell < cellCount; cell++) {
+      saved[cell] = Board.EMPTY;
+    }
+  }
+
+  /**
+   *  Returns this thread's Playout.
+   **/
+  public static Playout local() {
+    return LOCAL.get();
+  }
+
+  /**
+   *  Copies the position of the given Board into this Playout. Every call to
+   *  play() starts from this position. A Board of another size than the
+   *  last one loaded costs new arrays.
+   *  @param board is the Board to be copied.
+   **/
+  public void load(Board board) {
+    if (board.geometry != geometry) {
+      resize(board.geometry);
+    }
+    int dimension = board.dimension;
+    for (int x = 0; x < dimension; x++) {
+      for (int y = 0; y < dimension; y++) {
+        saved[x * dimension + y] = board.getColor(x, y);
+      }
+    }
+    reset();
+  }
+
+  /**
+   *  Plays random moves from the loaded position, starting with the given
+   *  color, until a color wins or limit moves have been made.
+   *  @param toMove is the color to move first.
+   *  @param limit is the maximum number of moves.
+   *  @return the winning color, or -1 if the playout ended without a winner.
+   **/
+  public int play(int toMove, int limit) {
+    return play(toMove, limit, null);
+  }
+
+  /**
+   *  Plays random moves as play(int, int) and appends each one to record.
+   *  @param toMove is the color to move first.
+   *  @param limit is the maximum number of moves.
+   *  @param record is the GameRecord the moves are appended to, or null.
+   *  @return the winning color, or -1 if the playout ended without a winner.
+   **/
+  public int play(int toMove, int limit, GameRecord record) {
+    reset();
+    for (int i = 0; i < limit; i++) {
+      int code = randomMove(toMove);
+      if (code < 0) {
+        return -1;
+      }
+      plies++;
+      if (record != null) {
+        record.addPackedMove(code, 0, 0, 0, 0);
+      }
+      int to = code & 0xff;
+      if ((code >>> 16) == Move.STEP) {
+        int from = (code >>> 8) & 0xff;
+        remove(from);
+        place(to, toMove);
+        if (hasNetwork(1 - toMove)) {
+          return 1 - toMove;
+        }
+      } else {
+        place(to, toMove);
+      }
+      if (hasNetwork(toMove)) {
+        return toMove;
+      }
+      toMove = 1 - toMove;
+    }
+    return -1;
+  }
+
+  /**
+   *  Returns the color that has won in the loaded position after lastMover
+   *  moved, or -1 if neither color has a network. A move that completes
+   *  networks for both colors loses.
+   *  @param lastMover is the color that made the last move.
+   **/
+  public int winner(int lastMover) {
+    if (hasNetwork(1 - lastMover)) {
+      return 1 - lastMover;
+    } else if (hasNetwork(lastMover)) {
+      return lastMover;
+    }
+    return -1;
+  }
+
+  /**
+   *  Returns the number of moves made by all playouts of this Playout.
+   **/
+  public long plies() {
+    return plies;
+  }
+
+  /**
+   *  Returns a uniformly random legal move for color, packed as by
+   *  Board.encodeMove(), or -1 if color has no legal move.
+   *  @param color is the color to move.
+   **/
+  int randomMove(int color) {
+    if (count[color] < maxChips) {
+      for (int i = 0; i < REJECTIONS; i++) {
+        int to = nextInt(cellCount);
+        if (cells[to] == Board.EMPTY && isLegal(to, -1, color)) {
+          return Move.ADD << 16 | to;
+        }
+      }
+    } else {
+      for (int i = 0; i < REJECTIONS; i++) {
+        int from = chips[color][nextInt(maxChips)];
+        int to = nextInt(cellCount);
+        if (cells[to] == Board.EMPTY && isLegal(to, from, color)) {
+          return Move.STEP << 16 | from << 8 | to;
+        }
+      }
+    }
+    return countedMove(color);
+  }
+
+  /**
+   *  Picks a uniformly random legal move by counting all of them, for the
+   *  rare positions in which rejection sampling keeps missing.
+   **/
+  private int countedMove(int color) {
+    int sources = count[color] < maxChips ? 1 : maxChips;
+    int legal = 0;
+    for (int pass = 0; pass < 2; pass++) {
+      int pick = pass == 0 ? -1 : nextInt(legal);
+      for (int s = 0; s < sources; s++) {
+        int from = sources == 1 ? -1 : chips[color][s];
+        for (int to = 0; to < cellCount; to++) {
+          if (cells[to] == Board.EMPTY && isLegal(to, from, color)) {
+            if (pass == 0) {
+              legal++;
+            } else if (pick-- == 0) {
+              return from < 0 ? Move.ADD << 16 | to : Move.STEP << 16 | from << 8 | to;
+            }
+          }
+        }
+      }
+      if (legal == 0) {
+        return -1;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   *  Returns true if color may put a chip on the empty cell to, after
+   *  removing its chip from the cell from (or -1 for an ADD move).
+   **/
+  boolean isLegal(int to, int from, int color) {
+    if (geometry.goalOf(to, 1 - color) >= 0) {
+      return false;
+    }
+    int neighbor = -1;
+    for (int k = to * 9; neighbors[k] >= 0; k++) {
+      int n = neighbors[k];
+      if (n != from && cells[n] == color) {
+        if (neighbor >= 0) {
+          return false;
+        }
+        neighbor = n;
+      }
+    }
+    if (neighbor >= 0) {
+      for (int k = neighbor * 9; neighbors[k] >= 0; k++) {
+        int n = neighbors[k];
+        if (n != from && n != to && cells[n] == color) {
+          return false;
+        }
+      }
+    }
+    return true;
+  }
+
+  /**
+   *  Returns true if color has a network. Only called positions in which
+   *  color may have one are searched.
+   *  @param color is the color being checked.
+   **/
+  boolean hasNetwork(int color) {
+    if (count[color] < MIN_NETWORK || startGoal[color] == 0 || endGoal[color] == 0) {
+      return false;
+    }
+    for (int i = 0; i < count[color]; i++) {
+      int cell = chips[color][i];
+      if (goal(cell, color) == 0) {
+        Geometry.set(visited, cell);
+        boolean found = extend(cell, color, -1, 1);
+        Geometry.clear(visited, cell);
+        if (found) {
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+
+  /**
+   *  Extends a partial network ending at cell by one chip in every direction
+   *  other than lastDir and returns true if a network can be completed.
+   **/
+  private boolean extend(int cell, int color, int lastDir, int length) {
+    for (int dir = 0; dir < 8; dir++) {
+      if (dir == lastDir) {
+        continue;
+      }
+      int next = -1;
+      for (int k = (cell * 8 + dir) * rayLength, end = k + rayLength; k < end; k++) {
+        int c = ray[k];
+        if (c < 0) {
+          break;
+        } else if (cells[c] != Board.EMPTY) {
+          next = c;
+          break;
+        }
+      }
+      if (next < 0 || cells[next] != color || Geometry.has(visited, next)) {
+        continue;
+      }
+      int goal = goal(next, color);
+      if (goal == 1) {
+        if (length + 1 >= MIN_NETWORK) {
+          return true;
+        }
+      } else if (goal < 0) {
+        Geometry.set(visited, next);
+        boolean found = extend(next, color, dir, length + 1);
+        Geometry.clear(visited, next);
+        if (found) {
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+
+  /**
+   *  Returns 0 if cell is in color's start goal area, 1 if it is in its end
+   *  goal area and -1 otherwise.
+   **/
+  private int goal(int cell, int color) {
+    return geometry.goalOf(cell, color);
+  }
+
+  private void place(int cell, int color) {
+    cells[cell] = color;
+    chipIndex[cell] = count[color];
+    chips[color][count[color]++] = cell;
+    int goal = goal(cell, color);
+    if (goal == 0) {
+      startGoal[color]++;
+    } else if (goal == 1) {
+      endGoal[color]++;
+    }
+  }
+
+  private void remove(int cell) {
+    int color = cells[cell];
+    cells[cell] = Board.EMPTY;
+    int last = chips[color][--count[color]];
+    chips[color][chipIndex[cell]] = last;
+    chipIndex[last] = chipIndex[cell];
+    int goal = goal(cell, color);
+    if (goal == 0) {
+      startGoal[color]--;
+    } else if (goal == 1) {
+      endGoal[color]--;
+    }
+  }
+
+  /**
+   *  Restores the position given to load().
+   **/
+  private void reset() {
+    count[0] = count[1] = 0;
+    startGoal[0] = startGoal[1] = 0;
+    endGoal[0] = endGoal[1] = 0;
+    for (int cell = 0; cell < cellCount; cell++) {
+      cells[cell] = Board.EMPTY;
+      if (saved[cell] != Board.EMPTY) {
+        place(cell, saved[cell]);
+      }
+    }
+  }
+
+  /**
+   *  Returns a random int in [0, bound) from a xorshift64* generator.
+   **/
+  private int nextInt(int bound) {
+    seed ^= seed >>> 12;
+    seed ^= seed << 25;
+    seed ^= seed >>> 27;
+    long r = (seed * 0x2545F4914F6CDD1DL) >>> 32;
+    return (int) ((r * bound) >>> 32);
+  }
+}
@@ -0,0 +1,87 @@
+/* PlayoutBenchmark.java */
+
+package player;
+
+import java.util.Random;
+
+/**
+ *  Measures random playout speed on one core: the Playout kernel against
+ *  playouts built from Board.allValidMoves() and Board.hasNetwork().
+ *
+ *  Usage: java player.PlayoutBenchmark [seconds]
+ **/
+
+public class PlayoutBenchmark {
+
+  /**
+   *  LIMIT references the number of moves after which a playout stops.
+   **/
+  final static private int LIMIT = 60;
+
+  /**
+   *  Runs kernel playouts from board for the given number of milliseconds
+   *  and returns the number of moves made per second.
+   **/
+  static double kernelRate(Board board, long millis) {
+    Playout kernel = new Playout(System.nanoTime());
+    kernel.load(board);
+    long before = kernel.plies();
+    long start = System.nanoTime();
+    long end = start + millis * 1000000;
+    long now;
+    do {
+      for (int i = 0; i < 1000; i++) {
+        kernel.play(Board.WHITE, LIMIT);
+      }
+      now = System.nanoTime();
+    } while (now < end);
+    return (kernel.plies() - before) * 1e9 / (now - start);
+  }
+
+  /**
+   *  Runs Board-based playouts from board for the given number of
+   *  milliseconds and returns the number of moves made per second.
+   **/
+  static double boardRate(Board board, long millis) throws InvalidNodeException {
+    Random random = new Random();
+    Move[] made = new Move[LIMIT];
+    long plies = 0;
+    long start = System.nanoTime();
+    long end = start + millis * 1000000;
+    while (System.nanoTime() < end) {
+      int n = 0;
+      int toMove = Board.WHITE;
+      while (n < LIMIT) {
+        DList list = board.allValidMoves(toMove);
+        if (list.length() == 0) {
+          break;
+        }
+        ListNode current = list.front();
+        for (int i = random.nextInt(list.length()); i > 0; i--) {
+          current = current.next();
+        }
+        made[n] = (Move) current.item();
+        board.updateBoard(made[n++], toMove);
+        if (board.hasNetwork(toMove) || board.hasNetwork(1 - toMove)) {
+          break;
+        }
+        toMove = 1 - toMove;
+      }
+      plies += n;
+      while (n > 0) {
+        toMove = (n - 1) % 2 == 0 ? Board.WHITE : Board.BLACK;
+        board.retrieveBoard(made[--n], toMove);
+      }
+    }
+    return plies * 1e9 / (System.nanoTime() - start);
+  }
+
+  public static void main(String[] args) throws InvalidNodeException {
+    long millis = (args.length > 0 ? Long.parseLong(args[0]) : 5) * 1000;
+    Board board = new Board(Board.WHITE);
+    kernelRate(board, millis / 5);
+    System.out.printf("kernel: %.0f plies/s%n", kernelRate(board, millis));
+    boardRate(board, millis / 5);
+    System.out.printf("board:  %.0f plies/s%n", boardRate(board, millis));
+  }
+}
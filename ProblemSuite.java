@@ -0,0 +1,183 @@
+/* ProblemSuite.java */
+
+package player;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+
+/**
+ *  Runs a file of Network problems and reports, for each one, whether
+ *  chooseMove() found a solution and how long and how many abTree nodes it
+ *  took. Exits with status 1 if a problem is missed or a search visits more
+ *  nodes than the problem allows, so it can be used as a regression gate.
+ *  Problems the search is known to miss (those that need a STEP-phase
+ *  search deeper than EngineConfig's step depth) are reported but do not
+ *  fail the run, and are reported as FIXED once they are solved; a fixed
+ *  problem should then get a node budget instead, so that it is checked.
+ *
+ *  A problem file is a list of problems, each made of lines of the form
+ *
+ *    problem <name>
+ *    color <black|white>       the color of the MachinePlayer to move
+ *    depth <n>                 the search depth of the MachinePlayer
+ *    black <cells>             the black chips
+ *    white <cells>             the white chips
+ *    solve <moves>             every move that solves the problem
+ *    nodes <n>                 the most abTree nodes the search may visit
+ *    expect miss               the search is known to miss this problem;
+ *                              it has no node budget
+ *
+ *  A cell is written as two digits xy. A move is written as a cell (an ADD
+ *  move) or as from>to (a STEP move). Lines starting with '#' are comments.
+ *  The chips of the MachinePlayer's color are placed with forceMove() and
+ *  the others with opponentMove().
+ *
+ *  Usage: java player.ProblemSuite [file]
+ **/
+
+public class ProblemSuite {
+
+  /**
+   *  A Problem holds one problem read from a problem file.
+   **/
+  static class Problem {
+    String name;
+    int color;
+    int depth;
+    String[][] chips = new String[2][0];
+    String[] solutions = new String[0];
+    long maxNodes = Long.MAX_VALUE;
+    boolean expectMiss;
+  }
+
+  /**
+   *  Reads all problems from the given file.
+   *  @param file is the name of a problem file.
+   **/
+  static ArrayList<Problem> read(String file) throws IOException {
+    ArrayList<Problem> problems = new ArrayList<Problem>();
+    BufferedReader in = new BufferedReader(new FileReader(file));
+    try {
+      Problem p = null;
+      String line;
+      while ((line = in.readLine()) != null) {
+        line = line.trim();
+        if (line.length() == 0 || line.startsWith("#")) {
+          continue;
+        }
+        String[] words = line.split("\\s+");
+        String[] rest = new String[words.length - 1];
+        System.arraycopy(words, 1, rest, 0, rest.length);
+        if (words[0].equals("problem")) {
+          p = new Problem();
+          p.name = words[1];
+          problems.add(p);
+        } else if (p == null) {
+          throw new IOException("expected 'problem' before: " + line);
+        } else if (words[0].equals("color")) {
+          p.color = words[1].equals("black") ? Board.BLACK : Board.WHITE;
+        } else if (words[0].equals("depth")) {
+          p.depth = Integer.parseInt(words[1]);
+        } else if (words[0].equals("black")) {
+          p.chips[Board.BLACK] = rest;
+        } else if (words[0].equals("white")) {
+          p.chips[Board.WHITE] = rest;
+        } else if (words[0].equals("solve")) {
+          p.solutions = rest;
+        } else if (words[0].equals("nodes")) {
+          p.maxNodes = Long.parseLong(words[1]);
+        } else if (words[0].equals("expect")) {
+          p.expectMiss = words[1].equals("miss");
+        } else {
+          throw new IOException("unknown line: " + line);
+        }
+      }
+    } finally {
+      in.close();
+    }
+    return problems;
+  }
+
+  /**
+   *  Returns the Move written as a cell or as from>to.
+   **/
+  static Move parseMove(String s) {
+    if (s.length() == 5 && s.charAt(2) == '>') {
+      return new Move(s.charAt(3) - '0', s.charAt(4) - '0', s.charAt(0) - '0', s.charAt(1) - '0');
+    }
+    return new Move(s.charAt(0) - '0', s.charAt(1) - '0');
+  }
+
+  /**
+   *  Returns the Move m written as a cell or as from>to.
+   **/
+  static String formatMove(Move m) {
+    if (m.moveKind == Move.STEP) {
+      return "" + m.x2 + m.y2 + ">" + m.x1 + m.y1;
+    } else if (m.moveKind == Move.ADD) {
+      return "" + m.x1 + m.y1;
+    }
+    return "quit";
+  }
+
+  /**
+   *  Returns a MachinePlayer set up with the position of problem p.
+   **/
+  static MachinePlayer setUp(Problem p) {
+    MachinePlayer player = new MachinePlayer(p.color, p.depth);
+    for (int color = 0; color < 2; color++) {
+      for (int i = 0; i < p.chips[color].length; i++) {
+        Move m = parseMove(p.chips[color][i]);
+        boolean valid = color == p.color ? player.forceMove(m) : player.opponentMove(m);
+        if (!valid) {
+          throw new IllegalArgumentException(p.name + ": illegal chip " + p.chips[color][i]);
+        }
+      }
+    }
+    return player;
+  }
+
+  public static void main(String[] args) throws IOException {
+    String file = args.length > 0 ? args[0] : "problems.txt";
+    ArrayList<Problem> problems = read(file);
+    int failures = 0;
+    long totalTime = 0;
+    long totalNodes = 0;
+    for (int i = 0; i < problems.size(); i++) {
+      Problem p = problems.get(i);
+      MachinePlayer player = setUp(p);
+      long start = System.nanoTime();
+      String move = formatMove(player.chooseMove());
+      long micros = (System.nanoTime() - start) / 1000;
+      long nodes = player.nodeCount();
+      boolean solved = false;
+      for (int j = 0; j < p.solutions.length; j++) {
+        solved |= p.solutions[j].equals(move);
+      }
+      String result;
+      if (p.expectMiss) {
+        result = solved ? "FIXED" : "known";
+      } else if (!solved) {
+        result = "MISSED";
+        failures++;
+      } else if (nodes > p.maxNodes) {
+        result = "SLOW";
+        failures++;
+      } else {
+        result = "ok";
+      }
+      totalTime += micros;
+      totalNodes += nodes;
+      String max = p.maxNodes == Long.MAX_VALUE ? "-" : Long.toString(p.maxNodes);
+      System.out.printf("%-24s %-6s %-6s %8d us %9d nodes (max %s)%n", p.name, result, move,
+                        micros, nodes, max);
+    }
+    System.out.printf("%d problems, %d failed, %d us, %d nodes%n", problems.size(), failures,
+                      totalTime, totalNodes);
+    if (failures > 0) {
+      System.exit(1);
+    }
+  }
+}
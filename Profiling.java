@@ -0,0 +1,149 @@
+/* Profiling.java */
+
+package player;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Percentage;
+
+/**
+ *  JDK Flight Recorder events of the Network player. A ChooseMove event is
+ *  committed for every move a MachinePlayer chooses. MoveGeneration,
+ *  NetworkCheck and Evaluation events time one in every SAMPLE_INTERVAL
+ *  calls of Board.allValidMoves(), Board.hasNetwork() and Board.score()
+ *  on each Board; they are disabled unless a recording enables them, e.g.
+ *
+ *    java -XX:StartFlightRecording:filename=play.jfr,+player.Evaluation#enabled=true ...
+ *
+ *  or with a .jfc file made by "jfr configure".
+ *
+ *  Until the recorder is started, at launch or later with jcmd, no event
+ *  object is created and the event classes are never loaded; once it is
+ *  started, a chosen move costs one event object and an unsampled call a
+ *  counter increment. The events can stay in production builds.
+ *  SAMPLE_INTERVAL is read from the system property player.jfr.sample,
+ *  rounded down to a power of two (default 1024).
+ **/
+
+public class Profiling {
+
+  /**
+   *  SAMPLE_MASK is one less than SAMPLE_INTERVAL; a call is sampled when
+   *  its count ANDed with SAMPLE_MASK is 0.
+   **/
+  final static int SAMPLE_INTERVAL =
+    Integer.highestOneBit(Math.max(1, Integer.getInteger("player.jfr.sample", 1024)));
+  final static int SAMPLE_MASK = SAMPLE_INTERVAL - 1;
+
+  /**
+   *  The search for one move by a MachinePlayer.
+   **/
+  @Name("player.ChooseMove")
+  @Label("Choose Move")
+  @Category({"Network", "Search"})
+  @Description("The search for one move by a MachinePlayer")
+  static class ChooseMove extends Event {
+    @Label("Player")
+    @Description("Identifies the MachinePlayer, and so its game")
+    long player;
+
+    @Label("Color")
+    String color;
+
+    @Label("Engine")
+    @Description("book, solver, alpha-beta or monte-carlo")
+    String engine;
+
+    @Label("Move")
+    String move;
+
+    @Label("Depth")
+    @Description("Depth of the deepest complete iteration")
+    int depth;
+
+    @Label("Nodes")
+    long nodes;
+
+    @Label("Table Probes")
+    @Description("Best-move table lookups")
+    long tableProbes;
+
+    @Label("Table Hit Rate")
+    @Percentage
+    float tableHitRate;
+  }
+
+  /**
+   *  A sampled call of Board.allValidMoves().
+   **/
+  @Name("player.MoveGeneration")
+  @Label("Move Generation")
+  @Category({"Network", "Board"})
+  @Enabled(false)
+  static class MoveGeneration extends Event {
+    @Label("Color")
+    String color;
+
+    @Label("Moves")
+    int moves;
+  }
+
+  /**
+   *  A sampled call of Board.hasNetwork().
+   **/
+  @Name("player.NetworkCheck")
+  @Label("Network Check")
+  @Category({"Network", "Board"})
+  @Enabled(false)
+  static class NetworkCheck extends Event {
+    @Label("Color")
+    String color;
+
+    @Label("Found")
+    boolean found;
+  }
+
+  /**
+   *  A sampled call of Board.score().
+   **/
+  @Name("player.Evaluation")
+  @Label("Evaluation")
+  @Category({"Network", "Board"})
+  @Enabled(false)
+  static class Evaluation extends Event {
+    @Label("Score")
+    int score;
+  }
+
+  /**
+   *  Returns true if the flight recorder has been started in this JVM.
+   **/
+  static boolean started() {
+    return FlightRecorder.isInitialized();
+  }
+
+  /**
+   *  Returns a begun ChooseMove event, or null if the recorder has not been
+   *  started.
+   **/
+  static ChooseMove beginChooseMove() {
+    if (!started()) {
+      return null;
+    }
+    ChooseMove event = new ChooseMove();
+    event.begin();
+    return event;
+  }
+
+  /**
+   *  Returns the name of color for an event.
+   **/
+  static String colorName(int color) {
+    return color == Board.BLACK ? "black" : "white";
+  }
+}
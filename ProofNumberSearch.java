@@ -0,0 +1,258 @@
+/* ProofNumberSearch.java */
+
+package player;
+
+import java.util.function.BooleanSupplier;
+
+/**
+ *  A proof-number search solver. It proves or disproves that one color (the
+ *  attacker) can force a network within a given number of moves, expanding
+ *  the most-proving node of a best-first tree until the root is solved,
+ *  the node budget or the node table runs out, or the caller stops it. The
+ *  tree is kept in a fixed table of nodes stored in parallel arrays, which
+ *  caps the memory the solver uses. Networks are detected with a Playout
+ *  kernel.
+ **/
+
+public class ProofNumberSearch {
+
+  /**
+   *  PROVEN, DISPROVEN and UNKNOWN are the results of solve().
+   *  INFINITY references the proof or disproof number of a solved node.
+   **/
+  final static int PROVEN = 1;
+  final static int DISPROVEN = -1;
+  final static int UNKNOWN = 0;
+  final static private int INFINITY = Integer.MAX_VALUE / 2;
+
+  /**
+   *  capacity references the number of nodes in the table and size the
+   *  number in use. parent, firstChild, numChildren, moves (packed by
+   *  Board.encodeMove()), depth, pn and dn hold one entry per node; a node
+   *  whose numChildren is -1 has not been expanded. attacker references the
+   *  color trying to force a network, rootColor the color to move at the
+   *  root and maxDepth the number of moves the attacker has to win in.
+   *  dimension references the size of the board last solved.
+   *  nodes counts the nodes expanded by the last call to solve().
+   **/
+  private final int capacity;
+  private int size;
+  private final int[] parent;
+  private final int[] firstChild;
+  private final int[] numChildren;
+  private final int[] moves;
+  private final int[] depth;
+  private final int[] pn;
+  private final int[] dn;
+  private int attacker;
+  private int rootColor;
+  private int maxDepth;
+  private int dimension = Board.DIMENSION;
+  private long nodes;
+
+  /**
+   *  Creates a solver whose node table holds the given number of nodes.
+   *  @param capacity is the number of nodes in the table.
+   **/
+  public ProofNumberSearch(int capacity) {
+    this.capacity = capacity;
+    parent = new int[capacity];
+    firstChild = new int[capacity];
+    numChildren = new int[capacity];
+    moves = new int[capacity];
+    depth = new int[capacity];
+    pn = new int[capacity];
+    dn = new int[capacity];
+  }
+
+  /**
+   *  Returns the bytes taken by the node table of a solver of the given
+   *  capacity: seven ints per node.
+   **/
+  static long tableBytes(int capacity) {
+    return 7L * 4 * capacity;
+  }
+
+  /**
+   *  Tries to prove that attacker can complete a network within maxDepth
+   *  moves (of both colors) from board, color toMove to move. board is
+   *  restored on return.
+   *  @param board is the Board to solve.
+   *  @param attacker is the color trying to complete a network.
+   *  @param toMove is the color to move.
+   *  @param maxDepth is the number of moves within which the network must
+   *  be completed.
+   *  @param maxNodes is the most nodes the solver may expand.
+   *  @param stop is polled before every expansion; the solver gives up once
+   *  it returns true.
+   *  @return PROVEN, DISPROVEN or UNKNOWN.
+   **/
+  public int solve(Board board, int attacker, int toMove, int maxDepth, long maxNodes,
+                   BooleanSupplier stop) {
+    this.attacker = attacker;
+    this.rootColor = toMove;
+    this.maxDepth = maxDepth;
+    dimension = board.dimension;
+    nodes = 0;
+    size = 1;
+    parent[0] = -1;
+    numChildren[0] = -1;
+    depth[0] = 0;
+    pn[0] = 1;
+    dn[0] = 1;
+    while (pn[0] != 0 && dn[0] != 0 && nodes < maxNodes) {
+      if (stop.getAsBoolean()) {
+        break;
+      }
+      int node = 0;
+      int color = toMove;
+      while (numChildren[node] > 0) {
+        node = mostProving(node, color);
+        board.updateBoard(board.decode(moves[node]), color);
+        color = 1 - color;
+      }
+      boolean expanded = expand(board, node, color);
+      for (int n = node; n != 0; n = parent[n]) {
+        color = 1 - color;
+        board.retrieveBoard(board.decode(moves[n]), color);
+      }
+      if (!expanded) {
+        break;
+      }
+      for (int n = node; n >= 0; n = parent[n]) {
+        update(n, colorToMove(n));
+      }
+    }
+    if (pn[0] == 0) {
+      return PROVEN;
+    } else if (dn[0] == 0) {
+      return DISPROVEN;
+    }
+    return UNKNOWN;
+  }
+
+  /**
+   *  Returns a root move that proves the attacker's network after solve()
+   *  returned PROVEN with the attacker to move, or null.
+   **/
+  public Move provingMove() {
+    if (pn[0] != 0 || rootColor != attacker) {
+      return null;
+    }
+    for (int i = 0; i < numChildren[0]; i++) {
+      if (pn[firstChild[0] + i] == 0) {
+        return Board.decodeMove(moves[firstChild[0] + i], dimension);
+      }
+    }
+    return null;
+  }
+
+  /**
+   *  Returns the number of nodes expanded by the last call to solve().
+   **/
+  public long nodes() {
+    return nodes;
+  }
+
+  /**
+   *  Returns the color to move at node n.
+   **/
+  private int colorToMove(int n) {
+    return depth[n] % 2 == 0 ? rootColor : 1 - rootColor;
+  }
+
+  /**
+   *  Returns the child of node through which the most-proving node is
+   *  reached: the child with the smallest proof number at an attacker node,
+   *  and the smallest disproof number at a defender node.
+   **/
+  private int mostProving(int node, int color) {
+    int best = firstChild[node];
+    for (int i = 1; i < numChildren[node]; i++) {
+      int child = firstChild[node] + i;
+      if (color == attacker ? pn[child] < pn[best] : dn[child] < dn[best]) {
+        best = child;
+      }
+    }
+    return best;
+  }
+
+  /**
+   *  Generates and evaluates the children of node, whose position is on
+   *  board with color to move. Returns false if the node table is full.
+   **/
+  private boolean expand(Board board, int node, int color) {
+    nodes++;
+    DList list = board.allValidMoves(color);
+    int n = list.length();
+    if (size + n > capacity) {
+      return false;
+    }
+    int first = size;
+    size += n;
+    firstChild[node] = first;
+    numChildren[node] = n;
+    Playout kernel = Playout.local();
+    try {
+      ListNode current = list.front();
+      for (int i = 0; i < n; i++) {
+        Move m = (Move) current.item();
+        int child = first + i;
+        parent[child] = node;
+        numChildren[child] = -1;
+        moves[child] = board.encode(m);
+        depth[child] = depth[node] + 1;
+        board.updateBoard(m, color);
+        kernel.load(board);
+        int winner = kernel.winner(color);
+        board.retrieveBoard(m, color);
+        if (winner == attacker) {
+          pn[child] = 0;
+          dn[child] = INFINITY;
+          numChildren[child] = 0;
+        } else if (winner >= 0 || depth[child] >= maxDepth) {
+          pn[child] = INFINITY;
+          dn[child] = 0;
+          numChildren[child] = 0;
+        } else {
+          pn[child] = 1;
+          dn[child] = 1;
+        }
+        current = current.next();
+      }
+    } catch (InvalidNodeException e) {
+      System.err.println(e);
+    }
+    if (n == 0) {
+      pn[node] = INFINITY;
+      dn[node] = 0;
+    }
+    return true;
+  }
+
+  /**
+   *  Recomputes the proof and disproof numbers of an expanded node from its
+   *  children.
+   **/
+  private void update(int node, int color) {
+    if (numChildren[node] <= 0) {
+      return;
+    }
+    int min = INFINITY;
+    int sum = 0;
+    for (int i = 0; i < numChildren[node]; i++) {
+      int child = firstChild[node] + i;
+      int minOf = color == attacker ? pn[child] : dn[child];
+      int sumOf = color == attacker ? dn[child] : pn[child];
+      min = Math.min(min, minOf);
+      sum = Math.min(INFINITY, sum + sumOf);
+    }
+    if (color == attacker) {
+      pn[node] = min;
+      dn[node] = sum;
+    } else {
+      dn[node] = min;
+      pn[node] = sum;
+    }
+  }
+}
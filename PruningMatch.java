@@ -0,0 +1,125 @@
+/* PruningMatch.java */
+
+package player;
+
+import java.util.Random;
+
+/**
+ *  Measures late-move reductions and futility pruning in the alpha-beta
+ *  search. First it reports the average nodes and time of a search to each
+ *  depth, with both prunings off and on, over positions reached from random
+ *  openings. Then it plays games, from the same random openings with colors
+ *  swapped, between a player without pruning and a player with both
+ *  prunings searching extra plies deeper, and prints the results and the
+ *  time each side spent per move.
+ *
+ *  Usage: java player.PruningMatch [games] [depth] [extra plies]
+ **/
+
+public class PruningMatch {
+
+  /**
+   *  OPENING references the number of random moves a game starts with.
+   *  POSITIONS references the number of positions searched per depth, and
+   *  SEED the seed of the random openings.
+   **/
+  final static private int OPENING = 6;
+  final static private int POSITIONS = 8;
+  final static private long SEED = 34;
+
+  /**
+   *  Returns a MachinePlayer with both prunings switched on or off.
+   **/
+  static MachinePlayer player(int color, int depth, boolean prune) {
+    MachinePlayer player = new MachinePlayer(color, depth);
+    player.setLateMoveReductions(prune);
+    player.setFutilityPruning(prune);
+    return player;
+  }
+
+  /**
+   *  Prints the average nodes and time of one search to each depth up to
+   *  maxDepth, with pruning off and on, and the pruning counters.
+   **/
+  static void depthTable(int maxDepth) {
+    System.out.println("depth  nodes off   ms off   nodes on    ms on  reduced  researched"
+                       + "  futile");
+    for (int depth = 1; depth <= maxDepth; depth++) {
+      long[] nodes = new long[2];
+      long[] time = new long[2];
+      long[] counts = new long[3];
+      Random random = new Random(SEED);
+      for (int i = 0; i < POSITIONS; i++) {
+        Move[] opening = EngineMatch.randomOpening(random, OPENING);
+        for (int p = 0; p < 2; p++) {
+          MachinePlayer player = player(Board.WHITE, depth, p == 1);
+          for (int j = 0; j < opening.length; j++) {
+            if (j % 2 == 0) {
+              player.forceMove(opening[j]);
+            } else {
+              player.opponentMove(opening[j]);
+            }
+          }
+          long start = System.nanoTime();
+          player.chooseMove();
+          time[p] += System.nanoTime() - start;
+          nodes[p] += player.nodeCount();
+          if (p == 1) {
+            counts[0] += player.reductions();
+            counts[1] += player.researches();
+            counts[2] += player.futilityPrunes();
+          }
+        }
+      }
+      System.out.printf("%5d %10d %8.1f %10d %8.1f %8d %11d %7d%n", depth,
+                        nodes[0] / POSITIONS, time[0] / 1e6 / POSITIONS,
+                        nodes[1] / POSITIONS, time[1] / 1e6 / POSITIONS,
+                        counts[0] / POSITIONS, counts[1] / POSITIONS, counts[2] / POSITIONS);
+    }
+  }
+
+  public static void main(String[] args) {
+    int games = args.length > 0 ? Integer.parseInt(args[0]) : 8;
+    int depth = args.length > 1 ? Integer.parseInt(args[1]) : 3;
+    int extra = args.length > 2 ? Integer.parseInt(args[2]) : 1;
+    depthTable(depth + extra);
+
+    int prunedWins = 0;
+    int plainWins = 0;
+    int draws = 0;
+    long[] sideTime = new long[2];
+    int[] sideMoves = new int[2];
+    Random random = new Random(SEED);
+    Move[] opening = null;
+    for (int g = 0; g < games; g++) {
+      if (g % 2 == 0) {
+        opening = EngineMatch.randomOpening(random, OPENING);
+      }
+      int prunedColor = g % 2;
+      Player[] players = new Player[2];
+      players[prunedColor] = player(prunedColor, depth + extra, true);
+      players[1 - prunedColor] = player(1 - prunedColor, depth, false);
+      long[] time = new long[2];
+      int[] moves = new int[2];
+      int winner = EngineMatch.playGame(players, opening, time, moves);
+      sideTime[1] += time[prunedColor];
+      sideMoves[1] += moves[prunedColor];
+      sideTime[0] += time[1 - prunedColor];
+      sideMoves[0] += moves[1 - prunedColor];
+      if (winner < 0) {
+        draws++;
+      } else if (winner == prunedColor) {
+        prunedWins++;
+      } else {
+        plainWins++;
+      }
+      System.out.println("game " + (g + 1) + ": pruned depth " + (depth + extra) + " plays "
+                         + (prunedColor == Board.BLACK ? "black" : "white") + ", "
+                         + (winner < 0 ? "draw" : winner == prunedColor ? "pruned wins"
+                            : "plain wins"));
+    }
+    System.out.println("pruned " + prunedWins + ", plain " + plainWins + ", draws " + draws);
+    System.out.println("ms/move: pruned " + sideTime[1] / Math.max(1, sideMoves[1])
+                       + ", plain " + sideTime[0] / Math.max(1, sideMoves[0]));
+  }
+}
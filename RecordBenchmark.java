@@ -0,0 +1,145 @@
+/* RecordBenchmark.java */
+
+package player;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ *  Writes random games to a file of GameRecords, streams them back and
+ *  replays them into Boards, printing the size of the records and the
+ *  speed of each step. Every other game is written with per-move
+ *  statistics. The first games read back are checked move by move against
+ *  Board.isValidMove() and the games written.
+ *
+ *  Usage: java player.RecordBenchmark [games] [file]
+ **/
+
+public class RecordBenchmark {
+
+  /**
+   *  LIMIT references the number of moves after which a game is stopped,
+   *  and CHECKED the number of games checked after reading.
+   **/
+  final static private int LIMIT = 200;
+  final static private int CHECKED = 1000;
+
+  public static void main(String[] args) throws IOException {
+    int games = args.length > 0 ? Integer.parseInt(args[0]) : 1000000;
+    Path file = args.length > 1 ? Path.of(args[1]) : Files.createTempFile("games", ".rec");
+    Files.deleteIfExists(file);
+
+    Playout playout = new Playout(36);
+    playout.load(new Board(Board.WHITE));
+    GameRecord[] kept = new GameRecord[Math.min(games, CHECKED)];
+    long moves = 0;
+    long[] kindMoves = new long[2];
+    long[] kindBytes = new long[2];
+    long start = System.nanoTime();
+    GameRecordWriter writer = new GameRecordWriter(file);
+    try {
+      for (int g = 0; g < games; g++) {
+        GameRecord record = new GameRecord(g % 2 == 1);
+        int winner = playout.play(Board.WHITE, LIMIT, record);
+        record.setWinner(winner < 0 ? GameRecord.NO_WINNER : winner);
+        if (record.hasStats()) {
+          GameRecord withStats = new GameRecord(true);
+          for (int i = 0; i < record.length(); i++) {
+            withStats.addMove(record.move(i), 4, i % 41 - 20, 1000 + 37 * i, 250 + i);
+          }
+          withStats.setWinner(record.winner());
+          record = withStats;
+        }
+        writer.write(record);
+        moves += record.length();
+        int body = record.bodySize();
+        kindMoves[g % 2] += record.length();
+        kindBytes[g % 2] += 2 + GameRecord.varintSize(body) + body;
+        if (g < kept.length) {
+          kept[g] = record;
+        }
+      }
+    } finally {
+      writer.close();
+    }
+    double writeSeconds = (System.nanoTime() - start) / 1e9;
+    long bytes = Files.size(file);
+    int ascii = new Board(Board.WHITE).toString().length();
+    System.out.printf("%d games, %d moves, %d bytes: %.2f bytes/move, %.1f bytes/game "
+                      + "(Board.toString() is %d bytes per position)%n",
+                      games, moves, bytes, (double) bytes / moves, (double) bytes / games, ascii);
+    System.out.printf("without stats %.2f bytes/move, with stats %.2f bytes/move%n",
+                      (double) kindBytes[0] / Math.max(1, kindMoves[0]),
+                      (double) kindBytes[1] / Math.max(1, kindMoves[1]));
+    System.out.printf("generate and write: %.2f s%n", writeSeconds);
+
+    start = System.nanoTime();
+    long read = 0;
+    int errors = 0;
+    GameRecordReader reader = new GameRecordReader(file);
+    try {
+      GameRecord record;
+      for (int g = 0; (record = reader.next()) != null; g++) {
+        read += record.length();
+        if (g < kept.length) {
+          errors += check(record, kept[g]);
+        }
+      }
+    } finally {
+      reader.close();
+    }
+    double readSeconds = (System.nanoTime() - start) / 1e9;
+    System.out.printf("read: %.2f s, %.0f MB/s, %.0f moves/s, %d errors%n", readSeconds,
+                      bytes / readSeconds / 1e6, read / readSeconds, errors);
+
+    start = System.nanoTime();
+    long replayed = 0;
+    long chips = 0;
+    reader = new GameRecordReader(file);
+    try {
+      GameRecord record;
+      while ((record = reader.next()) != null) {
+        Board board = record.replay(Board.WHITE, record.length());
+        chips += board.totalChips();
+        replayed += record.length();
+      }
+    } finally {
+      reader.close();
+    }
+    double replaySeconds = (System.nanoTime() - start) / 1e9;
+    System.out.printf("read and replay: %.2f s, %.0f moves/s (%d chips)%n", replaySeconds,
+                      replayed / replaySeconds, chips);
+    if (args.length < 2) {
+      Files.delete(file);
+    }
+    if (errors > 0 || read != moves) {
+      System.exit(1);
+    }
+  }
+
+  /**
+   *  Returns the number of differences between record and the record
+   *  written, plus the number of its moves that are not valid.
+   **/
+  static int check(GameRecord record, GameRecord written) {
+    int errors = 0;
+    if (record.length() != written.length() || record.winner() != written.winner()
+        || record.hasStats() != written.hasStats()) {
+      return 1;
+    }
+    Board board = new Board(Board.WHITE);
+    int toMove = Board.WHITE;
+    for (int i = 0; i < record.length(); i++) {
+      Move m = record.move(i);
+      if (record.packedMove(i) != written.packedMove(i) || record.depth(i) != written.depth(i)
+          || record.score(i) != written.score(i) || record.nodes(i) != written.nodes(i)
+          || record.micros(i) != written.micros(i) || !board.isValidMove(m, toMove)) {
+        errors++;
+      }
+      board.updateBoard(m, toMove);
+      toMove = 1 - toMove;
+    }
+    return errors;
+  }
+}
@@ -0,0 +1,60 @@
+/* Search.java */
+
+package player;
+
+/**
+ *  A Search holds the state of one search for a move: the Board it runs on,
+ *  the depth of its current iteration, its deadline and stop flag, the best
+ *  root move and principal variation of its last complete iteration, its
+ *  counters, the FrontierEvaluator its alpha-beta search scores the
+ *  leaves with, and the engine and Profiling event that report it. A
+ *  SearchEngine fills it in; MachinePlayer reads it.
+ *
+ *  A Search run by a SearchWorker on a subtree of a distributed search
+ *  starts at ply splitPly, and its nodes at that ply raise their alpha to
+ *  sharedAlpha, the best score the coordinator has found for the root so
+ *  far, before each child.
+ **/
+
+class Search {
+  final Board board;
+  final long deadline;
+  int rootDepth;
+  int completedDepth;
+  long nodes;
+  long reductions;
+  long researches;
+  long futilityPrunes;
+  long tableProbes;
+  long tableHits;
+  FrontierEvaluator frontier;
+  int splitPly = -1;
+  volatile int sharedAlpha = Integer.MIN_VALUE;
+  String engine = EngineConfig.ALPHA_BETA;
+  Profiling.ChooseMove event;
+  volatile boolean stop;
+  volatile Move best;
+  volatile int[] pv = new int[0];
+
+  /**
+   *  Creates a Search on the given Board.
+   *  @param board is the Board to search; it is restored after each
+   *  iteration.
+   *  @param deadline is the System.nanoTime() at which the search stops,
+   *  or 0 for none.
+   **/
+  Search(Board board, long deadline) {
+    this.board = board;
+    this.deadline = deadline;
+  }
+
+  /**
+   *  Returns true if the search has been stopped or is past its deadline.
+   **/
+  boolean isStopped() {
+    if (!stop && deadline != 0 && System.nanoTime() - deadline > 0) {
+      stop = true;
+    }
+    return stop;
+  }
+}
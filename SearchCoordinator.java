@@ -0,0 +1,414 @@
+/* SearchCoordinator.java */
+
+package player;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ *  A SearchCoordinator runs an alpha-beta search across SearchWorker
+ *  processes. The tree is split at a chosen depth: at split depth 1 every
+ *  root move is a job, and at split depth 2 every reply to every root move
+ *  is one, so there are many more, smaller jobs. Each worker takes one job
+ *  at a time, searches the subtree below it and returns its score; the
+ *  coordinator puts the scores together as the alpha-beta search would at
+ *  the plies above the split. Whenever a root move raises the best score
+ *  so far, the new alpha is sent to every worker, which cuts off its
+ *  running subtree by it, and the jobs of root moves already refuted by a
+ *  reply are not sent at all.
+ *
+ *  The score is that of the sequential search of the same depth, unless
+ *  late-move reductions are on: the plies above the split are searched
+ *  without them. Among root moves of equal score, the one whose score
+ *  arrived first is chosen.
+ *
+ *  Usage: java player.SearchCoordinator [workers [depth [split [positions]]]]
+ *
+ *  starts the given number of worker processes on this machine, searches
+ *  random positions with them and with one local engine, checks that the
+ *  scores agree and prints both times.
+ **/
+
+public class SearchCoordinator {
+
+  /**
+   *  A Connection is the link to one worker.
+   **/
+  private static class Connection {
+    final Socket socket;
+    final DataInputStream in;
+    final DataOutputStream out;
+
+    Connection(InetSocketAddress address) throws IOException {
+      socket = new Socket(address.getAddress(), address.getPort());
+      socket.setTcpNoDelay(true);
+      in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+      out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+    }
+  }
+
+  /**
+   *  A Job is the subtree reached from the root by path, the moves of a
+   *  root move and, at split depth 2, a reply; root is the index of the
+   *  root move.
+   **/
+  private static class Job {
+    final int root;
+    final Move[] path;
+
+    Job(int root, Move[] path) {
+      this.root = root;
+      this.path = path;
+    }
+  }
+
+  /**
+   *  config references the configuration the workers search with, and
+   *  workers the connections to them.
+   *  The fields below hold the state of the search in progress, guarded by
+   *  lock: board, color and depth describe the root, jobs the
+   *  subtrees and next the index of the next one to send. value holds the
+   *  score of each root move so far (at split depth 2 the least score of
+   *  its replies), pending its jobs still unanswered and refuted whether a
+   *  reply has held it to alpha. alpha and best are the best score and root
+   *  move so far, nodes counts the nodes of all workers and failure is the
+   *  first error of a connection.
+   **/
+  private final EngineConfig config;
+  private final Connection[] workers;
+  private final Object lock = new Object();
+  private Board board;
+  private int color;
+  private int depth;
+  private List<Job> jobs;
+  private int next;
+  private int[] value;
+  private int[] pending;
+  private boolean[] refuted;
+  private int alpha;
+  private int best;
+  private long nodes;
+  private IOException failure;
+
+  /**
+   *  Connects to the workers at the given addresses and configures them.
+   *  @param config is the configuration the workers search with; its
+   *  weights are theirs, whatever the weights of the Boards searched.
+   *  @param addresses are the addresses of the workers.
+   **/
+  public SearchCoordinator(EngineConfig config, List<InetSocketAddress> addresses)
+    throws IOException {
+    this.config = config.copy();
+    workers = new Connection[addresses.size()];
+    try {
+      for (int i = 0; i < workers.length; i++) {
+        workers[i] = new Connection(addresses.get(i));
+        DataOutputStream out = workers[i].out;
+        out.writeByte(SearchWorker.HELLO);
+        out.writeUTF(this.config.toString());
+        double[] weights = this.config.weights();
+        out.writeInt(weights.length);
+        for (double w : weights) {
+          out.writeDouble(w);
+        }
+        out.flush();
+      }
+    } catch (IOException e) {
+      close();
+      throw e;
+    }
+  }
+
+  /**
+   *  Searches board for the best move of color to the given depth.
+   *  @param board is the Board at the root; it is not changed.
+   *  @param color is the color to move.
+   *  @param depth is the search depth, at least 1.
+   *  @param splitDepth is 1 to split the root moves or 2 to split their
+   *  replies as well; the root moves of a search shallower than 3 and those
+   *  that complete a network are never split further.
+   *  @return the best move and its score.
+   *  @throws IOException if a worker fails.
+   **/
+  public synchronized Best search(Board board, int color, int depth, int splitDepth)
+    throws IOException {
+    if (depth < 1 || splitDepth < 1 || splitDepth > 2) {
+      throw new IllegalArgumentException("depth must be at least 1 and split depth 1 or 2");
+    }
+    this.board = board.copyBoard();
+    this.color = color;
+    this.depth = depth;
+    int[] rootMoves = new AlphaBetaEngine(config).rootMoves(this.board, color);
+    jobs = new ArrayList<Job>();
+    value = new int[rootMoves.length];
+    pending = new int[rootMoves.length];
+    refuted = new boolean[rootMoves.length];
+    for (int i = 0; i < rootMoves.length; i++) {
+      Move m = this.board.decode(rootMoves[i]);
+      addJobs(i, m, splitDepth == 2 && depth >= 3);
+    }
+    next = 0;
+    alpha = AlphaBetaEngine.OPPONENT_WIN;
+    best = 0;
+    nodes = 0;
+    failure = null;
+
+    Thread[] threads = new Thread[workers.length];
+    for (int w = 0; w < workers.length; w++) {
+      final Connection c = workers[w];
+      threads[w] = new Thread(new Runnable() {
+        public void run() {
+          feed(c);
+        }
+      }, "SearchCoordinator feeder");
+      threads[w].start();
+    }
+    for (Thread t : threads) {
+      try {
+        t.join();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+    if (failure != null) {
+      throw failure;
+    }
+    Best result = new Best();
+    result.setMove(rootMoves.length > 0 ? this.board.decode(rootMoves[best]) : new Move());
+    result.setScore(alpha);
+    return result;
+  }
+
+  /**
+   *  Adds the jobs of root move i, m: one per reply if split is true and m
+   *  completes no network, and m alone otherwise.
+   **/
+  private void addJobs(int i, Move m, boolean split) throws IOException {
+    if (split) {
+      board.updateBoard(m, color);
+      try {
+        if (!board.hasNetwork(color) && !board.hasNetwork(1 - color)) {
+          DList replies = board.allValidMoves(1 - color);
+          ListNode current = replies.front();
+          for (int r = 0; r < replies.length(); r++) {
+            jobs.add(new Job(i, new Move[] {m, (Move) current.item()}));
+            current = current.next();
+          }
+          pending[i] = replies.length();
+          value[i] = AlphaBetaEngine.MACHINE_WIN;
+        }
+      } catch (InvalidNodeException e) {
+        throw new IOException(e.toString());
+      } finally {
+        board.retrieveBoard(m, color);
+      }
+      if (pending[i] > 0) {
+        return;
+      }
+    }
+    jobs.add(new Job(i, new Move[] {m}));
+    pending[i] = 1;
+  }
+
+  /**
+   *  Sends jobs to the worker of c and records its answers until no job is
+   *  left or a connection fails.
+   **/
+  private void feed(Connection c) {
+    try {
+      while (true) {
+        int job;
+        int jobAlpha;
+        int jobBeta;
+        Board position;
+        synchronized (lock) {
+          while (next < jobs.size() && refuted[jobs.get(next).root]) {
+            next++;
+          }
+          if (next >= jobs.size() || failure != null) {
+            return;
+          }
+          job = next++;
+          Job j = jobs.get(job);
+          position = board.copyBoard();
+          int toMove = color;
+          for (Move m : j.path) {
+            position.updateBoard(m, toMove);
+            toMove = 1 - toMove;
+          }
+          jobAlpha = alpha;
+          jobBeta = j.path.length == 2 ? value[j.root] : AlphaBetaEngine.MACHINE_WIN;
+        }
+        Job j = jobs.get(job);
+        int ply = j.path.length;
+        synchronized (c.out) {
+          c.out.writeByte(SearchWorker.SEARCH);
+          c.out.writeInt(job);
+          position.writePosition(c.out);
+          c.out.writeByte(ply % 2 == 0 ? color : 1 - color);
+          c.out.writeByte(depth - ply);
+          c.out.writeByte(ply);
+          c.out.writeInt(jobAlpha);
+          c.out.writeInt(jobBeta);
+          c.out.flush();
+        }
+        if (c.in.readUnsignedByte() != SearchWorker.RESULT || c.in.readInt() != job) {
+          throw new IOException("unexpected answer from worker");
+        }
+        int score = c.in.readInt();
+        long workerNodes = c.in.readLong();
+        record(j, score, workerNodes);
+      }
+    } catch (IOException e) {
+      synchronized (lock) {
+        if (failure == null) {
+          failure = e;
+        }
+      }
+    }
+  }
+
+  /**
+   *  Records the score of job j and, if it raises alpha, sends the new
+   *  alpha to every worker.
+   **/
+  private void record(Job j, int score, long workerNodes) throws IOException {
+    int raised;
+    synchronized (lock) {
+      nodes += workerNodes;
+      int i = j.root;
+      pending[i]--;
+      if (refuted[i]) {
+        return;
+      }
+      if (score <= alpha) {
+        refuted[i] = true;
+        return;
+      }
+      value[i] = j.path.length == 2 ? Math.min(value[i], score) : score;
+      if (pending[i] > 0 || value[i] <= alpha) {
+        return;
+      }
+      alpha = value[i];
+      best = i;
+      raised = alpha;
+    }
+    for (Connection c : workers) {
+      synchronized (c.out) {
+        c.out.writeByte(SearchWorker.ALPHA);
+        c.out.writeInt(raised);
+        c.out.flush();
+      }
+    }
+  }
+
+  /**
+   *  Returns the number of nodes the workers searched in the last search.
+   **/
+  public long nodes() {
+    synchronized (lock) {
+      return nodes;
+    }
+  }
+
+  /**
+   *  Tells the workers to close their connections and closes them.
+   **/
+  public void close() {
+    for (Connection c : workers) {
+      if (c == null) {
+        continue;
+      }
+      try {
+        synchronized (c.out) {
+          c.out.writeByte(SearchWorker.QUIT);
+          c.out.flush();
+        }
+        c.socket.close();
+      } catch (IOException e) {
+      }
+    }
+  }
+
+  /**
+   *  Starts a SearchWorker process on this machine and returns its address.
+   **/
+  static InetSocketAddress startWorker(List<Process> processes) throws IOException {
+    String java = System.getProperty("java.home") + File.separator + "bin" + File.separator
+      + "java";
+    ProcessBuilder builder = new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"),
+                                                "player.SearchWorker", "0");
+    builder.redirectError(ProcessBuilder.Redirect.INHERIT);
+    Process process = builder.start();
+    processes.add(process);
+    BufferedReader out = new BufferedReader(new InputStreamReader(process.getInputStream()));
+    String line = out.readLine();
+    if (line == null || !line.startsWith("SearchWorker listening on port ")) {
+      throw new IOException("worker did not start: " + line);
+    }
+    int port = Integer.parseInt(line.substring(line.lastIndexOf(' ') + 1));
+    return new InetSocketAddress(InetAddress.getLoopbackAddress(), port);
+  }
+
+  public static void main(String[] args) throws Exception {
+    int count = args.length > 0 ? Integer.parseInt(args[0]) : 3;
+    int depth = args.length > 1 ? Integer.parseInt(args[1]) : 4;
+    int split = args.length > 2 ? Integer.parseInt(args[2]) : 1;
+    int positions = args.length > 3 ? Integer.parseInt(args[3]) : 10;
+    EngineConfig config = new EngineConfig().setLateMoveReductions(false);
+    List<Process> processes = new ArrayList<Process>();
+    SearchCoordinator coordinator = null;
+    try {
+      List<InetSocketAddress> addresses = new ArrayList<InetSocketAddress>();
+      for (int i = 0; i < count; i++) {
+        addresses.add(startWorker(processes));
+      }
+      coordinator = new SearchCoordinator(config, addresses);
+      Random random = new Random(3);
+      long localTime = 0;
+      long distributedTime = 0;
+      int differ = 0;
+      for (int p = 0; p < positions; p++) {
+        Board board = SizeBenchmark.randomPosition(random, Board.DIMENSION, 12);
+        long start = System.nanoTime();
+        Search search = new Search(board.copyBoard(), 0);
+        int local = new AlphaBetaEngine(config).searchNode(search, Board.WHITE, depth, 0,
+                                                           AlphaBetaEngine.OPPONENT_WIN,
+                                                           AlphaBetaEngine.MACHINE_WIN);
+        localTime += System.nanoTime() - start;
+        start = System.nanoTime();
+        Best distributed = coordinator.search(board, Board.WHITE, depth, split);
+        distributedTime += System.nanoTime() - start;
+        if (distributed.getScore() != local) {
+          differ++;
+        }
+        System.out.println("position " + p + ": score " + distributed.getScore() + " (local "
+                           + local + "), " + search.nodes + " local nodes, "
+                           + coordinator.nodes() + " worker nodes");
+      }
+      System.out.println(count + " workers, depth " + depth + ", split depth " + split + ": "
+                         + localTime / 1000000 / positions + " ms local, "
+                         + distributedTime / 1000000 / positions + " ms distributed");
+      System.out.println(differ == 0 ? "all scores agree" : differ + " scores differ");
+    } finally {
+      if (coordinator != null) {
+        coordinator.close();
+      }
+      for (Process process : processes) {
+        process.destroy();
+      }
+    }
+  }
+}
@@ -0,0 +1,50 @@
+/* SearchEngine.java */
+
+package player;
+
+/**
+ *  A SearchEngine chooses the moves of a MachinePlayer. The player keeps
+ *  the game board, plays the opening book and runs the proof-number solver;
+ *  everything else is left to its engine, which EngineConfig.createEngine()
+ *  builds from the player's configuration. AlphaBetaEngine is the default;
+ *  MonteCarloEngine is the other engine.
+ *
+ *  An engine belongs to one player and is only called by it, one call at a
+ *  time, except that search() may still be unwinding on another thread
+ *  after a time-limited search has been completed without it.
+ **/
+
+public interface SearchEngine {
+
+  /**
+   *  Searches search.board for a move of color and returns it. The board
+   *  must be restored on return. If search has a deadline, the engine
+   *  searches until it passes or search is stopped, and keeps search.best
+   *  (and search.pv, if it has one) up to date as it goes, since the player
+   *  may take search.best at the deadline without waiting; search.best is
+   *  set to a valid move before the search starts. Otherwise the engine
+   *  searches as far as its configuration says. The engine adds its nodes
+   *  and counters to search and sets search.completedDepth.
+   *  @param search holds the Board and limits of the search.
+   *  @param color is the color to move.
+   *  @return the chosen move, or a QUIT Move if there is none.
+   **/
+  Move search(Search search, int color);
+
+  /**
+   *  Tells the engine that the move m chosen by search has been played, so
+   *  it can keep what search learned for its next search.
+   **/
+  void chosen(Search search, Move m);
+
+  /**
+   *  Tells the engine that the opponent has played m.
+   **/
+  void opponentMoved(Move m);
+
+  /**
+   *  Tells the engine that the position has changed in a way it was not
+   *  told about, so that it drops what it expects of the game.
+   **/
+  void reset();
+}
@@ -0,0 +1,195 @@
+/* SearchWorker.java */
+
+package player;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.StringReader;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.Properties;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ *  A SearchWorker serves the subtrees of distributed alpha-beta searches to
+ *  SearchCoordinators over local sockets. Each connection gets its own
+ *  AlphaBetaEngine, whose best-move table is kept between the subtrees it
+ *  searches, and searches one subtree at a time.
+ *
+ *  The coordinator first sends
+ *
+ *    HELLO   config (UTF), weights (int count, doubles)
+ *
+ *  with the EngineConfig as EngineConfig.toString() writes it, and then
+ *
+ *    SEARCH  job (int), position (see Board.writePosition()), color to
+ *            move (byte), depth (byte), ply (byte), alpha (int), beta (int)
+ *    ALPHA   alpha (int)
+ *    QUIT
+ *
+ *  for each subtree, each raise of the root's alpha and at the end. The
+ *  worker answers each SEARCH with
+ *
+ *    RESULT  job (int), score (int), nodes (long)
+ *
+ *  The score is that of the subtree within alpha and beta, as the
+ *  alpha-beta search would return it at that ply; an ALPHA that arrives
+ *  during a search raises the alpha of the subtree's root before each of
+ *  its children.
+ *
+ *  Usage: java player.SearchWorker [port]
+ *
+ *  The worker listens on the loopback address, on any free port if port is
+ *  0 or missing, and prints the port it listens on.
+ **/
+
+public class SearchWorker {
+
+  /**
+   *  HELLO, SEARCH, ALPHA, QUIT and RESULT are the message types.
+   **/
+  final static int HELLO = 'H';
+  final static int SEARCH = 'S';
+  final static int ALPHA = 'A';
+  final static int QUIT = 'Q';
+  final static int RESULT = 'R';
+
+  /**
+   *  in and out reference the streams of the connection, engine the
+   *  engine configured by HELLO, weights the weights it scores with and
+   *  network the network, if it scores with one; with the NNUE evaluator
+   *  a worker scores with its own startup Network. components tells
+   *  whether its boards keep their Components.
+   *  searcher runs the searches, and current references the Search in
+   *  progress, whose alpha ALPHA raises.
+   **/
+  private final DataInputStream in;
+  private final DataOutputStream out;
+  private AlphaBetaEngine engine;
+  private double[] weights;
+  private Network network;
+  private boolean components;
+  private final ExecutorService searcher = Executors.newSingleThreadExecutor();
+  private volatile Search current;
+
+  /**
+   *  Creates a worker serving the connection socket.
+   **/
+  SearchWorker(Socket socket) throws IOException {
+    socket.setTcpNoDelay(true);
+    in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+    out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+  }
+
+  /**
+   *  Reads and answers messages until QUIT or the end of the connection.
+   **/
+  void serve() throws IOException {
+    try {
+      if (in.readUnsignedByte() != HELLO) {
+        throw new IOException("expected HELLO");
+      }
+      Properties p = new Properties();
+      p.load(new StringReader(in.readUTF().replace(' ', '\n')));
+      EngineConfig config = EngineConfig.fromProperties(p, null);
+      engine = new AlphaBetaEngine(config);
+      components = config.components();
+      if (config.evaluator().equals(EngineConfig.NNUE)) {
+        network = config.network();
+        if (network == null) {
+          throw new IOException("the nnue evaluator needs a network");
+        }
+      }
+      weights = new double[in.readInt()];
+      for (int i = 0; i < weights.length; i++) {
+        weights[i] = in.readDouble();
+      }
+      while (true) {
+        int type = in.readUnsignedByte();
+        if (type == SEARCH) {
+          readSearch();
+        } else if (type == ALPHA) {
+          int alpha = in.readInt();
+          Search search = current;
+          if (search != null && alpha > search.sharedAlpha) {
+            search.sharedAlpha = alpha;
+          }
+        } else if (type == QUIT) {
+          return;
+        } else {
+          throw new IOException("unknown message " + type);
+        }
+      }
+    } catch (EOFException e) {
+      return;
+    } finally {
+      searcher.shutdownNow();
+    }
+  }
+
+  /**
+   *  Reads a SEARCH and starts it on searcher.
+   **/
+  private void readSearch() throws IOException {
+    final int job = in.readInt();
+    Board board = Board.readPosition(in);
+    board.weights = weights;
+    board.setNetwork(network);
+    board.setComponents(components);
+    final int color = in.readUnsignedByte();
+    final int depth = in.readUnsignedByte();
+    final int ply = in.readUnsignedByte();
+    final int alpha = in.readInt();
+    final int beta = in.readInt();
+    final Search search = new Search(board, 0);
+    search.splitPly = ply;
+    search.sharedAlpha = alpha;
+    current = search;
+    searcher.execute(new Runnable() {
+      public void run() {
+        int score = engine.searchNode(search, color, depth, ply, alpha, beta);
+        try {
+          synchronized (out) {
+            out.writeByte(RESULT);
+            out.writeInt(job);
+            out.writeInt(score);
+            out.writeLong(search.nodes);
+            out.flush();
+          }
+        } catch (IOException e) {
+          System.err.println("cannot send result: " + e.getMessage());
+        }
+      }
+    });
+  }
+
+  public static void main(String[] args) throws IOException {
+    int port = args.length > 0 ? Integer.parseInt(args[0]) : 0;
+    ServerSocket server = new ServerSocket(port, 50, InetAddress.getLoopbackAddress());
+    System.out.println("SearchWorker listening on port " + server.getLocalPort());
+    System.out.flush();
+    while (true) {
+      final Socket socket = server.accept();
+      new Thread(new Runnable() {
+        public void run() {
+          try {
+            new SearchWorker(socket).serve();
+          } catch (IOException e) {
+            System.err.println("connection failed: " + e.getMessage());
+          } finally {
+            try {
+              socket.close();
+            } catch (IOException e) {
+            }
+          }
+        }
+      }, "SearchWorker connection").start();
+    }
+  }
+}
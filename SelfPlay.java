@@ -0,0 +1,95 @@
+/* SelfPlay.java */
+
+package player;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Random;
+
+/**
+ *  Plays games between two alpha-beta players of the startup configuration
+ *  at a fixed depth, each from a random opening, and writes them to a file
+ *  of GameRecords, for TexelTuner and NetworkTrainer. A game that reaches
+ *  MAX_MOVES moves has no winner.
+ *
+ *  Usage: java player.SelfPlay games depth file [seed]
+ **/
+
+public class SelfPlay {
+
+  /**
+   *  MAX_MOVES references the number of moves after which a game is
+   *  stopped, and OPENING the number of random opening moves.
+   **/
+  final static private int MAX_MOVES = 200;
+  final static private int OPENING = 6;
+
+  /**
+   *  Plays one game from opening between players searching to depth and
+   *  returns its record.
+   **/
+  static GameRecord play(Move[] opening, int depth) {
+    EngineConfig config = EngineConfig.startup().setDepth(depth).setStepDepth(depth)
+      .setWarmUp(0);
+    MachinePlayer[] players = {new MachinePlayer(Board.BLACK, config),
+                               new MachinePlayer(Board.WHITE, config)};
+    Board referee = new Board(Board.WHITE);
+    GameRecord record = new GameRecord();
+    int toMove = Board.WHITE;
+    for (int i = 0; i < MAX_MOVES; i++) {
+      Move m;
+      if (i < opening.length) {
+        m = opening[i];
+        players[toMove].forceMove(m);
+      } else {
+        m = players[toMove].chooseMove();
+        if (m.moveKind == Move.QUIT) {
+          record.setWinner(1 - toMove);
+          return record;
+        }
+      }
+      players[1 - toMove].opponentMove(m);
+      referee.updateBoard(m, toMove);
+      record.addMove(m);
+      int winner = MonteCarloTree.winner(referee, toMove);
+      if (winner >= 0) {
+        record.setWinner(winner);
+        return record;
+      }
+      toMove = 1 - toMove;
+    }
+    record.setWinner(GameRecord.NO_WINNER);
+    return record;
+  }
+
+  public static void main(String[] args) throws IOException {
+    if (args.length < 3) {
+      System.err.println("usage: java player.SelfPlay games depth file [seed]");
+      System.exit(2);
+    }
+    int games = Integer.parseInt(args[0]);
+    int depth = Integer.parseInt(args[1]);
+    Path file = Path.of(args[2]);
+    Random random = new Random(args.length > 3 ? Long.parseLong(args[3]) : 1);
+    int[] wins = new int[3];
+    long moves = 0;
+    long start = System.nanoTime();
+    GameRecordWriter writer = new GameRecordWriter(file);
+    try {
+      for (int g = 0; g < games; g++) {
+        GameRecord record = play(EngineMatch.randomOpening(random, OPENING), depth);
+        writer.write(record);
+        wins[record.winner()]++;
+        moves += record.length();
+        if ((g + 1) % 1000 == 0) {
+          System.out.printf("%d games, %.1f s%n", g + 1, (System.nanoTime() - start) / 1e9);
+        }
+      }
+    } finally {
+      writer.close();
+    }
+    System.out.printf("%d games, %d moves: black %d, white %d, no winner %d, %.1f s%n", games,
+                      moves, wins[Board.BLACK], wins[Board.WHITE], wins[GameRecord.NO_WINNER],
+                      (System.nanoTime() - start) / 1e9);
+  }
+}
@@ -0,0 +1,157 @@
+/* SizeBenchmark.java */
+
+package player;
+
+import java.util.Random;
+
+/**
+ *  Measures how the cost of the player grows with the board: for each size,
+ *  the rate of move generation and network checks on random positions, the
+ *  speed of random playouts, and the nodes and time of alpha-beta searches
+ *  of depths 1 to 3 from random openings.
+ *
+ *  Usage: java player.SizeBenchmark [positions [dimension ...]]
+ **/
+
+public class SizeBenchmark {
+
+  /**
+   *  SIZES references the board sizes measured by default, PLIES the
+   *  number of random moves of each position, and MILLIS the time each
+   *  rate is measured for. networks counts the networks found by
+   *  networkRate(), so the checks cannot be optimized away.
+   **/
+  final static private int[] SIZES = {8, 10, 12};
+  final static private int PLIES = 12;
+  final static private long MILLIS = 2000;
+  static long networks;
+
+  /**
+   *  Returns a position of the given size after plies random valid moves,
+   *  stopping early at a network.
+   **/
+  static Board randomPosition(Random random, int dimension, int plies)
+    throws InvalidNodeException {
+    Board board = new Board(Board.WHITE, dimension);
+    int toMove = Board.WHITE;
+    for (int i = 0; i < plies; i++) {
+      DList list = board.allValidMoves(toMove);
+      if (list.length() == 0) {
+        break;
+      }
+      ListNode current = list.front();
+      for (int n = random.nextInt(list.length()); n > 0; n--) {
+        current = current.next();
+      }
+      board.updateBoard((Move) current.item(), toMove);
+      if (board.hasNetwork(toMove)) {
+        board.retrieveBoard((Move) current.item(), toMove);
+        break;
+      }
+      toMove = 1 - toMove;
+    }
+    return board;
+  }
+
+  /**
+   *  Returns the calls of allValidMoves() per second over positions.
+   **/
+  static double generationRate(Board[] positions) {
+    long calls = 0;
+    long start = System.nanoTime();
+    long end = start + MILLIS * 1000000;
+    while (System.nanoTime() < end) {
+      for (Board b : positions) {
+        b.allValidMoves(Board.WHITE);
+        calls++;
+      }
+    }
+    return calls * 1e9 / (System.nanoTime() - start);
+  }
+
+  /**
+   *  Returns the calls of hasNetwork() per second over positions.
+   **/
+  static double networkRate(Board[] positions) throws InvalidNodeException {
+    long calls = 0;
+    long start = System.nanoTime();
+    long end = start + MILLIS * 1000000;
+    while (System.nanoTime() < end) {
+      for (Board b : positions) {
+        if (b.hasNetwork(Board.WHITE) || b.hasNetwork(Board.BLACK)) {
+          networks++;
+        }
+        calls += 2;
+      }
+    }
+    return calls * 1e9 / (System.nanoTime() - start);
+  }
+
+  /**
+   *  Returns the playout moves per second from an empty board of the given
+   *  size, each playout ending after twice the chips of a color.
+   **/
+  static double playoutRate(int dimension) {
+    Playout kernel = new Playout(System.nanoTime());
+    kernel.load(new Board(Board.WHITE, dimension));
+    int limit = 4 * Geometry.of(dimension).chips;
+    long start = System.nanoTime();
+    long end = start + MILLIS * 1000000;
+    long now;
+    do {
+      for (int i = 0; i < 100; i++) {
+        kernel.play(Board.WHITE, limit);
+      }
+      now = System.nanoTime();
+    } while (now < end);
+    return kernel.plies() * 1e9 / (now - start);
+  }
+
+  /**
+   *  Searches each position to depth and prints the mean nodes and time.
+   **/
+  static void search(Board[] positions, int dimension, int depth) {
+    EngineConfig config = new EngineConfig().setDimension(dimension).setDepth(depth)
+      .setStepDepth(depth).setSolver(false);
+    long nodes = 0;
+    long start = System.nanoTime();
+    for (Board b : positions) {
+      AlphaBetaEngine engine = new AlphaBetaEngine(config);
+      Search search = new Search(b.copyBoard(), 0);
+      engine.search(search, Board.WHITE);
+      nodes += search.nodes;
+    }
+    long micros = (System.nanoTime() - start) / 1000 / positions.length;
+    System.out.printf("  depth %d: %10d nodes %10d us/search%n", depth,
+                      nodes / positions.length, micros);
+  }
+
+  public static void main(String[] args) throws InvalidNodeException {
+    int count = args.length > 0 ? Integer.parseInt(args[0]) : 20;
+    int[] sizes = SIZES;
+    if (args.length > 1) {
+      sizes = new int[args.length - 1];
+      for (int i = 1; i < args.length; i++) {
+        sizes[i - 1] = Integer.parseInt(args[i]);
+      }
+    }
+    for (int dimension : sizes) {
+      Random random = new Random(dimension);
+      Board[] positions = new Board[count];
+      for (int i = 0; i < count; i++) {
+        positions[i] = randomPosition(random, dimension, PLIES);
+      }
+      System.out.println(dimension + "x" + dimension + ", " + Geometry.of(dimension).chips
+                         + " chips:");
+      generationRate(positions);
+      System.out.printf("  move generation: %12.0f positions/s%n", generationRate(positions));
+      networkRate(positions);
+      System.out.printf("  network checks:  %12.0f checks/s%n", networkRate(positions));
+      playoutRate(dimension);
+      System.out.printf("  playouts:        %12.0f plies/s%n", playoutRate(dimension));
+      for (int depth = 1; depth <= 3; depth++) {
+        search(positions, dimension, depth);
+      }
+    }
+  }
+}
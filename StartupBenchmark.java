@@ -0,0 +1,148 @@
+/* StartupBenchmark.java */
+
+package player;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ *  Measures how long a freshly started JVM takes to make its first move:
+ *  the time from creating a MachinePlayer to the return of its first
+ *  chooseMove() after the opening book, in child JVMs started with and
+ *  without the warm-up of EngineConfig. The time to create the player,
+ *  which includes the warm-up and reading the Geometry tables, is given
+ *  separately, as is the JVM's uptime when the move is made.
+ *
+ *  Usage: java player.StartupBenchmark [runs [warm-up [jvm option ...]]]
+ *
+ *  Each child runs with the class path of this JVM and the given JVM
+ *  options, and warm-up is the warm-up in milliseconds (200 by default).
+ *
+ *  The classes a cold JVM loads and verifies before its first move can be
+ *  kept in a class-data sharing archive. The JVM archives classes from
+ *  jars only, so put the compiled classes (and the tables of Geometry, if
+ *  made) in a jar, make the archive by running a child once with
+ *
+ *    jar cf player.jar -C classes player
+ *    java -XX:ArchiveClassesAtExit=player.jsa -cp player.jar player.StartupBenchmark -child 0
+ *
+ *  and start players with it, or measure them, with
+ *
+ *    java -XX:SharedArchiveFile=player.jsa -cp player.jar player.GameHost ...
+ *    java -cp player.jar player.StartupBenchmark 10 200 -XX:SharedArchiveFile=player.jsa
+ *
+ *  The archive holds the classes of the run; it must be made again when
+ *  the jar changes, or the JVM ignores it.
+ **/
+
+public class StartupBenchmark {
+
+  /**
+   *  CHILD is the argument that makes this class measure one start, and
+   *  RESULT begins the line a child prints its times on.
+   **/
+  final static private String CHILD = "-child";
+  final static private String RESULT = "startup";
+
+  /**
+   *  Creates a white player with the given warm-up, plays the opening book
+   *  of both sides and times the first move after it. Prints the
+   *  construction time and the time to the first move in microseconds and
+   *  the uptime of the JVM in milliseconds.
+   **/
+  static void child(long warmUp) {
+    long start = System.nanoTime();
+    MachinePlayer player = new MachinePlayer(Board.WHITE,
+                                             EngineConfig.startup().setWarmUp(warmUp));
+    long created = System.nanoTime();
+    MachinePlayer black = new MachinePlayer(Board.BLACK, EngineConfig.startup().setWarmUp(0));
+    for (int i = 0; i < 2; i++) {
+      black.opponentMove(player.chooseMove());
+      player.opponentMove(black.chooseMove());
+    }
+    long moveStart = System.nanoTime();
+    player.chooseMove();
+    long moved = System.nanoTime();
+    System.out.println(RESULT + " " + (created - start) / 1000 + " " + (moved - moveStart) / 1000
+                       + " " + ManagementFactory.getRuntimeMXBean().getUptime());
+  }
+
+  /**
+   *  Starts a child JVM with the given options and warm-up and returns its
+   *  construction time, first-move time and uptime.
+   **/
+  static long[] run(List<String> options, long warmUp) throws IOException, InterruptedException {
+    List<String> command = new ArrayList<String>();
+    command.add(System.getProperty("java.home") + File.separator + "bin" + File.separator + "java");
+    command.addAll(options);
+    command.add("-cp");
+    command.add(System.getProperty("java.class.path"));
+    command.add(StartupBenchmark.class.getName());
+    command.add(CHILD);
+    command.add(Long.toString(warmUp));
+    Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+    BufferedReader in = new BufferedReader(new InputStreamReader(process.getInputStream()));
+    long[] times = null;
+    for (String line = in.readLine(); line != null; line = in.readLine()) {
+      if (line.startsWith(RESULT + " ")) {
+        String[] words = line.split(" ");
+        times = new long[] {Long.parseLong(words[1]), Long.parseLong(words[2]),
+                            Long.parseLong(words[3])};
+      } else {
+        System.out.println(line);
+      }
+    }
+    if (process.waitFor() != 0 || times == null) {
+      throw new IOException("child failed: " + command);
+    }
+    return times;
+  }
+
+  /**
+   *  Returns the median of each of the times of the runs.
+   **/
+  static long[] medians(long[][] runs) {
+    long[] medians = new long[runs[0].length];
+    for (int i = 0; i < medians.length; i++) {
+      long[] column = new long[runs.length];
+      for (int r = 0; r < runs.length; r++) {
+        column[r] = runs[r][i];
+      }
+      Arrays.sort(column);
+      medians[i] = column[column.length / 2];
+    }
+    return medians;
+  }
+
+  public static void main(String[] args) throws Exception {
+    if (args.length > 0 && args[0].equals(CHILD)) {
+      child(args.length > 1 ? Long.parseLong(args[1]) : 0);
+      return;
+    }
+    int runs = args.length > 0 ? Integer.parseInt(args[0]) : 10;
+    long warmUp = args.length > 1 ? Long.parseLong(args[1]) : 200;
+    List<String> options = new ArrayList<String>();
+    for (int i = 2; i < args.length; i++) {
+      options.add(args[i]);
+    }
+    long[][] cold = new long[runs][];
+    long[][] warm = new long[runs][];
+    for (int r = 0; r < runs; r++) {
+      cold[r] = run(options, 0);
+      warm[r] = run(options, warmUp);
+    }
+    System.out.println(runs + " runs, options " + options + ", medians:");
+    long[] c = medians(cold);
+    long[] w = medians(warm);
+    System.out.printf("no warm-up:      create %7.1f ms, first move %7.1f ms, uptime %5d ms%n",
+                      c[0] / 1000.0, c[1] / 1000.0, c[2]);
+    System.out.printf("%4d ms warm-up:  create %7.1f ms, first move %7.1f ms, uptime %5d ms%n",
+                      warmUp, w[0] / 1000.0, w[1] / 1000.0, w[2]);
+  }
+}
@@ -0,0 +1,335 @@
+/* TexelTuner.java */
+
+package player;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+/**
+ *  Tunes the weights of Board.score() to the results of recorded games
+ *  with a Texel-style logistic fit. Every position of every game but the
+ *  last is scored from white's point of view; the fit minimizes the mean
+ *  squared difference between the game result (1 for a white win, 0 for a
+ *  black win, 1/2 for no winner) and sigmoid(k * score), first over k with
+ *  the starting weights, then over the weights with Adam.
+ *
+ *  The records are streamed from the files and the features of their
+ *  positions are computed in parallel, a batch of games at a time. The
+ *  features are a few small counts, so positions with equal features and
+ *  result are kept once, with their number; tens of millions of positions
+ *  take a few ten thousand entries. Each step of the fit computes the
+ *  error and its gradient over all entries with a parallel stream.
+ *
+ *  After the fit the weights are written to the output file, and with
+ *  -match n, n games are played between players using the starting and
+ *  the tuned weights.
+ *
+ *  Usage: java player.TexelTuner [-match games] output records...
+ **/
+
+public class TexelTuner {
+
+  /**
+   *  BATCH references the number of games whose positions are computed in
+   *  parallel, BITS the bits of each feature in a packed position, CHUNK
+   *  the number of entries in one part of the parallel gradient, and
+   *  ITERATIONS, RATE, BETA1 and BETA2 the steps and parameters of Adam.
+   *  MATCH_DEPTH and OPENING reference the search depth and number of
+   *  random opening moves of the verification games.
+   **/
+  final static private int BATCH = 4096;
+  final static private int BITS = 12;
+  final static private int CHUNK = 1 << 14;
+  final static private int ITERATIONS = 400;
+  final static private double RATE = 0.05;
+  final static private double BETA1 = 0.9;
+  final static private double BETA2 = 0.999;
+  final static private int MATCH_DEPTH = 2;
+  final static private int OPENING = 6;
+
+  /**
+   *  counts maps each packed position read (see pack()) to the number of
+   *  times it was read, and size references the number of positions read.
+   *  features, results and weight hold the entries of counts once freeze()
+   *  has built them: Weights.SIZE features per entry, the result of the
+   *  entry's games in halves (0, 1 or 2) and its number of positions.
+   **/
+  private final Map<Long, Long> counts = new HashMap<Long, Long>();
+  private long size;
+  private short[] features;
+  private byte[] results;
+  private long[] weight;
+  private int entries;
+
+  /**
+   *  Reads all games of a file of GameRecords and adds their positions.
+   *  @param file is the file to read.
+   **/
+  void read(Path file) throws IOException {
+    GameRecordReader reader = new GameRecordReader(file);
+    try {
+      List<GameRecord> batch = new ArrayList<GameRecord>(BATCH);
+      GameRecord record;
+      while ((record = reader.next()) != null) {
+        batch.add(record);
+        if (batch.size() == BATCH) {
+          add(batch);
+          batch.clear();
+        }
+      }
+      add(batch);
+    } finally {
+      reader.close();
+    }
+  }
+
+  /**
+   *  Computes the positions of a batch of games in parallel and counts
+   *  them.
+   **/
+  private void add(List<GameRecord> batch) {
+    long[][] games = batch.parallelStream().map(TexelTuner::positions).toArray(long[][]::new);
+    for (long[] positions : games) {
+      for (long p : positions) {
+        counts.merge(p, 1L, Long::sum);
+      }
+      size += positions.length;
+    }
+  }
+
+  /**
+   *  Returns every position of record but the last, which ends the game,
+   *  packed by pack() from white's point of view.
+   **/
+  static long[] positions(GameRecord record) {
+    long[] positions = new long[Math.max(0, record.length() - 1)];
+    int result = record.winner() == Board.WHITE ? 2 : record.winner() == Board.BLACK ? 0 : 1;
+    Board board = new Board(Board.WHITE);
+    int[] f = new int[Weights.SIZE];
+    for (int i = 0; i < positions.length; i++) {
+      board.updateBoard(record.move(i), i % 2 == 0 ? Board.WHITE : Board.BLACK);
+      board.features(f);
+      positions[i] = pack(f, result);
+    }
+    return positions;
+  }
+
+  /**
+   *  Packs features, BITS bits each, and a result in halves into a long.
+   **/
+  static long pack(int[] features, int result) {
+    long p = result;
+    for (int i = 0; i < Weights.SIZE; i++) {
+      p = p << BITS | features[i];
+    }
+    return p;
+  }
+
+  /**
+   *  Builds the arrays of entries the fit runs over from counts.
+   **/
+  private void freeze() {
+    entries = counts.size();
+    features = new short[entries * Weights.SIZE];
+    results = new byte[entries];
+    weight = new long[entries];
+    int e = 0;
+    for (Map.Entry<Long, Long> entry : counts.entrySet()) {
+      long p = entry.getKey();
+      for (int i = Weights.SIZE - 1; i >= 0; i--) {
+        features[e * Weights.SIZE + i] = (short) (p & ((1 << BITS) - 1));
+        p >>>= BITS;
+      }
+      results[e] = (byte) p;
+      weight[e] = entry.getValue();
+      e++;
+    }
+  }
+
+  /**
+   *  Returns the number of positions read.
+   **/
+  long size() {
+    return size;
+  }
+
+  /**
+   *  Returns the number of distinct entries among the positions read.
+   **/
+  int entries() {
+    return counts.size();
+  }
+
+  /**
+   *  Returns the mean squared error of the weights w with scale k.
+   **/
+  double error(double[] w, double k) {
+    return gradient(w, k)[Weights.SIZE];
+  }
+
+  /**
+   *  Returns the gradient of the mean squared error with respect to the
+   *  weights w, with scale k, followed by the error itself.
+   **/
+  double[] gradient(final double[] w, final double k) {
+    if (features == null || entries != counts.size()) {
+      freeze();
+    }
+    int chunks = (entries + CHUNK - 1) / CHUNK;
+    double[] sum = IntStream.range(0, chunks).parallel()
+      .mapToObj(c -> partialGradient(w, k, c * CHUNK, Math.min(entries, (c + 1) * CHUNK)))
+      .reduce(new double[Weights.SIZE + 1], TexelTuner::add);
+    for (int i = 0; i <= Weights.SIZE; i++) {
+      sum[i] /= Math.max(1, size);
+    }
+    return sum;
+  }
+
+  /**
+   *  Returns the summed gradient and squared error of the positions of the
+   *  entries from to to.
+   **/
+  private double[] partialGradient(double[] w, double k, int from, int to) {
+    double[] g = new double[Weights.SIZE + 1];
+    for (int p = from; p < to; p++) {
+      int base = p * Weights.SIZE;
+      double score = 0;
+      for (int i = 0; i < Weights.SIZE; i++) {
+        score += w[i] * features[base + i];
+      }
+      double predicted = 1 / (1 + Math.exp(-k * score));
+      double difference = results[p] / 2.0 - predicted;
+      double slope = -2 * difference * predicted * (1 - predicted) * k * weight[p];
+      for (int i = 0; i < Weights.SIZE; i++) {
+        g[i] += slope * features[base + i];
+      }
+      g[Weights.SIZE] += difference * difference * weight[p];
+    }
+    return g;
+  }
+
+  /**
+   *  Returns the sum of the vectors a and b.
+   **/
+  private static double[] add(double[] a, double[] b) {
+    double[] c = new double[a.length];
+    for (int i = 0; i < a.length; i++) {
+      c[i] = a[i] + b[i];
+    }
+    return c;
+  }
+
+  /**
+   *  Returns the scale k that minimizes the error of the weights w, found
+   *  by a golden-section search over log k.
+   **/
+  double fitScale(double[] w) {
+    double lo = Math.log(1e-4);
+    double hi = Math.log(10);
+    double ratio = (Math.sqrt(5) - 1) / 2;
+    for (int i = 0; i < 40; i++) {
+      double a = hi - ratio * (hi - lo);
+      double b = lo + ratio * (hi - lo);
+      if (error(w, Math.exp(a)) < error(w, Math.exp(b))) {
+        hi = b;
+      } else {
+        lo = a;
+      }
+    }
+    return Math.exp((lo + hi) / 2);
+  }
+
+  /**
+   *  Returns the weights that minimize the error with scale k, starting
+   *  from start, found with ITERATIONS steps of Adam.
+   **/
+  double[] fitWeights(double[] start, double k) {
+    double[] w = start.clone();
+    double[] m = new double[Weights.SIZE];
+    double[] v = new double[Weights.SIZE];
+    for (int t = 1; t <= ITERATIONS; t++) {
+      double[] g = gradient(w, k);
+      for (int i = 0; i < Weights.SIZE; i++) {
+        m[i] = BETA1 * m[i] + (1 - BETA1) * g[i];
+        v[i] = BETA2 * v[i] + (1 - BETA2) * g[i] * g[i];
+        double mHat = m[i] / (1 - Math.pow(BETA1, t));
+        double vHat = v[i] / (1 - Math.pow(BETA2, t));
+        w[i] -= RATE * mHat / (Math.sqrt(vHat) + 1e-12);
+      }
+      if (t % 50 == 0) {
+        System.out.printf("iteration %d: error %.6f%n", t, g[Weights.SIZE]);
+      }
+    }
+    return w;
+  }
+
+  /**
+   *  Plays games between a player with the weights before and one with the
+   *  weights after, from random openings with colors swapped, and prints
+   *  the results.
+   **/
+  static void match(int games, double[] before, double[] after) {
+    int[] wins = new int[3];
+    Random random = new Random(37);
+    Move[] opening = null;
+    for (int g = 0; g < games; g++) {
+      if (g % 2 == 0) {
+        opening = EngineMatch.randomOpening(random, OPENING);
+      }
+      int tunedColor = g % 2;
+      MachinePlayer[] players = new MachinePlayer[2];
+      players[tunedColor] = new MachinePlayer(tunedColor, MATCH_DEPTH);
+      players[tunedColor].setWeights(after);
+      players[1 - tunedColor] = new MachinePlayer(1 - tunedColor, MATCH_DEPTH);
+      players[1 - tunedColor].setWeights(before);
+      int winner = EngineMatch.playGame(players, opening, new long[2], new int[2]);
+      wins[winner < 0 ? 2 : winner == tunedColor ? 0 : 1]++;
+    }
+    System.out.println("tuned " + wins[0] + ", starting " + wins[1] + ", draws " + wins[2]);
+  }
+
+  public static void main(String[] args) throws IOException {
+    int games = 0;
+    int first = 0;
+    if (args.length > 1 && args[0].equals("-match")) {
+      games = Integer.parseInt(args[1]);
+      first = 2;
+    }
+    if (args.length < first + 2) {
+      System.err.println("usage: java player.TexelTuner [-match games] output records...");
+      System.exit(2);
+    }
+    Path output = Path.of(args[first]);
+    TexelTuner tuner = new TexelTuner();
+    long start = System.nanoTime();
+    for (int i = first + 1; i < args.length; i++) {
+      tuner.read(Path.of(args[i]));
+    }
+    System.out.printf("%d positions, %d distinct, read in %.1f s%n", tuner.size(),
+                      tuner.entries(), (System.nanoTime() - start) / 1e9);
+
+    start = System.nanoTime();
+    double[] before = Board.WEIGHTS;
+    double k = tuner.fitScale(before);
+    double errorBefore = tuner.error(before, k);
+    System.out.printf("k %.5f, error %.6f%n", k, errorBefore);
+    double[] after = tuner.fitWeights(before, k);
+    double errorAfter = tuner.error(after, k);
+    System.out.printf("fitted in %.1f s, error %.6f%n", (System.nanoTime() - start) / 1e9,
+                      errorAfter);
+    for (int i = 0; i < Weights.SIZE; i++) {
+      System.out.printf("%-20s %8.3f -> %8.3f%n", Weights.NAMES[i], before[i], after[i]);
+    }
+    Weights.save(output, after, String.format("fitted to %d positions, k %.5f, error %.6f",
+                                              tuner.size(), k, errorAfter));
+    if (games > 0) {
+      match(games, before, after);
+    }
+  }
+}
@@ -0,0 +1,125 @@
+/* ValidationBenchmark.java */
+
+package player;
+
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ *  Measures Board.isValidMove() and Board.resultOf() as a referee uses
+ *  them: random ADD and STEP moves, legal or not, validated on positions
+ *  shared by all threads. Every answer is checked against one computed
+ *  beforehand, so a validation that wrote to a shared board would show up
+ *  as wrong answers.
+ *
+ *  Usage: java player.ValidationBenchmark [threads [seconds]]
+ **/
+
+public class ValidationBenchmark {
+
+  /**
+   *  POSITIONS references the number of positions, MOVES the number of moves
+   *  tried on each, and PLIES the random moves of the positions in the
+   *  placing phase; the others have all chips placed.
+   **/
+  final static private int POSITIONS = 64;
+  final static private int MOVES = 256;
+  final static private int PLIES = 12;
+
+  /**
+   *  Returns a random move of color on board: a STEP of one of its chips if
+   *  it has placed them all, an ADD otherwise, to any cell.
+   **/
+  static Move randomMove(Random random, Board board, int color) {
+    int dimension = board.dimension;
+    int x = random.nextInt(dimension);
+    int y = random.nextInt(dimension);
+    if (board.totalChips(color) < board.geometry.chips) {
+      return new Move(x, y);
+    }
+    int i;
+    int j;
+    do {
+      i = random.nextInt(dimension);
+      j = random.nextInt(dimension);
+    } while (board.getColor(i, j) != color);
+    return new Move(x, y, i, j);
+  }
+
+  /**
+   *  Validates every move on its position for the given number of
+   *  milliseconds on the given number of threads, making each resulting
+   *  position if results is true, and returns the validations per second.
+   *  The number of wrong answers is added to wrong.
+   **/
+  static double rate(final Board[] boards, final Move[][] moves, final boolean[][] legal,
+                     final int[] toMove, int threads, long millis, final boolean results,
+                     final AtomicLong wrong) throws InterruptedException {
+    final long end = System.nanoTime() + millis * 1000000;
+    final AtomicLong total = new AtomicLong();
+    Thread[] workers = new Thread[threads];
+    long start = System.nanoTime();
+    for (int t = 0; t < threads; t++) {
+      final int offset = t;
+      workers[t] = new Thread() {
+        public void run() {
+          long count = 0;
+          long errors = 0;
+          for (int round = offset; System.nanoTime() < end; round++) {
+            int p = round % boards.length;
+            Board board = boards[p];
+            for (int i = 0; i < MOVES; i++) {
+              boolean valid = results ? board.resultOf(moves[p][i], toMove[p]) != null
+                                      : board.isValidMove(moves[p][i], toMove[p]);
+              if (valid != legal[p][i]) {
+                errors++;
+              }
+            }
+            count += MOVES;
+          }
+          total.addAndGet(count);
+          wrong.addAndGet(errors);
+        }
+      };
+      workers[t].start();
+    }
+    for (Thread w : workers) {
+      w.join();
+    }
+    return total.get() * 1e9 / (System.nanoTime() - start);
+  }
+
+  public static void main(String[] args) throws Exception {
+    int threads = args.length > 0 ? Integer.parseInt(args[0])
+                                   : Runtime.getRuntime().availableProcessors();
+    long millis = (args.length > 1 ? Long.parseLong(args[1]) : 3) * 1000;
+    Random random = new Random(42);
+    Board[] boards = new Board[POSITIONS];
+    Move[][] moves = new Move[POSITIONS][MOVES];
+    boolean[][] legal = new boolean[POSITIONS][MOVES];
+    int[] toMove = new int[POSITIONS];
+    int valid = 0;
+    for (int p = 0; p < POSITIONS; p++) {
+      int plies = p % 2 == 0 ? PLIES : 2 * Geometry.STANDARD_CHIPS + PLIES;
+      boards[p] = SizeBenchmark.randomPosition(random, Board.DIMENSION, plies);
+      toMove[p] = random.nextInt(2);
+      for (int i = 0; i < MOVES; i++) {
+        moves[p][i] = randomMove(random, boards[p], toMove[p]);
+        legal[p][i] = boards[p].isValidMove(moves[p][i], toMove[p]);
+        if (legal[p][i]) {
+          valid++;
+        }
+      }
+    }
+    System.out.println(POSITIONS * MOVES + " moves, " + valid + " legal, " + threads
+                       + " threads");
+    AtomicLong wrong = new AtomicLong();
+    rate(boards, moves, legal, toMove, threads, millis / 3, false, wrong);
+    System.out.printf("isValidMove: %12.0f validations/s%n",
+                      rate(boards, moves, legal, toMove, threads, millis, false, wrong));
+    rate(boards, moves, legal, toMove, threads, millis / 3, true, wrong);
+    System.out.printf("resultOf:    %12.0f validations/s%n",
+                      rate(boards, moves, legal, toMove, threads, millis, true, wrong));
+    System.out.println(wrong.get() == 0 ? "all answers agree" : wrong.get() + " wrong answers");
+  }
+}
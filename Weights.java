@@ -0,0 +1,122 @@
+/* Weights.java */
+
+package player;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ *  The weight vector of Board.score(). Each weight multiplies one feature
+ *  computed by Board.features(); the score is the rounded sum. The weights
+ *  in use at startup are read from the file named by the system property
+ *  player.weights, or from FILE in the working directory if it exists, and
+ *  are DEFAULTS otherwise.
+ *
+ *  A weights file holds one line "name value" per weight, in any order;
+ *  weights it does not name keep their default. Lines starting with '#'
+ *  are comments.
+ **/
+
+public class Weights {
+
+  /**
+   *  GOAL_ENTRY, GOAL_SINGLE, GOAL_CROWD, CONNECTION and OPPOSITE_CONNECTION
+   *  are the indexes of the features: the number of goal lines with a chip
+   *  of the board's color on one of the two middle cells, the number with
+   *  exactly one such chip, the number with three or more, and the number
+   *  of connections of the board's color and of the other color.
+   *  SIZE references the number of features, NAMES their names in weights
+   *  files and DEFAULTS the original hand-set weights.
+   **/
+  final static int GOAL_ENTRY = 0;
+  final static int GOAL_SINGLE = 1;
+  final static int GOAL_CROWD = 2;
+  final static int CONNECTION = 3;
+  final static int OPPOSITE_CONNECTION = 4;
+  final static int SIZE = 5;
+  final static String[] NAMES = {"goal-entry", "goal-single", "goal-crowd", "connection",
+                                 "opposite-connection"};
+  final static double[] DEFAULTS = {4, 4, -20, 1, -1};
+  final static String FILE = "weights.txt";
+
+  /**
+   *  Returns the weights to use at startup.
+   **/
+  static double[] startup() {
+    String name = System.getProperty("player.weights");
+    Path file = Path.of(name != null ? name : FILE);
+    if (name == null && !Files.exists(file)) {
+      return DEFAULTS.clone();
+    }
+    try {
+      return load(file);
+    } catch (IOException | IllegalArgumentException e) {
+      System.err.println("cannot read weights from " + file + ": " + e.getMessage());
+      return DEFAULTS.clone();
+    }
+  }
+
+  /**
+   *  Reads a weights file.
+   *  @param file is the file to read.
+   *  @return the weights.
+   *  @throws IllegalArgumentException if a line is not a weight name and a
+   *  value, or names no weight.
+   **/
+  static double[] load(Path file) throws IOException {
+    double[] weights = DEFAULTS.clone();
+    BufferedReader in = Files.newBufferedReader(file);
+    try {
+      String line;
+      while ((line = in.readLine()) != null) {
+        line = line.trim();
+        if (line.length() == 0 || line.startsWith("#")) {
+          continue;
+        }
+        String[] words = line.split("\\s+");
+        if (words.length != 2) {
+          throw new IllegalArgumentException("bad line " + line);
+        }
+        weights[index(words[0])] = Double.parseDouble(words[1]);
+      }
+    } finally {
+      in.close();
+    }
+    return weights;
+  }
+
+  /**
+   *  Writes weights to a weights file.
+   *  @param file is the file to write.
+   *  @param weights holds SIZE weights.
+   *  @param comment is written as a comment line at the top, or null.
+   **/
+  static void save(Path file, double[] weights, String comment) throws IOException {
+    PrintWriter out = new PrintWriter(Files.newBufferedWriter(file));
+    try {
+      if (comment != null) {
+        out.println("# " + comment);
+      }
+      for (int i = 0; i < SIZE; i++) {
+        out.println(NAMES[i] + " " + weights[i]);
+      }
+    } finally {
+      out.close();
+    }
+  }
+
+  /**
+   *  Returns the index of the weight with the given name.
+   **/
+  private static int index(String name) {
+    for (int i = 0; i < SIZE; i++) {
+      if (NAMES[i].equals(name)) {
+        return i;
+      }
+    }
+    throw new IllegalArgumentException("unknown weight " + name);
+  }
+}